@@ -2,22 +2,30 @@ package com.cgvsu;
 
 import com.cgvsu.math.Matrix4x4;
 import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.GeometryStorage;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.ModelProcessor;
 import com.cgvsu.model.Polygon;
+import com.cgvsu.model.PolygonList;
+import com.cgvsu.objreader.ModelCache;
+import com.cgvsu.objreader.ModelImporter;
 import com.cgvsu.objreader.ObjReader;
+import com.cgvsu.objwriter.FloatFormat;
 import com.cgvsu.objwriter.ObjWriter;
 import com.cgvsu.render_engine.*;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.input.*;
 import javafx.scene.layout.AnchorPane;
+import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.util.Duration;
@@ -26,31 +34,44 @@ import java.util.List;
 import java.util.ArrayList;
 
 import java.io.File;
-import java.nio.file.Files;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
 
 public class GuiController {
 
     private final float TRANSLATION = 0.5F;
+    private final float WELD_EPSILON = 1e-5F;
     private double mousePrevX, mousePrevY;
     private boolean isMousePressed = false;
 
     @FXML AnchorPane anchorPane;
     @FXML private Canvas canvas;
-    @FXML private CheckMenuItem drawGridCheck, useTextureCheck, useLightingCheck;
+    @FXML private CheckMenuItem drawGridCheck, useTextureCheck, useLightingCheck, losslessExportCheck;
     @FXML private ListView<String> modelListView;
     @FXML private VBox transformPanel;
     @FXML private TextField translateX, translateY, translateZ, rotateX, rotateY, rotateZ, scaleX, scaleY, scaleZ;
     @FXML private CheckBox randomTransformationCheck;
+    @FXML private HBox loadingPanel;
+    @FXML private Label loadingLabel;
+    @FXML private ProgressBar loadingProgress;
 
     @FXML private RadioMenuItem deletePolygonsMode;
     @FXML private RadioMenuItem deleteVerticesMode;
 
     private Scene scene = new Scene();
+    private final ModelCache modelCache = ModelCache.inTempDirectory();
+    // Где хранить геометрию открываемых OBJ: -Dcgvsu.geometry=heap|direct|mapped|mapped:каталог
+    private final GeometryStorage geometryStorage = GeometryStorage.forName(System.getProperty("cgvsu.geometry", "heap"));
+    private ModelLoadTask loadTask = null;
+    private ModelImporter importer = null;
+    private ModelSaveTask saveTask = null;
     private Model cameraMarkerMesh = null;
     private Timeline timeline;
     private boolean randomTransformation = false;
 
+    // Идентификатор выбранного полигона и поколение идентификаторов модели, к которому он относится
     private int selectedPolygonIdx = -1;
+    private int selectedPolygonGeneration = 0;
     private int selectedVertexIdx = -1;
     private Model targetModel = null;
 
@@ -101,14 +122,13 @@ public class GuiController {
         // Проверяем, есть ли модель, в которой мы что-то выделили
         if (targetModel == null) return;
 
-        if (code == KeyCode.DELETE || code == KeyCode.BACK_SPACE) {
+        if ((code == KeyCode.DELETE || code == KeyCode.BACK_SPACE) && checkActiveModelEditable()) {
 
             // Режим удаления ПОЛИГОНА
-            if (deletePolygonsMode.isSelected() && selectedPolygonIdx >= 0) {
-                // Удаляем через сцену (как в pickAndRemoveElement) или напрямую через модель
+            if (deletePolygonsMode.isSelected() && selectedPolygonId() >= 0) {
+                // Удаляем через сцену (как в pickAndRemoveElement): она же пересчитывает нормали
                 scene.deletePolygonsInActiveModel(java.util.List.of(selectedPolygonIdx));
 
-                ModelProcessor.computeNormals(targetModel);
                 resetSelection();
                 System.out.println("Полигон удален клавишей.");
             }
@@ -117,7 +137,6 @@ public class GuiController {
             else if (deleteVerticesMode.isSelected() && selectedVertexIdx >= 0) {
                 scene.deleteVerticesInActiveModel(java.util.List.of(selectedVertexIdx));
 
-                ModelProcessor.computeNormals(targetModel);
                 resetSelection();
                 System.out.println("Вершина удалена клавишей.");
             }
@@ -146,7 +165,7 @@ public class GuiController {
             Model m = scene.getModels().get(i);
 
             // Передаем индексы выделения только для той модели, по которой кликнули
-            int polySelection = (m == targetModel) ? selectedPolygonIdx : -1;
+            int polySelection = (m == targetModel) ? selectedPolygonId() : -1;
             int vertexSelection = (m == targetModel) ? selectedVertexIdx : -1;
 
             RenderEngine.render(
@@ -166,21 +185,222 @@ public class GuiController {
 
     @FXML
     private void onOpenModelMenuItemClick() {
+        if (isLoading()) {
+            showError("Ошибка", "Дождитесь окончания загрузки предыдущей модели");
+            return;
+        }
         FileChooser fc = new FileChooser();
-        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Model (*.obj)", "*.obj"));
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Model (*.obj, *.obj.gz, *.zip, *.ply, *.stl, *.glb)", "*.obj", "*.obj.gz", "*.zip", "*.ply", "*.stl", "*.glb"));
         File file = fc.showOpenDialog((Stage) canvas.getScene().getWindow());
         if (file == null) return;
+
+        String entryName = null;
+        String modelName = file.getName();
+        if (modelName.toLowerCase().endsWith(".zip")) {
+            entryName = chooseArchiveEntry(file);
+            if (entryName == null) return;
+            modelName += "/" + entryName;
+        }
+
+        ModelLoadTask task = new ModelLoadTask(file.toPath(), entryName, modelCache, geometryStorage);
+        Model m = task.getTarget();
+        addModelToScene(m, modelName);
+        scene.setModelLoading(m, true);
+
+        task.setOnSucceeded(e -> {
+            finishLoading();
+            scene.setModelLoading(m, false);
+            Model original = scene.refreshOriginal(m);
+            if (!task.isFromCache() && task.getCacheKey() != null && original != null) {
+                storeInCache(task.getCacheKey(), original);
+            }
+        });
+        task.setOnFailed(e -> {
+            finishLoading();
+            removeLoadedModel(m);
+            Throwable error = task.getException();
+            showError("Error", error == null ? "Не удалось загрузить модель" : error.getMessage());
+        });
+        task.setOnCancelled(e -> {
+            finishLoading();
+            removeLoadedModel(m);
+        });
+
+        loadTask = task;
+        loadingLabel.setText(modelName);
+        loadingProgress.progressProperty().bind(task.progressProperty());
+        loadingPanel.setVisible(true);
+
+        Thread thread = new Thread(task, "model-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @FXML
+    private void onImportModelsMenuItemClick() {
+        if (isLoading()) {
+            showError("Ошибка", "Дождитесь окончания загрузки предыдущей модели");
+            return;
+        }
+        FileChooser fc = new FileChooser();
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Model (*.obj, *.obj.gz, *.zip, *.ply, *.stl, *.glb)", "*.obj", "*.obj.gz", "*.zip", "*.ply", "*.stl", "*.glb"));
+        List<File> files = fc.showOpenMultipleDialog((Stage) canvas.getScene().getWindow());
+        if (files == null || files.isEmpty()) return;
+
+        List<Path> paths = new ArrayList<>(files.size());
+        for (File file : files) paths.add(file.toPath());
+        startImport(paths);
+    }
+
+    @FXML
+    private void onImportFolderMenuItemClick() {
+        if (isLoading()) {
+            showError("Ошибка", "Дождитесь окончания загрузки предыдущей модели");
+            return;
+        }
+        DirectoryChooser dc = new DirectoryChooser();
+        File directory = dc.showDialog((Stage) canvas.getScene().getWindow());
+        if (directory == null) return;
+
         try {
-            Model m = ObjReader.read(Files.readString(file.toPath()));
+            List<Path> paths = ModelImporter.listModelFiles(directory.toPath());
+            if (paths.isEmpty()) {
+                showError("Ошибка", "В папке нет моделей");
+                return;
+            }
+            startImport(paths);
+        } catch (Exception e) {
+            showError("Error", e.getMessage());
+        }
+    }
+
+    // Файлы разбираются параллельно; каждая готовая модель сразу добавляется в сцену
+    private void startImport(List<Path> paths) {
+        List<String> errors = new ArrayList<>();
+        ModelImporter job = ModelImporter.start(paths, modelCache, new ModelImporter.Listener() {
+            @Override
+            public void onLoaded(Path file, Model model) {
+                Platform.runLater(() -> {
+                    // После отмены доходящие результаты уже не нужны
+                    if (importer == null) return;
+                    addModelToScene(model, file.getFileName().toString());
+                    updateImportProgress();
+                });
+            }
+
+            @Override
+            public void onFailed(Path file, Exception error) {
+                Platform.runLater(() -> {
+                    errors.add(file.getFileName() + ": " + error.getMessage());
+                    updateImportProgress();
+                });
+            }
+        });
+        importer = job;
+        loadingProgress.setProgress(0);
+        loadingPanel.setVisible(true);
+        updateImportProgress();
+
+        job.getCompletion().whenComplete((ignored, error) -> Platform.runLater(() -> {
+            importer = null;
+            loadingPanel.setVisible(false);
+            if (!errors.isEmpty()) {
+                showError("Error", String.join("\n", errors));
+            }
+        }));
+    }
+
+    private void updateImportProgress() {
+        if (importer == null) return;
+        int finished = importer.getFinishedCount();
+        int total = importer.getTotalCount();
+        loadingLabel.setText("Imported " + finished + " / " + total);
+        loadingProgress.setProgress((double) finished / total);
+    }
+
+    private void addModelToScene(Model m, String name) {
 //            ModelProcessor.triangulate(m);
 //            ModelProcessor.computeNormals(m);
-            m.setModelMatrix(AffineTransformation.translation(scene.getModels().size() * 5.0f, 0, 0));
-            scene.addModel(m);
-            modelListView.getItems().add("Model " + scene.getModels().size() + ": " + file.getName());
-            modelListView.getSelectionModel().selectLast();
+        m.setModelMatrix(AffineTransformation.translation(scene.getModels().size() * 5.0f, 0, 0));
+        scene.addModel(m);
+        modelListView.getItems().add("Model " + scene.getModels().size() + ": " + name);
+        modelListView.getSelectionModel().selectLast();
+    }
+
+    private boolean isLoading() {
+        return loadTask != null || importer != null || saveTask != null;
+    }
+
+    // Геометрию догружаемой модели менять нельзя; сообщает об этом пользователю
+    private boolean checkActiveModelEditable() {
+        if (scene.getActiveModel() == null) return false;
+        if (scene.isActiveModelEditable()) return true;
+        showError("Ошибка", "Дождитесь окончания загрузки модели");
+        return false;
+    }
+
+    // Выбор OBJ-записи архива; null, если выбирать нечего или пользователь отказался
+    private String chooseArchiveEntry(File file) {
+        List<String> entries;
+        try {
+            entries = ObjReader.listObjEntries(file.toPath());
         } catch (Exception e) {
             showError("Error", e.getMessage());
+            return null;
+        }
+        if (entries.isEmpty()) {
+            showError("Ошибка", "В архиве нет OBJ-файлов");
+            return null;
+        }
+        if (entries.size() == 1) {
+            return entries.get(0);
+        }
+        ChoiceDialog<String> dialog = new ChoiceDialog<>(entries.get(0), entries);
+        dialog.setTitle("Выбор модели");
+        dialog.setHeaderText(null);
+        dialog.setContentText("Модель в архиве:");
+        return dialog.showAndWait().orElse(null);
+    }
+
+    @FXML
+    private void onCancelLoadingClick() {
+        if (loadTask != null) {
+            loadTask.cancel();
         }
+        if (importer != null) {
+            importer.cancel();
+        }
+        if (saveTask != null) {
+            saveTask.cancel();
+        }
+    }
+
+    private void finishLoading() {
+        loadTask = null;
+        saveTask = null;
+        loadingProgress.progressProperty().unbind();
+        loadingPanel.setVisible(false);
+    }
+
+    private void removeLoadedModel(Model model) {
+        int index = scene.getModels().indexOf(model);
+        if (index != -1) {
+            scene.removeModel(index);
+            modelListView.getItems().remove(index);
+        }
+    }
+
+    // Кэш пишется в фоне: запись большой модели не должна задерживать интерфейс
+    private void storeInCache(ModelCache.Key key, Model snapshot) {
+        Thread thread = new Thread(() -> {
+            try {
+                modelCache.store(key, snapshot);
+            } catch (Exception ignored) {
+                // Кэш необязателен: при ошибке модель просто будет разобрана заново
+            }
+        }, "model-cache-writer");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     @FXML
@@ -246,19 +466,46 @@ public class GuiController {
     }
 
     private void onSaveModel(Model model) {
+        if (isLoading()) {
+            showError("Ошибка", "Дождитесь окончания загрузки или сохранения");
+            return;
+        }
         FileChooser fc = new FileChooser();
         fc.setInitialFileName("model.obj");
+        fc.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Wavefront OBJ (*.obj)", "*.obj"),
+                new FileChooser.ExtensionFilter("Binary PLY (*.ply)", "*.ply"),
+                new FileChooser.ExtensionFilter("Binary STL (*.stl)", "*.stl"));
         File file = fc.showSaveDialog((Stage) canvas.getScene().getWindow());
-        if (file != null) {
-            try {
-                String path = file.getAbsolutePath();
-                if (!path.toLowerCase().endsWith(".obj")) path += ".obj";
-                ObjWriter.write(model, path);
-                showInfo("Успех", "Модель сохранена");
-            } catch (Exception e) {
-                showError("Ошибка", e.getMessage());
-            }
-        }
+        if (file == null) return;
+
+        String path = file.getAbsolutePath();
+        String lower = path.toLowerCase();
+        if (!lower.endsWith(".obj") && !lower.endsWith(".ply") && !lower.endsWith(".stl")) path += ".obj";
+        FloatFormat format = losslessExportCheck.isSelected() ? FloatFormat.SHORTEST : FloatFormat.FIXED_6;
+        // Снимок берется в потоке JavaFX, дальше модель можно свободно менять.
+        // Удаленные полигоны вычищаются уже в снимке, в фоновом потоке
+        ModelSaveTask task = new ModelSaveTask(model.copy(), Path.of(path), format);
+
+        task.setOnSucceeded(e -> {
+            finishLoading();
+            showInfo("Успех", "Модель сохранена");
+        });
+        task.setOnFailed(e -> {
+            finishLoading();
+            Throwable error = task.getException();
+            showError("Ошибка", error == null ? "Не удалось сохранить модель" : error.getMessage());
+        });
+        task.setOnCancelled(e -> finishLoading());
+
+        saveTask = task;
+        loadingLabel.setText("Сохранение " + task.getPath().getFileName());
+        loadingProgress.progressProperty().bind(task.progressProperty());
+        loadingPanel.setVisible(true);
+
+        Thread thread = new Thread(task, "model-saver");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     @FXML private void onShowTransformPanel() { transformPanel.setVisible(true); }
@@ -271,10 +518,12 @@ public class GuiController {
                 showError("Ошибка", "Модель не загружена.");
                 return;
             }
+            Matrix4x4 before = scene.getActiveModel().getModelMatrix();
             AffineTransformation.transformation(scene.getActiveModel(),
                     Float.parseFloat(translateX.getText()), Float.parseFloat(translateY.getText()), Float.parseFloat(translateZ.getText()),
                     Float.parseFloat(rotateX.getText()), Float.parseFloat(rotateY.getText()), Float.parseFloat(rotateZ.getText()),
                     Float.parseFloat(scaleX.getText()), Float.parseFloat(scaleY.getText()), Float.parseFloat(scaleZ.getText()));
+            scene.getActiveJournal().modelMatrixChanged(before);
             resetFields();
         } catch (Exception e) {
             showError("Ошибка", "Некорректные числа");
@@ -309,7 +558,7 @@ public class GuiController {
             Model originalModel = scene.getOriginalModels().get(scene.getActiveModelIndex());
             Model restoredModel = originalModel.copy();
             restoredModel.setModelMatrix(Matrix4x4.identity());
-            scene.getModels().set(scene.getActiveModelIndex(), restoredModel);
+            scene.replaceModel(scene.getActiveModelIndex(), restoredModel);
             modelListView.getSelectionModel().clearAndSelect(scene.getActiveModelIndex());
             showInfo("Успех", "Исходная модель восстановлена");
         } catch (Exception e) {
@@ -338,11 +587,26 @@ public class GuiController {
     @FXML public void handleCameraUp() { scene.getActiveCamera().movePosition(new Vector3f(0, TRANSLATION, 0)); }
     @FXML public void handleCameraDown() { scene.getActiveCamera().movePosition(new Vector3f(0, -TRANSLATION, 0)); }
 
-    @FXML private void onTriangulateModelMenuItemClick() { if (scene.getActiveModel() != null) ModelProcessor.triangulate(scene.getActiveModel()); }
-    @FXML private void onComputeNormalsMenuItemClick() { if (scene.getActiveModel() != null) ModelProcessor.computeNormals(scene.getActiveModel()); }
+    @FXML private void onTriangulateModelMenuItemClick() { if (checkActiveModelEditable()) ModelProcessor.triangulate(scene.getActiveModel()); }
+    @FXML private void onComputeNormalsMenuItemClick() { if (checkActiveModelEditable()) scene.getActiveJournal().computeNormals(); }
+    @FXML private void onUndoMenuItemClick() {
+        if (checkActiveModelEditable() && scene.getActiveJournal().undo()) resetSelection();
+    }
+    @FXML private void onRedoMenuItemClick() {
+        if (checkActiveModelEditable() && scene.getActiveJournal().redo()) resetSelection();
+    }
+    @FXML private void onWeldVerticesMenuItemClick() {
+        if (!checkActiveModelEditable()) return;
+        Model m = scene.getActiveModel();
+        int removed = ModelProcessor.weldVertices(m, WELD_EPSILON);
+        resetSelection();
+        showInfo("Инфо", "Удалено вершин: " + removed + "\nВершин: " + m.getVertices().size());
+    }
     @FXML private void onModelInfoMenuItemClick() {
         Model m = scene.getActiveModel();
-        if (m != null) showInfo("Инфо", "Вершин: " + m.getVertices().size() + "\nПолигонов: " + m.getPolygons().size());
+        // Удаленные, но не вычищенные полигоны не считаются; список при этом не сжимается
+        if (m != null) showInfo("Инфо", "Вершин: " + m.getVertices().size()
+                + "\nПолигонов: " + (m.getPolygonSlots().size() - m.getDeletedPolygonCount()));
     }
 
     @FXML private void onClearLightsClick() {
@@ -442,7 +706,7 @@ public class GuiController {
         canvas.requestFocus();
 
         // Если зажат ALT — удаляем объект кликом
-        if (e.isAltDown() && e.getButton() == MouseButton.PRIMARY && scene.getActiveModel() != null) {
+        if (e.isAltDown() && e.getButton() == MouseButton.PRIMARY && checkActiveModelEditable()) {
             pickAndRemoveElement(e.getX(), e.getY());
         }
     }
@@ -469,13 +733,17 @@ public class GuiController {
         float minDistance = Float.MAX_VALUE;
         Matrix4x4 modelMatrix = model.getModelMatrix();
 
-        for (int i = 0; i < model.getPolygons().size(); i++) {
-            Polygon poly = model.getPolygons().get(i);
-            int[] vIdx = poly.getVertexIndices();
+        // Номера полигонов — их идентификаторы: удаленные до сжатия остаются в списке и пропускаются
+        PolygonList polygons = model.getPolygonSlots();
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer vIdx = polygons.vertexIndexBuffer();
+        for (int i = 0; i < polygons.size(); i++) {
+            if (model.isPolygonDeleted(i)) continue;
+            int start = offsets.get(i);
 
-            Vector3f v0 = GraphicConveyor.multiplyMatrix4ByVector3(modelMatrix, model.getVertices().get(vIdx[0]));
-            Vector3f v1 = GraphicConveyor.multiplyMatrix4ByVector3(modelMatrix, model.getVertices().get(vIdx[1]));
-            Vector3f v2 = GraphicConveyor.multiplyMatrix4ByVector3(modelMatrix, model.getVertices().get(vIdx[2]));
+            Vector3f v0 = GraphicConveyor.multiplyMatrix4ByVector3(modelMatrix, model.getVertices().get(vIdx.get(start)));
+            Vector3f v1 = GraphicConveyor.multiplyMatrix4ByVector3(modelMatrix, model.getVertices().get(vIdx.get(start + 1)));
+            Vector3f v2 = GraphicConveyor.multiplyMatrix4ByVector3(modelMatrix, model.getVertices().get(vIdx.get(start + 2)));
 
             float dist = RenderEngine.rayTriangleIntersection(rayOrigin, rayDir, v0, v1, v2);
 
@@ -491,12 +759,12 @@ public class GuiController {
             // Определяем вершину, если мы в режиме удаления вершин
             int currentVertexIdx = -1;
             if (deleteVerticesMode.isSelected()) {
-                currentVertexIdx = findClosestVertexToRay(model, model.getPolygons().get(closestPolyIdx).getVertexIndices(), rayOrigin, rayDir);
+                currentVertexIdx = findClosestVertexToRay(model, polygons.get(closestPolyIdx).getVertexIndices(), rayOrigin, rayDir);
             }
 
             // Проверяем: это повторный клик по уже выбранному элементу?
             boolean isConfirmed = (model == targetModel) && (
-                    (deletePolygonsMode.isSelected() && selectedPolygonIdx == closestPolyIdx) ||
+                    (deletePolygonsMode.isSelected() && selectedPolygonId() == closestPolyIdx) ||
                             (deleteVerticesMode.isSelected() && selectedVertexIdx == currentVertexIdx)
             );
 
@@ -508,14 +776,14 @@ public class GuiController {
                     scene.deleteVerticesInActiveModel(java.util.List.of(selectedVertexIdx));
                 }
 
-                // Сбрасываем выбор и пересчитываем нормали
-                ModelProcessor.computeNormals(model);
+                // Сбрасываем выбор (нормали вокруг удаленного пересчитала сцена)
                 resetSelection();
                 System.out.println("Удалено!");
             } else {
                 // ПЕРВЫЙ КЛИК: Только выделяем
                 targetModel = model;
                 selectedPolygonIdx = closestPolyIdx;
+                selectedPolygonGeneration = model.getPolygonIdGeneration();
                 selectedVertexIdx = currentVertexIdx;
                 System.out.println("Выбрано. Нажмите еще раз для удаления.");
             }
@@ -524,6 +792,17 @@ public class GuiController {
         }
     }
 
+    /**
+     * Текущий идентификатор выбранного полигона: если после выбора модель сжала список полигонов,
+     * идентификатор переводится в новый (или -1, если полигона больше нет).
+     */
+    private int selectedPolygonId() {
+        if (targetModel == null || selectedPolygonIdx < 0) return -1;
+        selectedPolygonIdx = targetModel.mapPolygonId(selectedPolygonIdx, selectedPolygonGeneration);
+        selectedPolygonGeneration = targetModel.getPolygonIdGeneration();
+        return selectedPolygonIdx;
+    }
+
     private void resetSelection() {
         selectedPolygonIdx = -1;
         selectedVertexIdx = -1;
@@ -531,14 +810,12 @@ public class GuiController {
     }
 
     private void performDeletion() {
-        if (deletePolygonsMode.isSelected() && selectedPolygonIdx != -1) {
+        if (deletePolygonsMode.isSelected() && selectedPolygonId() != -1) {
             scene.deletePolygonsInActiveModel(List.of(selectedPolygonIdx));
         } else if (deleteVerticesMode.isSelected() && selectedVertexIdx != -1) {
             scene.deleteVerticesInActiveModel(List.of(selectedVertexIdx));
         }
-
-        // ВАЖНО: Пересчитываем всё после удаления
-        ModelProcessor.computeNormals(targetModel);
+        // Нормали вокруг удаленного пересчитывает сцена в той же записи журнала
     }
 
 
@@ -0,0 +1,128 @@
+package com.cgvsu;
+
+import com.cgvsu.model.GeometryStorage;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ModelCache;
+import com.cgvsu.objreader.ModelImporter;
+import com.cgvsu.objreader.ObjReader;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Фоновая загрузка модели. Модель сразу добавляется в сцену пустой и наполняется
+ * порциями в потоке JavaFX, поэтому окно остается отзывчивым, а модель
+ * появляется на экране по мере чтения файла. Массивы модели лежат в выбранном хранилище
+ * (см. {@link GeometryStorage}): вне кучи в куче одновременно держится только очередная порция.
+ */
+public class ModelLoadTask extends Task<Model> {
+
+    private static final int BATCH_SIZE = 50_000;
+
+    private final Path path;
+    private final String entryName;
+    private final ModelCache cache;
+    private final Model target;
+
+    // Полигоны, ссылающиеся на еще не прочитанные вершины; заполняется только в потоке JavaFX
+    private final Queue<Polygon> pendingPolygons = new ArrayDeque<>();
+
+    private volatile ModelCache.Key cacheKey;
+    private volatile boolean fromCache;
+
+    public ModelLoadTask(Path path, ModelCache cache) {
+        this(path, null, cache);
+    }
+
+    /**
+     * @param entryName OBJ-запись zip-архива или null для обычного и .gz файла
+     */
+    public ModelLoadTask(Path path, String entryName, ModelCache cache) {
+        this(path, entryName, cache, GeometryStorage.HEAP);
+    }
+
+    public ModelLoadTask(Path path, String entryName, ModelCache cache, GeometryStorage storage) {
+        this.path = path;
+        this.entryName = entryName;
+        this.cache = cache;
+        this.target = new Model(storage);
+    }
+
+    /**
+     * Модель, которая наполняется по ходу загрузки. Менять ее можно только в потоке JavaFX.
+     */
+    public Model getTarget() {
+        return target;
+    }
+
+    /**
+     * Ключ кэша OBJ; null для бинарных PLY, STL и GLB, которые не кэшируются.
+     */
+    public ModelCache.Key getCacheKey() {
+        return cacheKey;
+    }
+
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    @Override
+    protected Model call() throws Exception {
+        if (ModelImporter.isBinaryMeshFile(path)) {
+            // Бинарный файл читается целиком быстрее, чем порциями и через кэш
+            publish(ModelImporter.readModelFile(path, null), 1, 1);
+            return target;
+        }
+        cacheKey = cache.keyOf(path, entryName);
+        Model cached = cache.readCached(cacheKey, target.getStorage());
+        if (cached != null) {
+            fromCache = true;
+            publish(cached, 1, 1);
+            return target;
+        }
+        ObjReader.readProgressive(path, entryName, BATCH_SIZE, this::publish);
+        return target;
+    }
+
+    private void publish(Model batch, long bytesRead, long totalBytes) {
+        updateProgress(bytesRead, Math.max(totalBytes, 1));
+        boolean last = bytesRead >= totalBytes;
+        Platform.runLater(() -> {
+            if (isCancelled()) {
+                return;
+            }
+            target.getVerticesInternal().addAll(batch.getVertices());
+            target.getTextureVerticesInternal().addAll(batch.getTextureVertices());
+            target.getNormalsInternal().addAll(batch.getNormals());
+            if (last && pendingPolygons.isEmpty()) {
+                // Последняя порция (или вся модель из кэша) добавляется целыми массивами, без объектов Polygon
+                target.getPolygonsInternal().addAll(batch.getPolygonsInternal());
+                return;
+            }
+            pendingPolygons.addAll(batch.getPolygons());
+            // Полигоны уходят в модель в порядке файла, как только все их индексы доступны
+            while (!pendingPolygons.isEmpty() && (last || isComplete(pendingPolygons.peek()))) {
+                target.getPolygonsInternal().add(pendingPolygons.poll());
+            }
+        });
+    }
+
+    private boolean isComplete(Polygon polygon) {
+        return fits(polygon.getVertexIndices(), target.getVertices().size())
+                && fits(polygon.getTextureVertexIndices(), target.getTextureVertices().size())
+                && fits(polygon.getNormalIndices(), target.getNormals().size());
+    }
+
+    private static boolean fits(int[] indices, int size) {
+        for (int index : indices) {
+            if (index >= size) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+package com.cgvsu;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.objwriter.FloatFormat;
+import com.cgvsu.objwriter.ObjWriter;
+import com.cgvsu.objwriter.PlyWriter;
+import com.cgvsu.objwriter.StlWriter;
+import javafx.concurrent.Task;
+
+import java.nio.file.Path;
+
+/**
+ * Фоновое сохранение модели. Пишется снимок, сделанный в потоке JavaFX до запуска,
+ * поэтому правки модели во время записи не попадают в файл наполовину.
+ * Отмена прерывает поток записи: временный файл удаляется, прежний файл не меняется.
+ */
+public class ModelSaveTask extends Task<Void> {
+
+    private final Model snapshot;
+    private final Path path;
+    private final FloatFormat format;
+
+    /**
+     * @param snapshot копия модели, которую больше никто не меняет
+     * @param format   формат чисел для OBJ; на бинарные форматы не влияет
+     */
+    public ModelSaveTask(Model snapshot, Path path, FloatFormat format) {
+        this.snapshot = snapshot;
+        this.path = path;
+        this.format = format;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Формат файла определяется по расширению: .ply и .stl пишутся в бинарном виде, остальное — OBJ.
+     */
+    @Override
+    protected Void call() throws Exception {
+        String name = path.getFileName().toString().toLowerCase();
+        if (name.endsWith(".ply")) {
+            PlyWriter.write(snapshot, path, this::updateProgress);
+        } else if (name.endsWith(".stl")) {
+            StlWriter.write(snapshot, path, this::updateProgress);
+        } else {
+            ObjWriter.write(snapshot, path, format, this::updateProgress);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,649 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Matrix4x4;
+
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Журнал отмены и повтора правок одной модели. Правка выполняется через журнал, и он запоминает
+ * не копию модели, а только то, что правка убрала или заменила: удаленные полигоны и вершины
+ * с их позициями, прежнюю матрицу модели, прежние нормали. Поэтому отмена стоит порядка размера
+ * правки, а не модели:
+ * <ul>
+ *     <li>удаление полигона, пока он только отмечен удаленным, отменяется снятием отметки за O(число вершин полигона);</li>
+ *     <li>удаление вершин возвращает координаты на место и сдвигает индексы вершин обратно
+ *     за один проход по индексам (номера вершин плотные, без этого не обойтись);</li>
+ *     <li>обновление нормалей после удаления хранит только прежние нормали пересчитанных вершин,
+ *     а полный пересчет — прежний массив нормалей целиком.</li>
+ * </ul>
+ * Записи хранят позиции полигонов в плотном списке, а не идентификаторы, поэтому переживают сжатие.
+ * Объем сохраненных данных ограничен (см. {@link #setMemoryLimit}): при превышении отбрасываются
+ * самые старые записи. Если модель изменили в обход журнала, история очищается при следующем обращении.
+ */
+public class EditJournal {
+
+    public static final long DEFAULT_MEMORY_LIMIT = 64L << 20;
+
+    // Примерный размер записи без сохраненных данных
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final Model model;
+    private long memoryLimit;
+    private long memoryUsage;
+    // Самые старые записи в начале очереди
+    private final ArrayDeque<Entry> undoEntries = new ArrayDeque<>();
+    private final ArrayDeque<Entry> redoEntries = new ArrayDeque<>();
+    // Записи текущей группы (см. group) или null вне группы
+    private List<Entry> groupEntries;
+    // Состояние модели после последней операции журнала
+    private Stamp stamp;
+
+    public EditJournal(Model model) {
+        this(model, DEFAULT_MEMORY_LIMIT);
+    }
+
+    public EditJournal(Model model, long memoryLimit) {
+        this.model = Objects.requireNonNull(model);
+        setMemoryLimit(memoryLimit);
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    // --- Правки ---
+
+    /**
+     * {@link Model#removePolygon}, который можно отменить.
+     */
+    public void removePolygon(int id) {
+        removePolygons(new int[]{id});
+    }
+
+    /**
+     * {@link Model#removePolygons}, который можно отменить. Возвращает число удаленных полигонов.
+     */
+    public int removePolygons(int[] ids) {
+        checkStamp();
+        int slotCount = model.getPolygonSlots().size();
+        int[] sorted = Arrays.stream(ids).filter(id -> id >= 0 && id < slotCount && !model.isPolygonDeleted(id))
+                .sorted().distinct().toArray();
+        if (sorted.length == 0) return 0;
+        record(new RemovePolygons(model.polygonRanks(sorted)));
+        return sorted.length;
+    }
+
+    /**
+     * {@link Model#removeVertex}, который можно отменить.
+     */
+    public void removeVertex(int index) {
+        checkStamp();
+        if (index < 0 || index >= model.getVertices().size()) return;
+        record(new RemoveVertices(new int[]{index}, false));
+    }
+
+    /**
+     * {@link Model#removeVertices}, который можно отменить. Возвращает число удаленных вершин.
+     */
+    public int removeVertices(int[] indices) {
+        checkStamp();
+        int vertexCount = model.getVertices().size();
+        int[] sorted = Arrays.stream(indices).filter(i -> i >= 0 && i < vertexCount).sorted().distinct().toArray();
+        if (sorted.length == 0) return 0;
+        record(new RemoveVertices(sorted, true));
+        return sorted.length;
+    }
+
+    /**
+     * Запоминает, что матрица модели сменилась с before на текущую (например, после аффинного преобразования).
+     */
+    public void modelMatrixChanged(Matrix4x4 before) {
+        checkStamp();
+        Matrix4x4 after = model.getModelMatrix();
+        if (before == after) return;
+        record(new SetModelMatrix(before, after));
+    }
+
+    /**
+     * {@link ModelProcessor#updateNormals}, который можно отменить.
+     */
+    public void updateNormals() {
+        checkStamp();
+        BitSet dirty = model.dirtyNormals();
+        if (dirty != null && dirty.isEmpty()) return;
+        record(dirty != null ? new UpdateNormals() : new ComputeNormals());
+    }
+
+    /**
+     * {@link ModelProcessor#computeNormals}, который можно отменить.
+     */
+    public void computeNormals() {
+        checkStamp();
+        record(new ComputeNormals());
+    }
+
+    /**
+     * Выполняет action и объединяет сделанные в нем правки журнала в одну запись: она отменяется
+     * и повторяется целиком. Вложенные группы входят во внешнюю.
+     */
+    public void group(Runnable action) {
+        if (groupEntries != null) {
+            action.run();
+            return;
+        }
+        groupEntries = new ArrayList<>();
+        try {
+            action.run();
+        } finally {
+            List<Entry> entries = groupEntries;
+            groupEntries = null;
+            if (entries.size() == 1) {
+                push(entries.get(0));
+            } else if (!entries.isEmpty()) {
+                push(new Group(entries));
+            }
+        }
+    }
+
+    // --- Отмена и повтор ---
+
+    public boolean canUndo() {
+        checkStamp();
+        return !undoEntries.isEmpty();
+    }
+
+    public boolean canRedo() {
+        checkStamp();
+        return !redoEntries.isEmpty();
+    }
+
+    /**
+     * Отменяет последнюю правку. Возвращает false, если отменять нечего.
+     */
+    public boolean undo() {
+        checkStamp();
+        Entry entry = undoEntries.pollLast();
+        if (entry == null) return false;
+        memoryUsage -= entry.memoryUsage();
+        entry.revert();
+        // Для повтора данные не нужны: они снимаются заново при выполнении
+        entry.release();
+        redoEntries.addLast(entry);
+        stamp = new Stamp(model);
+        return true;
+    }
+
+    /**
+     * Повторяет последнюю отмененную правку. Возвращает false, если повторять нечего.
+     */
+    public boolean redo() {
+        checkStamp();
+        Entry entry = redoEntries.pollLast();
+        if (entry == null) return false;
+        entry.apply();
+        undoEntries.addLast(entry);
+        memoryUsage += entry.memoryUsage();
+        evict();
+        stamp = new Stamp(model);
+        return true;
+    }
+
+    /**
+     * Примерный объем данных, сохраненных для отмены, в байтах.
+     */
+    public long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Задает предел объема сохраненных данных; самые старые записи сверх него отбрасываются сразу.
+     */
+    public void setMemoryLimit(long memoryLimit) {
+        if (memoryLimit < 0) {
+            throw new IllegalArgumentException("Negative memory limit: " + memoryLimit);
+        }
+        this.memoryLimit = memoryLimit;
+        evict();
+    }
+
+    public void clear() {
+        undoEntries.clear();
+        redoEntries.clear();
+        memoryUsage = 0;
+        stamp = null;
+        if (groupEntries != null) {
+            groupEntries.clear();
+        }
+    }
+
+    private void record(Entry entry) {
+        entry.apply();
+        if (groupEntries != null) {
+            groupEntries.add(entry);
+            stamp = new Stamp(model);
+        } else {
+            push(entry);
+        }
+    }
+
+    private void push(Entry entry) {
+        redoEntries.clear();
+        undoEntries.addLast(entry);
+        memoryUsage += entry.memoryUsage();
+        evict();
+        stamp = new Stamp(model);
+    }
+
+    private void evict() {
+        while (memoryUsage > memoryLimit && !undoEntries.isEmpty()) {
+            memoryUsage -= undoEntries.pollFirst().memoryUsage();
+        }
+    }
+
+    // Модель изменили в обход журнала: записи к ней больше не подходят
+    private void checkStamp() {
+        if (stamp != null && !stamp.matches(model)) {
+            clear();
+        }
+    }
+
+    private static BitSet copyOf(BitSet bits) {
+        return bits == null ? null : (BitSet) bits.clone();
+    }
+
+    private static long sizeOf(BitSet bits) {
+        return bits == null ? 0 : bits.size() / 8;
+    }
+
+    // Полигоны ids, снятые в отдельный список, в том же порядке
+    private static PolygonList savePolygons(PolygonList polygons, int[] ids) {
+        PolygonList saved = new PolygonList();
+        for (int id : ids) {
+            saved.add(polygons.vertexIndicesOf(id), polygons.textureIndicesOf(id), polygons.normalIndicesOf(id));
+        }
+        return saved;
+    }
+
+    private static long sizeOf(PolygonList polygons) {
+        return (polygons.size() * 3L + polygons.cornerCount() * 3L) * Integer.BYTES;
+    }
+
+    /**
+     * Запись журнала: apply выполняет правку и снимает все, что нужно для ее отмены,
+     * revert возвращает модель в состояние до apply.
+     */
+    private abstract static class Entry {
+        abstract void apply();
+
+        abstract void revert();
+
+        // Сохраненные для отмены данные больше не нужны
+        void release() {
+        }
+
+        long memoryUsage() {
+            return ENTRY_OVERHEAD;
+        }
+    }
+
+    private final class RemovePolygons extends Entry {
+        // Позиции полигонов среди живых, по возрастанию
+        private final int[] ranks;
+        private PolygonList saved;
+        private BitSet dirtyNormals;
+        // Идентификаторы отмеченных удаленными полигонов и поколение, при котором отметки действительны
+        private int[] deletedIds;
+        private int generation;
+
+        RemovePolygons(int[] ranks) {
+            this.ranks = ranks;
+        }
+
+        @Override
+        void apply() {
+            int[] ids = model.polygonsAtRanks(ranks);
+            saved = savePolygons(model.getPolygonSlots(), ids);
+            dirtyNormals = copyOf(model.dirtyNormals());
+            generation = model.getPolygonIdGeneration();
+            model.removePolygons(ids);
+            deletedIds = generation == model.getPolygonIdGeneration() ? ids : null;
+        }
+
+        @Override
+        void revert() {
+            if (deletedIds != null && generation == model.getPolygonIdGeneration() && allDeleted(deletedIds)) {
+                for (int k = 0; k < deletedIds.length; k++) {
+                    model.restorePolygon(deletedIds[k], saved, k);
+                }
+            } else {
+                model.insertPolygons(ranks, saved);
+            }
+            model.restoreNormalTracking(dirtyNormals);
+        }
+
+        private boolean allDeleted(int[] ids) {
+            for (int id : ids) {
+                if (!model.isPolygonDeleted(id)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        void release() {
+            saved = null;
+            dirtyNormals = null;
+            deletedIds = null;
+        }
+
+        @Override
+        long memoryUsage() {
+            return ENTRY_OVERHEAD + (long) (ranks.length + (deletedIds == null ? 0 : deletedIds.length)) * Integer.BYTES
+                    + (saved == null ? 0 : sizeOf(saved)) + sizeOf(dirtyNormals);
+        }
+    }
+
+    private final class RemoveVertices extends Entry {
+        // Удаляемые вершины по возрастанию
+        private final int[] indices;
+        // removeVertices (сначала сжимает полигоны) или removeVertex (отмечает их удаленными)
+        private final boolean batch;
+        private float[] xyz;
+        private float[] normalXyz;
+        private BitSet dirtyNormals;
+        // Полигоны с удаляемыми вершинами: их идентификаторы до правки, позиции среди живых и индексы
+        private int[] faceIds;
+        private int[] faceRanks;
+        private PolygonList faces;
+        private int generation;
+
+        RemoveVertices(int[] indices, boolean batch) {
+            this.indices = indices;
+            this.batch = batch;
+        }
+
+        @Override
+        void apply() {
+            if (batch) {
+                model.compactPolygons();
+            }
+            VertexFaceIndex adjacency = model.getVertexFaces();
+            BitSet ids = new BitSet();
+            for (int index : indices) {
+                for (int k = 0, valence = adjacency.valence(index); k < valence; k++) {
+                    ids.set(adjacency.face(index, k));
+                }
+            }
+            faceIds = ids.stream().toArray();
+            faceRanks = new int[faceIds.length];
+            for (int k = 0; k < faceIds.length; k++) {
+                faceRanks[k] = model.polygonRank(faceIds[k]);
+            }
+            faces = savePolygons(model.getPolygonSlots(), faceIds);
+
+            dirtyNormals = copyOf(model.dirtyNormals());
+            xyz = save(model.getVerticesInternal());
+            // Нормали по вершинам удаляются вместе с вершинами, только если они отслеживаются
+            normalXyz = dirtyNormals != null ? save(model.getNormalsInternal()) : null;
+
+            generation = model.getPolygonIdGeneration();
+            if (batch) {
+                model.removeVertices(indices);
+            } else {
+                model.removeVertex(indices[0]);
+            }
+        }
+
+        private float[] save(Vector3fList list) {
+            float[] values = new float[indices.length * 3];
+            for (int k = 0; k < indices.length; k++) {
+                values[k * 3] = list.getX(indices[k]);
+                values[k * 3 + 1] = list.getY(indices[k]);
+                values[k * 3 + 2] = list.getZ(indices[k]);
+            }
+            return values;
+        }
+
+        @Override
+        void revert() {
+            // Полигоны, которые removeVertex только отметил удаленными, сохранились на своих местах
+            boolean deletedInPlace = !batch && generation == model.getPolygonIdGeneration();
+            model.insertVertices(indices, xyz, normalXyz);
+            if (deletedInPlace) {
+                for (int k = 0; k < faceIds.length; k++) {
+                    model.restorePolygon(faceIds[k], faces, k);
+                }
+            } else if (faceIds.length > 0) {
+                model.insertPolygons(faceRanks, faces);
+            }
+            model.restoreNormalTracking(dirtyNormals);
+        }
+
+        @Override
+        void release() {
+            xyz = null;
+            normalXyz = null;
+            dirtyNormals = null;
+            faceIds = null;
+            faceRanks = null;
+            faces = null;
+        }
+
+        @Override
+        long memoryUsage() {
+            long usage = ENTRY_OVERHEAD + indices.length * (long) Integer.BYTES + sizeOf(dirtyNormals);
+            if (faces != null) {
+                usage += (xyz.length + (normalXyz == null ? 0 : normalXyz.length)) * (long) Float.BYTES
+                        + faceIds.length * 2L * Integer.BYTES + sizeOf(faces);
+            }
+            return usage;
+        }
+    }
+
+    private final class SetModelMatrix extends Entry {
+        private final Matrix4x4 before;
+        private final Matrix4x4 after;
+
+        SetModelMatrix(Matrix4x4 before, Matrix4x4 after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        void apply() {
+            model.setModelMatrix(after);
+        }
+
+        @Override
+        void revert() {
+            model.setModelMatrix(before);
+        }
+
+        @Override
+        long memoryUsage() {
+            return ENTRY_OVERHEAD + 2 * 16L * Float.BYTES;
+        }
+    }
+
+    // Пересчет только устаревших нормалей: сохраняются их прежние значения
+    private final class UpdateNormals extends Entry {
+        private BitSet dirtyNormals;
+        private float[] previous;
+
+        @Override
+        void apply() {
+            BitSet dirty = model.dirtyNormals();
+            if (dirty == null) {
+                // Повтор идет из того же состояния, что и первое выполнение, а тогда нормали отслеживались
+                throw new IllegalStateException("Normals are not tracked");
+            }
+            dirtyNormals = copyOf(dirty);
+            Vector3fList normals = model.getNormalsInternal();
+            previous = new float[dirtyNormals.cardinality() * 3];
+            int k = 0;
+            for (int v = dirtyNormals.nextSetBit(0); v >= 0; v = dirtyNormals.nextSetBit(v + 1), k += 3) {
+                previous[k] = normals.getX(v);
+                previous[k + 1] = normals.getY(v);
+                previous[k + 2] = normals.getZ(v);
+            }
+            ModelProcessor.updateNormals(model);
+        }
+
+        @Override
+        void revert() {
+            Vector3fList normals = model.getNormalsInternal();
+            int k = 0;
+            for (int v = dirtyNormals.nextSetBit(0); v >= 0; v = dirtyNormals.nextSetBit(v + 1), k += 3) {
+                normals.set(v, previous[k], previous[k + 1], previous[k + 2]);
+            }
+            model.restoreNormalTracking(dirtyNormals);
+        }
+
+        @Override
+        void release() {
+            dirtyNormals = null;
+            previous = null;
+        }
+
+        @Override
+        long memoryUsage() {
+            return ENTRY_OVERHEAD + sizeOf(dirtyNormals) + (previous == null ? 0 : previous.length * (long) Float.BYTES);
+        }
+    }
+
+    // Полный пересчет: сохраняются прежний список нормалей (без копирования массива) и индексы нормалей.
+    // Индексы снимаются со сжатого списка: к моменту отмены удаленные полигоны могут быть уже вычищены
+    private final class ComputeNormals extends Entry {
+        private Vector3fList normals;
+        private int[] normalOffsets;
+        private int[] normalIndices;
+        private BitSet dirtyNormals;
+
+        @Override
+        void apply() {
+            PolygonList polygons = model.getPolygonsInternal();
+            normals = model.getNormalsInternal().copy();
+            normalOffsets = toArray(polygons.normalOffsetBuffer(), polygons.size() + 1);
+            normalIndices = toArray(polygons.normalIndexBuffer(), normalOffsets[polygons.size()]);
+            dirtyNormals = copyOf(model.dirtyNormals());
+            ModelProcessor.computeNormals(model);
+        }
+
+        private int[] toArray(IntBuffer buffer, int length) {
+            int[] values = new int[length];
+            buffer.get(0, values);
+            return values;
+        }
+
+        @Override
+        void revert() {
+            model.restoreNormals(normals.copy(), normalOffsets, normalIndices, dirtyNormals);
+        }
+
+        @Override
+        void release() {
+            normals = null;
+            normalOffsets = null;
+            normalIndices = null;
+            dirtyNormals = null;
+        }
+
+        @Override
+        long memoryUsage() {
+            if (normals == null) return ENTRY_OVERHEAD;
+            return ENTRY_OVERHEAD + normals.size() * 3L * Float.BYTES
+                    + (normalOffsets.length + (long) normalIndices.length) * Integer.BYTES + sizeOf(dirtyNormals);
+        }
+    }
+
+    private static final class Group extends Entry {
+        private final List<Entry> entries;
+
+        Group(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        void apply() {
+            for (Entry entry : entries) {
+                entry.apply();
+            }
+        }
+
+        @Override
+        void revert() {
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                entries.get(i).revert();
+            }
+        }
+
+        @Override
+        void release() {
+            entries.forEach(Entry::release);
+        }
+
+        @Override
+        long memoryUsage() {
+            long usage = ENTRY_OVERHEAD;
+            for (Entry entry : entries) {
+                usage += entry.memoryUsage();
+            }
+            return usage;
+        }
+    }
+
+    /**
+     * Списки модели и их версии после последней операции журнала. Сжатие удаленных полигонов живые
+     * полигоны не меняет, поэтому историю не сбрасывает.
+     */
+    private static final class Stamp {
+        private final Vector3fList vertices;
+        private final int vertexVersion;
+        private final Vector3fList normals;
+        private final int normalVersion;
+        private final PolygonList polygons;
+        private final int vertexIndexVersion;
+        private final int textureIndexVersion;
+        private final int normalIndexVersion;
+        private final int deletedPolygonCount;
+        private final int polygonIdGeneration;
+
+        Stamp(Model model) {
+            vertices = model.getVerticesInternal();
+            vertexVersion = vertices.version();
+            normals = model.getNormalsInternal();
+            normalVersion = normals.version();
+            polygons = model.getPolygonSlots();
+            vertexIndexVersion = polygons.vertexIndexVersion();
+            textureIndexVersion = polygons.textureIndexVersion();
+            normalIndexVersion = polygons.normalIndexVersion();
+            deletedPolygonCount = model.getDeletedPolygonCount();
+            polygonIdGeneration = model.getPolygonIdGeneration();
+        }
+
+        boolean matches(Model model) {
+            if (vertices != model.getVerticesInternal() || vertexVersion != vertices.version()
+                    || normals != model.getNormalsInternal() || normalVersion != normals.version()
+                    || polygons != model.getPolygonSlots()) {
+                return false;
+            }
+            if (polygonIdGeneration == model.getPolygonIdGeneration()) {
+                return vertexIndexVersion == polygons.vertexIndexVersion()
+                        && textureIndexVersion == polygons.textureIndexVersion()
+                        && normalIndexVersion == polygons.normalIndexVersion()
+                        && deletedPolygonCount == model.getDeletedPolygonCount();
+            }
+            return model.polygonsOnlyCompactedSince(polygonIdGeneration,
+                    vertexIndexVersion, textureIndexVersion, normalIndexVersion);
+        }
+    }
+}
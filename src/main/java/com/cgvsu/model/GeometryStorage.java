@@ -0,0 +1,173 @@
+package com.cgvsu.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Где лежат массивы координат и индексов модели (см. {@link Vector3fList}, {@link PolygonList}).
+ * <ul>
+ *     <li>{@link #HEAP} — обычные массивы в куче, по умолчанию;</li>
+ *     <li>{@link #DIRECT} — прямая память вне кучи. Ее объем ограничен -XX:MaxDirectMemorySize,
+ *     который по умолчанию равен -Xmx;</li>
+ *     <li>{@link #mapped(Path)} — временные файлы, отображенные в память. Объем ограничен диском,
+ *     а страницы, которые не помещаются в RAM, подгружает и вытесняет ОС.</li>
+ * </ul>
+ * Один массив вне кучи вмещает не больше 2 ГБ (буферы индексируются int): около 178 млн вершин
+ * или 536 млн индексов.
+ */
+public abstract class GeometryStorage {
+
+    private static final int MAX_ELEMENTS = Integer.MAX_VALUE / Float.BYTES;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    public static final GeometryStorage HEAP = new GeometryStorage() {
+        @Override
+        ByteBuffer allocate(int bytes) {
+            return ByteBuffer.allocate(bytes);
+        }
+
+        @Override
+        FloatBuffer allocateFloats(int count) {
+            return FloatBuffer.wrap(new float[count]);
+        }
+
+        @Override
+        IntBuffer allocateInts(int count) {
+            return IntBuffer.wrap(new int[count]);
+        }
+
+        @Override
+        public boolean isOffHeap() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "heap";
+        }
+    };
+
+    public static final GeometryStorage DIRECT = new GeometryStorage() {
+        @Override
+        ByteBuffer allocate(int bytes) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+
+        @Override
+        public String toString() {
+            return "direct";
+        }
+    };
+
+    GeometryStorage() {
+    }
+
+    /**
+     * Хранилище по имени, как его печатает toString: "heap", "direct", "mapped:каталог"
+     * или просто "mapped" для временного каталога системы. Удобно для выбора через системное свойство.
+     */
+    public static GeometryStorage forName(String name) {
+        if (name.startsWith("mapped:")) {
+            return mapped(Path.of(name.substring("mapped:".length())));
+        }
+        return switch (name) {
+            case "heap" -> HEAP;
+            case "direct" -> DIRECT;
+            case "mapped" -> mapped(Path.of(System.getProperty("java.io.tmpdir")));
+            default -> throw new IllegalArgumentException("Unknown geometry storage: " + name);
+        };
+    }
+
+    /**
+     * Хранилище в файлах во временной папке directory. Файл удаляется сразу после отображения
+     * (там, где ОС это позволяет, иначе при выходе), а память освобождается вместе с буфером.
+     */
+    public static GeometryStorage mapped(Path directory) {
+        Objects.requireNonNull(directory);
+        return new GeometryStorage() {
+            @Override
+            ByteBuffer allocate(int bytes) {
+                try {
+                    Path file = Files.createTempFile(directory, "geometry", ".bin");
+                    MappedByteBuffer buffer;
+                    try (FileChannel channel = FileChannel.open(file,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                    }
+                    try {
+                        Files.delete(file);
+                    } catch (IOException e) {
+                        file.toFile().deleteOnExit();
+                    }
+                    return buffer;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to map geometry storage in " + directory, e);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "mapped:" + directory;
+            }
+        };
+    }
+
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    abstract ByteBuffer allocate(int bytes);
+
+    FloatBuffer allocateFloats(int count) {
+        if (count == 0) {
+            return FloatBuffer.allocate(0);
+        }
+        return allocate(bytes(count, Float.BYTES)).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    IntBuffer allocateInts(int count) {
+        if (count == 0) {
+            return IntBuffer.allocate(0);
+        }
+        return allocate(bytes(count, Integer.BYTES)).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    private static int bytes(int count, int elementSize) {
+        if (count < 0 || count > MAX_ELEMENTS) {
+            throw new IllegalArgumentException("Geometry array of " + count + " elements does not fit in one buffer");
+        }
+        return count * elementSize;
+    }
+
+    /**
+     * Новая емкость при росте массива: в полтора раза больше, но не меньше нужной
+     * и не больше того, что вмещает один массив или буфер.
+     */
+    int grownCapacity(int current, int required, int minimum) {
+        int limit = isOffHeap() ? MAX_ELEMENTS : MAX_ARRAY_LENGTH;
+        long capacity = Math.max(required, Math.max(minimum, current + ((long) current >> 1)));
+        return (int) Math.min(capacity, Math.max(required, limit));
+    }
+
+    FloatBuffer copyOf(FloatBuffer source, int count, int capacity) {
+        FloatBuffer copy = allocateFloats(capacity);
+        copy.put(0, source, 0, count);
+        return copy;
+    }
+
+    IntBuffer copyOf(IntBuffer source, int count, int capacity) {
+        IntBuffer copy = allocateInts(capacity);
+        copy.put(0, source, 0, count);
+        return copy;
+    }
+}
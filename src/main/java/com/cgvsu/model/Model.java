@@ -4,24 +4,69 @@ import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
 import com.cgvsu.math.Matrix4x4;
 
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.*;
 
 public class Model {
 
-    protected ArrayList<Vector3f> vertices = new ArrayList<>();
-    protected ArrayList<Vector2f> textureVertices = new ArrayList<>();
-    protected ArrayList<Vector3f> normals = new ArrayList<>();
-    protected ArrayList<Polygon> polygons = new ArrayList<>();
+    // Доля удаленных, но еще не вычищенных полигонов, после которой список сжимается
+    private static final double MAX_DELETED_POLYGON_RATIO = 0.25;
+
+    // Координаты хранятся в массивах float (см. Vector3fList), а не объектами на каждую вершину
+    protected Vector3fList vertices = new Vector3fList();
+    protected Vector2fList textureVertices = new Vector2fList();
+    protected Vector3fList normals = new Vector3fList();
+    // Полигоны хранятся плоскими массивами индексов (см. PolygonList)
+    protected PolygonList polygons = new PolygonList();
     private Matrix4x4 modelMatrix = Matrix4x4.identity();
 
+    // Удаленные полигоны остаются в списке до сжатия и отмечаются здесь (см. removePolygon).
+    // Номер полигона в списке — его идентификатор; он меняется только при сжатии,
+    // и каждое сжатие увеличивает polygonIdGeneration
+    private BitSet deletedPolygons = new BitSet();
+    private int deletedPolygonCount;
+    private int polygonIdGeneration;
+    private int[] lastPolygonIdRemap;
+    // Версии индексов вершин, текстур и нормалей до и после последнего сжатия (см. polygonsOnlyCompactedSince)
+    private int[] lastCompactionVersions;
+
+    // Смежность «вершина → полигоны» строится по запросу и действительна, пока список полигонов
+    // и версия его индексов вершин совпадают с записанными здесь (см. getVertexFaces)
+    private VertexFaceIndex vertexFaces;
+    private PolygonList vertexFacesPolygons;
+    private int vertexFacesVersion;
+
+    // Вершины, нормали которых устарели после удалений (см. ModelProcessor.updateNormals). null — нормали
+    // не отслеживаются; иначе они действительны, пока списки и их версии совпадают с записанными здесь
+    private BitSet dirtyNormals;
+    private Vector3fList normalsVertices;
+    private Vector3fList normalsList;
+    private PolygonList normalsPolygons;
+    private int normalsVertexVersion;
+    private int normalsListVersion;
+    private int normalsVertexIndexVersion;
+    private int normalsNormalIndexVersion;
+
     public Model() {
     }
 
+    /**
+     * Пустая модель, координаты и индексы которой хранятся в storage — например, вне кучи
+     * для моделей больше -Xmx (см. {@link GeometryStorage}).
+     */
+    public Model(GeometryStorage storage) {
+        this.vertices = new Vector3fList(storage, 0);
+        this.textureVertices = new Vector2fList(storage, 0);
+        this.normals = new Vector3fList(storage, 0);
+        this.polygons = new PolygonList(storage);
+    }
+
     public Model(List<Vector3f> vert, List<Vector2f> textureVert, List<Vector3f> normals, List<Polygon> polygons) {
-        this.vertices = new ArrayList<>(vert);
-        this.textureVertices = new ArrayList<>(textureVert);
-        this.normals = new ArrayList<>(normals);
-        this.polygons = new ArrayList<>(polygons);
+        this.vertices.addAll(vert);
+        this.textureVertices.addAll(textureVert);
+        this.normals.addAll(normals);
+        this.polygons.addAll(polygons);
     }
     public Matrix4x4 getModelMatrix() {
         return modelMatrix;
@@ -31,35 +76,42 @@ public class Model {
     }
 
     /**
-     * Ультра-быстрое копирование модели.
-     * Использует резервирование памяти (ensureCapacity) и быстрые методы копирования Polygon.
+     * Копирование модели за O(1) (копирование при записи).
+     * Копия делит массивы координат и индексов с исходной моделью; каждый массив копируется целиком
+     * только при первом изменении той модели, которая его меняет. Изменение одной модели
+     * никогда не видно в другой.
      */
     public Model copy() {
         Model newModel = new Model();
 
-        // Резервируем память один раз, чтобы избежать лишних переаллокаций ArrayList
-        newModel.vertices = new ArrayList<>(this.vertices.size());
-        for (Vector3f v : this.vertices) {
-            newModel.vertices.add(new Vector3f(v.x, v.y, v.z));
-        }
+        // Списки делят массивы до первой записи
+        newModel.vertices = this.vertices.copy();
+        newModel.textureVertices = this.textureVertices.copy();
+        newModel.normals = this.normals.copy();
 
-        newModel.textureVertices = new ArrayList<>(this.textureVertices.size());
-        for (Vector2f vt : this.textureVertices) {
-            newModel.textureVertices.add(new Vector2f(vt.x, vt.y));
-        }
+        newModel.polygons = this.polygons.copy();
+        // Удаленные полигоны и идентификаторы копии те же, что у исходной модели
+        newModel.deletedPolygons = (BitSet) this.deletedPolygons.clone();
+        newModel.deletedPolygonCount = this.deletedPolygonCount;
+        newModel.polygonIdGeneration = this.polygonIdGeneration;
+        newModel.lastPolygonIdRemap = this.lastPolygonIdRemap;
 
-        newModel.normals = new ArrayList<>(this.normals.size());
-        for (Vector3f n : this.normals) {
-            newModel.normals.add(new Vector3f(n.x, n.y, n.z));
-        }
+        return newModel;
+    }
 
-        // Копируем полигоны, используя метод copy(), который мы добавили в Polygon
-        newModel.polygons = new ArrayList<>(this.polygons.size());
-        for (Polygon p : this.polygons) {
-            newModel.polygons.add(p.copy());
-        }
+    public GeometryStorage getStorage() {
+        return vertices.storage();
+    }
 
-        return newModel;
+    /**
+     * Переносит координаты и индексы в другое хранилище (например, из кучи в отображаемые файлы).
+     * Внутренние списки заменяются новыми, поэтому ссылки на старые перестают быть актуальными.
+     */
+    public void moveTo(GeometryStorage storage) {
+        vertices = vertices.copy(storage);
+        textureVertices = textureVertices.copy(storage);
+        normals = normals.copy(storage);
+        polygons = polygons.copy(storage);
     }
 
     // --- Геттеры (Оптимизированы для скорости) ---
@@ -69,14 +121,90 @@ public class Model {
     public List<Vector3f> getVertices() { return vertices; }
     public List<Vector2f> getTextureVertices() { return textureVertices; }
     public List<Vector3f> getNormals() { return normals; }
-    public List<Polygon> getPolygons() { return polygons; }
+    public List<Polygon> getPolygons() { return getPolygonsInternal(); }
+
+    public void setVertices(List<Vector3f> vertices) {
+        Vector3fList copy = new Vector3fList(getStorage(), vertices.size());
+        copy.addAll(vertices);
+        this.vertices = copy;
+    }
 
-    public void setVertices(List<Vector3f> vertices) { this.vertices = new ArrayList<>(vertices); }
+    public Vector3fList getVerticesInternal() { return vertices; }
+    public Vector2fList getTextureVerticesInternal() { return textureVertices; }
+    public Vector3fList getNormalsInternal() { return normals; }
 
-    public ArrayList<Vector3f> getVerticesInternal() { return vertices; }
-    public ArrayList<Vector2f> getTextureVerticesInternal() { return textureVertices; }
-    public ArrayList<Vector3f> getNormalsInternal() { return normals; }
-    public ArrayList<Polygon> getPolygonsInternal() { return polygons; }
+    /**
+     * Плотный список полигонов без удаленных: если после removePolygon список еще не сжат,
+     * он сжимается здесь (идентификаторы полигонов при этом меняются, см. {@link #mapPolygonId}).
+     */
+    public PolygonList getPolygonsInternal() {
+        compactPolygons();
+        return polygons;
+    }
+
+    /**
+     * Список полигонов вместе с удаленными, но еще не вычищенными — без сжатия. Номер полигона в нем
+     * служит идентификатором для выделения; пропускать нужно те, для которых {@link #isPolygonDeleted} вернул true.
+     * Так читают полигоны отрисовка и выбор мышью, чтобы удаление не вызывало сжатия на каждом кадре.
+     */
+    public PolygonList getPolygonSlots() { return polygons; }
+
+    public boolean isPolygonDeleted(int id) {
+        return deletedPolygonCount != 0 && deletedPolygons.get(id);
+    }
+
+    public int getDeletedPolygonCount() { return deletedPolygonCount; }
+
+    /**
+     * Номер сжатия, к которому относятся текущие идентификаторы полигонов.
+     */
+    public int getPolygonIdGeneration() { return polygonIdGeneration; }
+
+    /**
+     * Переводит идентификатор полигона, полученный при поколении generation, в текущий.
+     * Возвращает -1, если полигон удален или идентификатор устарел больше чем на одно сжатие.
+     */
+    public int mapPolygonId(int id, int generation) {
+        if (generation == polygonIdGeneration - 1 && lastPolygonIdRemap != null
+                && id >= 0 && id < lastPolygonIdRemap.length) {
+            id = lastPolygonIdRemap[id];
+        } else if (generation != polygonIdGeneration) {
+            return -1;
+        }
+        return id >= 0 && id < polygons.size() && !isPolygonDeleted(id) ? id : -1;
+    }
+
+    /**
+     * Вычищает удаленные полигоны за один проход. Вызывается сама при доле удаленных больше четверти,
+     * при запросе плотного списка (сохранение, экспорт, обработка) и перед удалением вершин.
+     */
+    public void compactPolygons() {
+        if (deletedPolygonCount == 0) return;
+        int[] remap = new int[polygons.size()];
+        int next = 0;
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = deletedPolygons.get(i) ? -1 : next++;
+        }
+        boolean keepVertexFaces = hasVertexFaces();
+        boolean keepNormals = tracksNormals();
+        int[] versions = {polygons.vertexIndexVersion(), polygons.textureIndexVersion(), polygons.normalIndexVersion(), 0, 0, 0};
+        polygons.removePolygons(deletedPolygons::get);
+        versions[3] = polygons.vertexIndexVersion();
+        versions[4] = polygons.textureIndexVersion();
+        versions[5] = polygons.normalIndexVersion();
+        lastCompactionVersions = versions;
+        if (keepVertexFaces) {
+            vertexFaces.remapFaces(remap);
+            markVertexFacesCurrent();
+        }
+        if (keepNormals) {
+            markNormalsCurrent();
+        }
+        deletedPolygons = new BitSet();
+        deletedPolygonCount = 0;
+        lastPolygonIdRemap = remap;
+        polygonIdGeneration++;
+    }
 
     // --- Методы добавления ---
 
@@ -84,26 +212,407 @@ public class Model {
     public void addTextureVertex(Vector2f v) { this.textureVertices.add(v); }
     public void addNormal(Vector3f v) { this.normals.add(v); }
     public void addPolygon(Polygon p) { this.polygons.add(p); }
-    public void removePolygon(int index) {
-        if (index >= 0 && index < polygons.size()) {
-            polygons.remove(index);
+
+    /**
+     * Удаляет полигон с идентификатором id за O(1): полигон только отмечается удаленным,
+     * а физически список сжимается позже (см. {@link #compactPolygons()}).
+     * Идентификаторы остальных полигонов до сжатия не меняются.
+     */
+    public void removePolygon(int id) {
+        if (id < 0 || id >= polygons.size() || deletedPolygons.get(id)) return;
+        markPolygonDeleted(id);
+        compactPolygonsIfSparse();
+    }
+
+    /**
+     * Удаляет сразу несколько полигонов по идентификаторам (вне диапазона и уже удаленные пропускаются).
+     * В отличие от removePolygon в цикле, сжатие выполняется не больше одного раза после всех отметок,
+     * поэтому все идентификаторы из ids относятся к одному поколению. Возвращает число удаленных полигонов.
+     */
+    public int removePolygons(int[] ids) {
+        int removed = 0;
+        for (int id : ids) {
+            if (id < 0 || id >= polygons.size() || deletedPolygons.get(id)) continue;
+            markPolygonDeleted(id);
+            removed++;
+        }
+        compactPolygonsIfSparse();
+        return removed;
+    }
+
+    private void markPolygonDeleted(int id) {
+        if (hasVertexFaces()) {
+            vertexFaces.removeFace(id, polygons);
+        }
+        if (tracksNormals()) {
+            markNormalsDirty(id);
+        }
+        deletedPolygons.set(id);
+        deletedPolygonCount++;
+    }
+
+    private void compactPolygonsIfSparse() {
+        if (deletedPolygonCount > polygons.size() * MAX_DELETED_POLYGON_RATIO) {
+            compactPolygons();
         }
     }
 
     public void removeVertex(int index) {
         if (index < 0 || index >= vertices.size()) return;
+        VertexFaceIndex faces = getVertexFaces();
+        boolean keepNormals = tracksNormals();
+
+        // 1. Отмечаем удаленными полигоны, которые использовали эту вершину: они берутся из смежности,
+        // без проверки всех полигонов
+        for (int face : faces.facesOf(index)) {
+            markPolygonDeleted(face);
+        }
 
-        // 1. Удаляем саму координату
+        // 2. Удаляем саму координату
         vertices.remove(index);
 
-        // 2. Удаляем полигоны, которые использовали эту вершину
-        // Теперь используем специальный метод containsVertexIndex (см. Polygon ниже)
-        polygons.removeIf(p -> p.containsVertexIndex(index));
+        // 3. Сдвигаем индексы во всех полигонах; смежность обновляется так же
+        polygons.decrementVertexIndicesGreaterThan(index);
+        faces.removeVertex(index);
+        markVertexFacesCurrent();
+
+        // 4. Нормали по вершинам сдвигаются так же, чтобы для их обновления хватило соседей удаленных полигонов
+        if (keepNormals) {
+            normals.remove(index);
+            polygons.remapNormalIndices(n -> n > index ? n - 1 : n, this::hasVertexNormals);
+            BitSet dirty = dirtyNormals.get(0, index);
+            for (int i = dirtyNormals.nextSetBit(index + 1); i >= 0; i = dirtyNormals.nextSetBit(i + 1)) {
+                dirty.set(i - 1);
+            }
+            dirtyNormals = dirty;
+            markNormalsCurrent();
+        }
+        compactPolygonsIfSparse();
+    }
+
+    /**
+     * Смежность «вершина → полигоны» по идентификаторам полигонов (удаленные не входят).
+     * Строится параллельно при первом запросе; removePolygon, removeVertex и сжатие обновляют ее на месте,
+     * а после других изменений индексов вершин она строится заново при следующем запросе.
+     * Ссылка действительна до следующего изменения модели.
+     */
+    public VertexFaceIndex getVertexFaces() {
+        if (!hasVertexFaces()) {
+            vertexFaces = VertexFaceIndex.build(polygons, vertices.size(), this::isPolygonDeleted);
+            markVertexFacesCurrent();
+        }
+        return vertexFaces;
+    }
+
+    private boolean hasVertexFaces() {
+        return vertexFaces != null && vertexFacesPolygons == polygons
+                && vertexFacesVersion == polygons.vertexIndexVersion()
+                && vertexFaces.vertexCount() == vertices.size();
+    }
+
+    private void markVertexFacesCurrent() {
+        vertexFacesPolygons = polygons;
+        vertexFacesVersion = polygons.vertexIndexVersion();
+    }
+
+    /**
+     * Удаляет сразу несколько вершин (индексы вне диапазона и повторы пропускаются) вместе с полигонами,
+     * которые их используют. Результат тот же, что у removeVertex по убыванию индексов, но за один проход:
+     * удаляемые вершины отмечаются в битовом множестве, по нему префиксной суммой строится таблица
+     * новых номеров, затем координаты сжимаются, а полигоны отбрасываются или перенумеровываются
+     * параллельно. Возвращает число удаленных вершин.
+     */
+    public int removeVertices(int[] indices) {
+        int vertexCount = vertices.size();
+        BitSet doomed = new BitSet(vertexCount);
+        for (int index : indices) {
+            if (index >= 0 && index < vertexCount) {
+                doomed.set(index);
+            }
+        }
+        int removed = doomed.cardinality();
+        if (removed == 0) return 0;
+        compactPolygons();
+        boolean keepNormals = tracksNormals();
+        if (keepNormals) {
+            VertexFaceIndex faces = getVertexFaces();
+            for (int v = doomed.nextSetBit(0); v >= 0; v = doomed.nextSetBit(v + 1)) {
+                for (int face : faces.facesOf(v)) {
+                    markNormalsDirty(face);
+                }
+            }
+        }
+
+        int[] remap = new int[vertexCount];
+        int kept = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            remap[i] = doomed.get(i) ? -1 : kept++;
+        }
+
+        compactKept(vertices, doomed, kept);
+        polygons.removeVertices(remap);
+
+        if (keepNormals) {
+            compactKept(normals, doomed, kept);
+            polygons.remapNormalIndices(n -> remap[n], this::hasVertexNormals);
+            BitSet dirty = new BitSet(kept);
+            for (int i = dirtyNormals.nextSetBit(0); i >= 0; i = dirtyNormals.nextSetBit(i + 1)) {
+                if (remap[i] >= 0) dirty.set(remap[i]);
+            }
+            dirtyNormals = dirty;
+            markNormalsCurrent();
+        }
+        return removed;
+    }
+
+    // Сохранившиеся векторы сдвигаются к началу целыми отрезками между удаленными
+    private static void compactKept(Vector3fList list, BitSet doomed, int kept) {
+        int count = list.size();
+        FloatBuffer data = list.writableBuffer();
+        int write = 0;
+        for (int start = doomed.nextClearBit(0); start < count; ) {
+            int end = doomed.nextSetBit(start);
+            if (end < 0) end = count;
+            if (write != start) {
+                data.put(write * 3, data, start * 3, (end - start) * 3);
+            }
+            write += end - start;
+            start = doomed.nextClearBit(end);
+        }
+        list.truncate(kept);
+    }
+
+    // --- Отмена правок (см. EditJournal) ---
+
+    /**
+     * Позиция полигона id в плотном списке: сколько живых полигонов идет перед ним.
+     */
+    int polygonRank(int id) {
+        return deletedPolygonCount == 0 ? id : id - deletedPolygons.get(0, id).cardinality();
+    }
+
+    /**
+     * Позиции в плотном списке живых полигонов ids (по возрастанию) за один проход по удаленным.
+     */
+    int[] polygonRanks(int[] ids) {
+        int[] ranks = new int[ids.length];
+        int skipped = 0;
+        int deleted = deletedPolygons.nextSetBit(0);
+        for (int k = 0; k < ids.length; k++) {
+            while (deleted >= 0 && deleted < ids[k]) {
+                skipped++;
+                deleted = deletedPolygons.nextSetBit(deleted + 1);
+            }
+            ranks[k] = ids[k] - skipped;
+        }
+        return ranks;
+    }
+
+    /**
+     * Идентификаторы живых полигонов с позициями ranks (по возрастанию) за один проход по удаленным.
+     */
+    int[] polygonsAtRanks(int[] ranks) {
+        int[] ids = new int[ranks.length];
+        int skipped = 0;
+        int deleted = deletedPolygons.nextSetBit(0);
+        for (int k = 0; k < ranks.length; k++) {
+            while (deleted >= 0 && deleted <= ranks[k] + skipped) {
+                skipped++;
+                deleted = deletedPolygons.nextSetBit(deleted + 1);
+            }
+            ids[k] = ranks[k] + skipped;
+        }
+        return ids;
+    }
+
+    /**
+     * Идентификатор живого полигона с позицией rank в плотном списке.
+     */
+    int polygonAtRank(int rank) {
+        int id = rank;
+        for (int deleted = deletedPolygons.nextSetBit(0); deleted >= 0 && deleted <= id;
+             deleted = deletedPolygons.nextSetBit(deleted + 1)) {
+            id++;
+        }
+        return id;
+    }
+
+    /**
+     * true, если с поколения generation, когда индексы полигонов имели указанные версии, список менялся
+     * только одним сжатием: живые полигоны и их порядок те же, поменялись лишь идентификаторы.
+     */
+    boolean polygonsOnlyCompactedSince(int generation, int vertexVersion, int textureVersion, int normalVersion) {
+        return generation == polygonIdGeneration - 1 && deletedPolygonCount == 0 && lastCompactionVersions != null
+                && Arrays.equals(lastCompactionVersions, new int[]{vertexVersion, textureVersion, normalVersion,
+                polygons.vertexIndexVersion(), polygons.textureIndexVersion(), polygons.normalIndexVersion()});
+    }
+
+    /**
+     * Снимает отметку удаления с полигона id и возвращает ему индексы полигона k из saved
+     * (в списке после удаления вершин они могли сдвинуться).
+     */
+    void restorePolygon(int id, PolygonList saved, int k) {
+        boolean keepVertexFaces = hasVertexFaces();
+        boolean keepNormals = tracksNormals();
+        polygons.setVertexIndices(id, saved.vertexIndicesOf(k));
+        polygons.setTextureVertexIndices(id, saved.textureIndicesOf(k));
+        polygons.setNormalIndices(id, saved.normalIndicesOf(k));
+        deletedPolygons.clear(id);
+        deletedPolygonCount--;
+        if (keepVertexFaces && vertexFaces.addFace(id, polygons)) {
+            markVertexFacesCurrent();
+        }
+        if (keepNormals) {
+            markNormalsDirty(id);
+            markNormalsCurrent();
+        }
+    }
+
+    /**
+     * Вставляет полигоны saved на позиции positions плотного списка (по возрастанию). Удаленные полигоны
+     * сначала вычищаются; идентификаторы полигонов после вставки меняются, как при сжатии.
+     */
+    void insertPolygons(int[] positions, PolygonList saved) {
+        compactPolygons();
+        boolean keepNormals = tracksNormals();
+        int oldSize = polygons.size();
+        polygons.insertAll(positions, saved);
 
-        // 3. Сдвигаем индексы во всех оставшихся полигонах
-        for (Polygon p : polygons) {
-            p.decrementVertexIndicesGreaterThan(index);
+        int[] remap = new int[oldSize];
+        for (int i = 0, inserted = 0; i < oldSize; i++) {
+            while (inserted < positions.length && positions[inserted] <= i + inserted) {
+                inserted++;
+            }
+            remap[i] = i + inserted;
         }
+        lastPolygonIdRemap = remap;
+        lastCompactionVersions = null;
+        polygonIdGeneration++;
+        if (keepNormals) {
+            for (int position : positions) {
+                markNormalsDirty(position);
+            }
+            markNormalsCurrent();
+        }
+    }
+
+    /**
+     * Вставляет вершины на позиции indices итогового списка (по возрастанию) с координатами xyz и,
+     * если normalXyz не null, нормалями; индексы вершин и нормалей в полигонах сдвигаются обратно.
+     */
+    void insertVertices(int[] indices, float[] xyz, float[] normalXyz) {
+        boolean keepNormals = tracksNormals();
+        int oldCount = vertices.size();
+        // Удаленные, но не вычищенные полигоны могут ссылаться на вершину oldCount (см. removeVertex)
+        int[] remap = new int[oldCount + 1];
+        for (int i = 0, inserted = 0; i <= oldCount; i++) {
+            while (inserted < indices.length && indices[inserted] <= i + inserted) {
+                inserted++;
+            }
+            remap[i] = i + inserted;
+        }
+
+        expandAt(vertices, indices, xyz);
+        polygons.remapVertexIndices(remap);
+        if (normalXyz != null) {
+            expandAt(normals, indices, normalXyz);
+            polygons.remapNormalIndices(n -> remap[n], this::hasVertexNormals);
+        }
+        if (keepNormals) {
+            BitSet dirty = new BitSet(vertices.size());
+            for (int i = dirtyNormals.nextSetBit(0); i >= 0; i = dirtyNormals.nextSetBit(i + 1)) {
+                dirty.set(remap[i]);
+            }
+            dirtyNormals = dirty;
+            markNormalsCurrent();
+        }
+    }
+
+    // Обратное compactKept: векторы раздвигаются с конца целыми отрезками, и в промежутки пишутся вставленные
+    private static void expandAt(Vector3fList list, int[] indices, float[] xyz) {
+        int oldCount = list.size();
+        // Размер сразу нужный, содержимое хвоста перезаписывается ниже
+        list.addAll(xyz, 0, indices.length);
+        FloatBuffer data = list.writableBuffer();
+        int end = oldCount;
+        for (int j = indices.length - 1; j >= 0; j--) {
+            int start = indices[j] - j;
+            if (end > start) {
+                data.put((indices[j] + 1) * 3, data, start * 3, (end - start) * 3);
+            }
+            data.put(indices[j] * 3, xyz, j * 3, 3);
+            end = start;
+        }
+    }
+
+    /**
+     * Возвращает нормали и индексы нормалей, сохраненные до полного пересчета, и прежнее отслеживание.
+     */
+    void restoreNormals(Vector3fList savedNormals, int[] normalOffsets, int[] normalIndices, BitSet dirty) {
+        normals = savedNormals;
+        polygons.restoreNormalIndices(normalOffsets, normalIndices);
+        restoreNormalTracking(dirty);
+    }
+
+    /**
+     * Задает устаревшие нормали после отмены пересчета; null — нормали не отслеживаются.
+     */
+    void restoreNormalTracking(BitSet dirty) {
+        dirtyNormals = dirty;
+        if (dirty != null) {
+            markNormalsCurrent();
+        }
+    }
+
+    // --- Отслеживание нормалей для ModelProcessor.updateNormals ---
+
+    /**
+     * Вершины, нормали которых устарели с последнего пересчета, или null, если нормали не отслеживаются
+     * (не считались или модель с тех пор менялась не через removePolygon/removeVertex/removeVertices).
+     */
+    BitSet dirtyNormals() {
+        return tracksNormals() ? dirtyNormals : null;
+    }
+
+    /**
+     * Нормали по вершинам только что пересчитаны: с этого момента отслеживается, какие из них устаревают.
+     */
+    void normalsComputed() {
+        dirtyNormals = new BitSet();
+        markNormalsCurrent();
+    }
+
+    // Нормали по вершинам есть у полигонов хотя бы с тремя вершинами (см. ModelProcessor.computeNormals)
+    private boolean hasVertexNormals(int polygon) {
+        return polygons.getVertexCount(polygon) >= 3;
+    }
+
+    // Нормали вершин удаляемого полигона устаревают
+    private void markNormalsDirty(int polygon) {
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer indices = polygons.vertexIndexBuffer();
+        for (int k = offsets.get(polygon), end = offsets.get(polygon + 1); k < end; k++) {
+            dirtyNormals.set(indices.get(k));
+        }
+    }
+
+    private boolean tracksNormals() {
+        return dirtyNormals != null
+                && normalsVertices == vertices && normalsVertexVersion == vertices.version()
+                && normalsList == normals && normalsListVersion == normals.version()
+                && normalsPolygons == polygons
+                && normalsVertexIndexVersion == polygons.vertexIndexVersion()
+                && normalsNormalIndexVersion == polygons.normalIndexVersion();
+    }
+
+    private void markNormalsCurrent() {
+        normalsVertices = vertices;
+        normalsVertexVersion = vertices.version();
+        normalsList = normals;
+        normalsListVersion = normals.version();
+        normalsPolygons = polygons;
+        normalsVertexIndexVersion = polygons.vertexIndexVersion();
+        normalsNormalIndexVersion = polygons.normalIndexVersion();
     }
 
 }
\ No newline at end of file
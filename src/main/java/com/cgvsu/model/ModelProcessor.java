@@ -1,15 +1,18 @@
 package com.cgvsu.model;
 
-import com.cgvsu.math.Vector3f;
-import java.util.ArrayList;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.BitSet;
 
 public class ModelProcessor {
 
     // Добавляем этот метод, который потерял компилятор
     public static boolean isTriangulated(Model model) {
         if (model == null) return false;
-        for (Polygon polygon : model.getPolygons()) {
-            if (polygon.getVertexIndices().length != 3) {
+        PolygonList polygons = model.getPolygonsInternal();
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        for (int i = 0; i < polygons.size(); i++) {
+            if (offsets.get(i + 1) - offsets.get(i) != 3) {
                 return false;
             }
         }
@@ -19,36 +22,55 @@ public class ModelProcessor {
     public static void triangulate(Model model) {
         if (model == null || isTriangulated(model)) return;
 
-        ArrayList<Polygon> oldPolygons = new ArrayList<>(model.getPolygons());
-        ArrayList<Polygon> newPolygons = new ArrayList<>();
-
-        for (Polygon poly : oldPolygons) {
-            int[] vIdx = poly.getVertexIndices();
-            int n = vIdx.length;
+        PolygonList polygons = model.getPolygonsInternal();
+        IntBuffer vOff = polygons.vertexOffsetBuffer();
+        IntBuffer vIdx = polygons.vertexIndexBuffer();
+        IntBuffer tOff = polygons.textureOffsetBuffer();
+        IntBuffer tIdx = polygons.textureIndexBuffer();
+        IntBuffer nOff = polygons.normalOffsetBuffer();
+        IntBuffer nIdx = polygons.normalIndexBuffer();
+
+        int triangleCount = 0;
+        for (int p = 0; p < polygons.size(); p++) {
+            triangleCount += Math.max(0, vOff.get(p + 1) - vOff.get(p) - 2);
+        }
+        PolygonList triangles = new PolygonList(polygons.storage());
+        triangles.ensureCapacity(triangleCount);
+        int[] triangleV = new int[3];
+        int[] triangleT = new int[3];
+        int[] triangleN = new int[3];
+
+        for (int p = 0; p < polygons.size(); p++) {
+            int v0 = vOff.get(p);
+            int n = vOff.get(p + 1) - v0;
             if (n < 3) continue;
 
-            int[] tIdx = poly.getTextureVertexIndices();
-            int[] nIdx = poly.getNormalIndices();
+            // Текстуры и нормали переносятся, только если они есть у каждой вершины
+            int t0 = tOff.get(p);
+            boolean withTextures = tOff.get(p + 1) - t0 == n;
+            int n0 = nOff.get(p);
+            boolean withNormals = nOff.get(p + 1) - n0 == n;
 
             // Веерная триангуляция (Triangle Fan)
             for (int i = 1; i < n - 1; i++) {
-                Polygon triangle = new Polygon(3);
-
-                triangle.setVertexIndices(new int[]{vIdx[0], vIdx[i], vIdx[i + 1]});
-
-                // Перенос текстурных индексов
-                if (tIdx != null && tIdx.length == n) {
-                    triangle.setTextureVertexIndices(new int[]{tIdx[0], tIdx[i], tIdx[i + 1]});
+                triangleV[0] = vIdx.get(v0);
+                triangleV[1] = vIdx.get(v0 + i);
+                triangleV[2] = vIdx.get(v0 + i + 1);
+                if (withTextures) {
+                    triangleT[0] = tIdx.get(t0);
+                    triangleT[1] = tIdx.get(t0 + i);
+                    triangleT[2] = tIdx.get(t0 + i + 1);
                 }
-                // Перенос индексов нормалей
-                if (nIdx != null && nIdx.length == n) {
-                    triangle.setNormalIndices(new int[]{nIdx[0], nIdx[i], nIdx[i + 1]});
+                if (withNormals) {
+                    triangleN[0] = nIdx.get(n0);
+                    triangleN[1] = nIdx.get(n0 + i);
+                    triangleN[2] = nIdx.get(n0 + i + 1);
                 }
-                newPolygons.add(triangle);
+                triangles.add(triangleV, 3, triangleT, withTextures ? 3 : 0, triangleN, withNormals ? 3 : 0);
             }
         }
-        model.getPolygons().clear();
-        model.getPolygons().addAll(newPolygons);
+        polygons.clear();
+        polygons.addAll(triangles);
     }
 
     // Вспомогательный метод для GuiController
@@ -59,40 +81,141 @@ public class ModelProcessor {
 
     public static void computeNormals(Model model) {
         if (model == null) return;
-        ArrayList<Vector3f> vertices = (ArrayList<Vector3f>) model.getVertices();
-        ArrayList<Vector3f> normals = (ArrayList<Vector3f>) model.getNormals();
-
-        normals.clear();
-        for (int i = 0; i < vertices.size(); i++) {
-            normals.add(new Vector3f(0, 0, 0));
+        Vector3fList vertices = model.getVerticesInternal();
+        int vertexCount = vertices.size();
+        FloatBuffer positions = vertices.buffer();
+        // Суммы нормалей граней копятся в массиве координат в том же хранилище, что и модель,
+        // без объекта на вершину
+        FloatBuffer sums = new Vector3fList(vertices.storage(), vertexCount).writableBuffer();
+
+        // Удаленные, но еще не вычищенные полигоны пропускаются: пересчет нормалей после удаления
+        // не должен вызывать сжатие списка
+        PolygonList polygons = model.getPolygonSlots();
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer vIdx = polygons.vertexIndexBuffer();
+        float[] n = new float[3];
+        for (int p = 0; p < polygons.size(); p++) {
+            int from = offsets.get(p);
+            int to = offsets.get(p + 1);
+            if (to - from < 3 || model.isPolygonDeleted(p)) continue;
+
+            faceNormal(positions, vIdx, from, vertexCount, n);
+            for (int k = from; k < to; k++) {
+                int i = checkVertex(vIdx.get(k), vertexCount) * 3;
+                sums.put(i, sums.get(i) + n[0]);
+                sums.put(i + 1, sums.get(i + 1) + n[1]);
+                sums.put(i + 2, sums.get(i + 2) + n[2]);
+            }
         }
+        // Индексы нормалей совпадают с индексами вершин (кроме вырожденных полигонов)
+        polygons.copyVertexIndicesToNormals(p -> offsets.get(p + 1) - offsets.get(p) >= 3);
 
-        for (Polygon poly : model.getPolygons()) {
-            int[] vIdx = poly.getVertexIndices();
-            if (vIdx.length < 3) continue;
+        for (int i = 0; i < vertexCount * 3; i += 3) {
+            putNormalized(sums, i, sums.get(i), sums.get(i + 1), sums.get(i + 2));
+        }
 
-            Vector3f v1 = vertices.get(vIdx[0]);
-            Vector3f v2 = vertices.get(vIdx[1]);
-            Vector3f v3 = vertices.get(vIdx[2]);
+        Vector3fList normals = model.getNormalsInternal();
+        normals.clear();
+        normals.addAll(sums, 0, vertexCount);
+        model.normalsComputed();
+    }
 
-            Vector3f e1 = v2.subtract(v1);
-            Vector3f e2 = v3.subtract(v1);
+    /**
+     * То же, что computeNormals, но после удалений через Model.removePolygon, removeVertex и removeVertices
+     * пересчитывает только нормали вершин удаленных полигонов: соседние грани берутся из
+     * {@link Model#getVertexFaces()}, и для каждой вершины заново суммируются только их нормали.
+     * Грани суммируются в том же порядке, что и при полном пересчете, поэтому результат совпадает
+     * с ним до бита. Если нормали еще не считались или модель с тех пор менялась иначе, выполняется
+     * полный пересчет.
+     */
+    public static void updateNormals(Model model) {
+        if (model == null) return;
+        BitSet dirty = model.dirtyNormals();
+        if (dirty == null) {
+            computeNormals(model);
+            return;
+        }
+        if (dirty.isEmpty()) return;
+
+        VertexFaceIndex faces = model.getVertexFaces();
+        Vector3fList vertices = model.getVerticesInternal();
+        int vertexCount = vertices.size();
+        FloatBuffer positions = vertices.buffer();
+        FloatBuffer normals = model.getNormalsInternal().writableBuffer();
+        PolygonList polygons = model.getPolygonSlots();
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer vIdx = polygons.vertexIndexBuffer();
+
+        dirty.stream().parallel().forEach(v -> {
+            float[] n = new float[3];
+            float x = 0, y = 0, z = 0;
+            for (int f = 0, valence = faces.valence(v); f < valence; f++) {
+                int p = faces.face(v, f);
+                int from = offsets.get(p);
+                int to = offsets.get(p + 1);
+                if (to - from < 3) continue;
+
+                faceNormal(positions, vIdx, from, vertexCount, n);
+                // Вершина, повторенная в полигоне, получает нормаль грани столько же раз, сколько при полном пересчете
+                for (int k = from; k < to; k++) {
+                    if (vIdx.get(k) == v) {
+                        x += n[0];
+                        y += n[1];
+                        z += n[2];
+                    }
+                }
+            }
+            putNormalized(normals, v * 3, x, y, z);
+        });
+        model.normalsComputed();
+    }
 
-            Vector3f normal = e1.cross(e2);
+    // Ненормированная нормаль грани по первым трем вершинам, начиная с позиции from в индексах
+    private static void faceNormal(FloatBuffer positions, IntBuffer vIdx, int from, int vertexCount, float[] normal) {
+        int a = checkVertex(vIdx.get(from), vertexCount) * 3;
+        int b = checkVertex(vIdx.get(from + 1), vertexCount) * 3;
+        int c = checkVertex(vIdx.get(from + 2), vertexCount) * 3;
+
+        float e1x = positions.get(b) - positions.get(a);
+        float e1y = positions.get(b + 1) - positions.get(a + 1);
+        float e1z = positions.get(b + 2) - positions.get(a + 2);
+        float e2x = positions.get(c) - positions.get(a);
+        float e2y = positions.get(c + 1) - positions.get(a + 1);
+        float e2z = positions.get(c + 2) - positions.get(a + 2);
+
+        normal[0] = e1y * e2z - e1z * e2y;
+        normal[1] = e1z * e2x - e1x * e2z;
+        normal[2] = e1x * e2y - e1y * e2x;
+    }
 
-            for (int idx : vIdx) {
-                Vector3f n = normals.get(idx);
-                n.add(normal);
-            }
-            poly.setNormalIndices(vIdx.clone());
+    // Нормализация как в Vector3f.normalized: длина во float, нулевой вектор остается нулевым
+    private static void putNormalized(FloatBuffer target, int i, float x, float y, float z) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0) {
+            target.put(i, 0);
+            target.put(i + 1, 0);
+            target.put(i + 2, 0);
+        } else {
+            target.put(i, x / length);
+            target.put(i + 1, y / length);
+            target.put(i + 2, z / length);
         }
+    }
 
-        for (Vector3f n : normals) {
-            Vector3f normalized = n.normalized();
-            n.x = normalized.x;
-            n.y = normalized.y;
-            n.z = normalized.z;
+    private static int checkVertex(int index, int vertexCount) {
+        if (index < 0 || index >= vertexCount) {
+            throw new IndexOutOfBoundsException("Vertex index " + index + " out of bounds for length " + vertexCount);
         }
+        return index;
+    }
+
+    /**
+     * Сваривает вершины, совпадающие с точностью до epsilon по каждой координате,
+     * и перенумеровывает индексы вершин полигонов. Возвращает число удаленных вершин.
+     */
+    public static int weldVertices(Model model, float epsilon) {
+        if (model == null) return 0;
+        return new VertexWelder(epsilon).weld(model);
     }
 
     public static String getPolygonStatistics(Model model) {
@@ -1,7 +1,12 @@
 package com.cgvsu.model;
 
-import java.util.Arrays;
-
+/**
+ * Полигон: индексы вершин, текстурных координат и нормалей.
+ * <p>
+ * Созданный конструктором полигон хранит свои массивы. Полигоны, полученные из модели
+ * ({@link PolygonList#get}), — легкие представления: индексы лежат в общих массивах списка,
+ * геттеры возвращают их копии, а сеттеры записывают изменения обратно в список.
+ */
 public class Polygon {
 
     // Используем примитивные массивы для экономии памяти в 4-6 раз
@@ -9,7 +14,13 @@ public class Polygon {
     private int[] textureVertexIndices;
     private int[] normalIndices;
 
+    // Для представления: список и номер полигона в нем
+    private final PolygonList list;
+    private final int index;
+
     public Polygon() {
+        this.list = null;
+        this.index = -1;
         this.vertexIndices = new int[0];
         this.textureVertexIndices = new int[0];
         this.normalIndices = new int[0];
@@ -20,51 +31,84 @@ public class Polygon {
      * Позволяет избежать лишних переаллокаций памяти.
      */
     public Polygon(int size) {
+        this.list = null;
+        this.index = -1;
         this.vertexIndices = new int[size];
         this.textureVertexIndices = new int[size];
         this.normalIndices = new int[size];
     }
 
+    /**
+     * Конструктор из готовых массивов индексов (массивы не копируются).
+     */
+    public Polygon(int[] vertexIndices, int[] textureVertexIndices, int[] normalIndices) {
+        this.list = null;
+        this.index = -1;
+        this.vertexIndices = vertexIndices;
+        this.textureVertexIndices = textureVertexIndices;
+        this.normalIndices = normalIndices;
+    }
+
+    Polygon(PolygonList list, int index) {
+        this.list = list;
+        this.index = index;
+    }
+
     // --- Сеттеры с использованием примитивных массивов ---
 
     public void setVertexIndices(int[] vertexIndices) {
         assert vertexIndices.length >= 3;
+        if (list != null) {
+            list.setVertexIndices(index, vertexIndices);
+            return;
+        }
         this.vertexIndices = vertexIndices;
     }
 
     public void setTextureVertexIndices(int[] textureVertexIndices) {
+        if (list != null) {
+            list.setTextureVertexIndices(index, textureVertexIndices);
+            return;
+        }
         this.textureVertexIndices = textureVertexIndices;
     }
 
     public void setNormalIndices(int[] normalIndices) {
+        if (list != null) {
+            list.setNormalIndices(index, normalIndices);
+            return;
+        }
         this.normalIndices = normalIndices;
     }
 
-    // --- Геттеры ---
+    // --- Геттеры (у представления — копии индексов из списка) ---
 
     public int[] getVertexIndices() {
-        return vertexIndices;
+        return list != null ? list.vertexIndicesOf(index) : vertexIndices;
     }
 
     public int[] getTextureVertexIndices() {
-        return textureVertexIndices;
+        return list != null ? list.textureIndicesOf(index) : textureVertexIndices;
     }
 
     public int[] getNormalIndices() {
-        return normalIndices;
+        return list != null ? list.normalIndicesOf(index) : normalIndices;
     }
 
     /**
      * Возвращает количество вершин в полигоне (N)
      */
     public int getIndicesCount() {
-        return vertexIndices.length;
+        return list != null ? list.getVertexCount(index) : vertexIndices.length;
     }
 
     /**
      * Быстрое глубокое копирование полигона через системное копирование массивов
      */
     public Polygon copy() {
+        if (list != null) {
+            return new Polygon(getVertexIndices(), getTextureVertexIndices(), getNormalIndices());
+        }
         Polygon newPolygon = new Polygon(this.vertexIndices.length);
 
         System.arraycopy(this.vertexIndices, 0, newPolygon.vertexIndices, 0, this.vertexIndices.length);
@@ -82,6 +126,10 @@ public class Polygon {
         return newPolygon;
     }
     public void decrementVertexIndicesGreaterThan(int threshold) {
+        if (list != null) {
+            list.decrementVertexIndicesGreaterThan(index, threshold);
+            return;
+        }
         for (int i = 0; i < vertexIndices.length; i++) {
             if (vertexIndices[i] > threshold) {
                 vertexIndices[i] -= 1;
@@ -92,9 +140,12 @@ public class Polygon {
     /**
      * Проверяет, содержит ли полигон конкретный индекс вершины.
      */
-    public boolean containsVertexIndex(int index) {
+    public boolean containsVertexIndex(int vertexIndex) {
+        if (list != null) {
+            return list.containsVertexIndex(index, vertexIndex);
+        }
         for (int vIdx : vertexIndices) {
-            if (vIdx == index) return true;
+            if (vIdx == vertexIndex) return true;
         }
         return false;
     }
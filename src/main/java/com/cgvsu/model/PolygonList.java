@@ -0,0 +1,740 @@
+package com.cgvsu.model;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Список полигонов в сжатом построчном виде (CSR): индексы всех полигонов лежат подряд
+ * в одном массиве, а массив смещений хранит начало каждого полигона. Так же отдельно
+ * хранятся индексы текстурных координат и нормалей — у полигона их может и не быть.
+ * Вместо объекта Polygon с тремя массивами на каждую грань — шесть массивов на всю модель.
+ * Массивы лежат в куче или вне ее — см. {@link GeometryStorage}. Копия ({@link #copy()}) делит их
+ * с исходным списком, пока один из них не изменится (копирование при записи).
+ * <p>
+ * get возвращает легкое представление {@link Polygon}: его геттеры отдают копии индексов,
+ * а сеттеры записывают изменения обратно в список. Представление ссылается на полигон
+ * по номеру и после удаления или вставки полигонов перед ним указывает уже на другой.
+ * Горячие пути читают индексы напрямую из буферов {@link #vertexOffsetBuffer()} и {@link #vertexIndexBuffer()}.
+ */
+public final class PolygonList extends AbstractList<Polygon> implements RandomAccess {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final GeometryStorage storage;
+    private int size;
+    private IndexStream vertices;
+    private IndexStream textures;
+    private IndexStream normals;
+
+    public PolygonList() {
+        this(GeometryStorage.HEAP);
+    }
+
+    public PolygonList(GeometryStorage storage) {
+        this(storage, 0, new IndexStream(storage, 0), new IndexStream(storage, 0), new IndexStream(storage, 0));
+    }
+
+    private PolygonList(GeometryStorage storage, int size,
+                        IndexStream vertices, IndexStream textures, IndexStream normals) {
+        this.storage = Objects.requireNonNull(storage);
+        this.size = size;
+        this.vertices = vertices;
+        this.textures = textures;
+        this.normals = normals;
+    }
+
+    /**
+     * Список в куче поверх готовых массивов (массивы не копируются). Смещения — count + 1 неубывающих чисел,
+     * начиная с нуля; для полигонов без текстур или нормалей соседние смещения равны.
+     * Потоки могут использовать одни и те же массивы: они копируются при первом изменении.
+     */
+    public static PolygonList wrap(int count,
+                                   int[] vertexOffsets, int[] vertexIndices,
+                                   int[] textureOffsets, int[] textureIndices,
+                                   int[] normalOffsets, int[] normalIndices) {
+        PolygonList list = new PolygonList(GeometryStorage.HEAP, count,
+                IndexStream.wrap(count, vertexOffsets, vertexIndices),
+                IndexStream.wrap(count, textureOffsets, textureIndices),
+                IndexStream.wrap(count, normalOffsets, normalIndices));
+        list.vertices.shared = list.vertices.isSharedWith(list.textures) || list.vertices.isSharedWith(list.normals);
+        list.textures.shared = list.textures.isSharedWith(list.vertices) || list.textures.isSharedWith(list.normals);
+        list.normals.shared = list.normals.isSharedWith(list.vertices) || list.normals.isSharedWith(list.textures);
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Polygon get(int index) {
+        Objects.checkIndex(index, size);
+        return new Polygon(this, index);
+    }
+
+    public GeometryStorage storage() {
+        return storage;
+    }
+
+    // --- Прямой доступ к массивам ---
+
+    /**
+     * Смещения индексов вершин только для чтения: полигон i занимает [get(i), get(i + 1))
+     * в {@link #vertexIndexBuffer()}. Действительны первые size() + 1 элементов.
+     * Буферы работают и для списка в куче, и вне ее; они перестают быть актуальными после изменения списка.
+     */
+    public IntBuffer vertexOffsetBuffer() {
+        return vertices.offsets.asReadOnlyBuffer();
+    }
+
+    public IntBuffer vertexIndexBuffer() {
+        return vertices.indices.asReadOnlyBuffer();
+    }
+
+    public IntBuffer textureOffsetBuffer() {
+        return textures.offsets.asReadOnlyBuffer();
+    }
+
+    public IntBuffer textureIndexBuffer() {
+        return textures.indices.asReadOnlyBuffer();
+    }
+
+    public IntBuffer normalOffsetBuffer() {
+        return normals.offsets.asReadOnlyBuffer();
+    }
+
+    public IntBuffer normalIndexBuffer() {
+        return normals.indices.asReadOnlyBuffer();
+    }
+
+    /**
+     * Номер версии индексов вершин: меняется при любом их изменении (см. {@link Model#getVertexFaces()}).
+     */
+    int vertexIndexVersion() {
+        return vertices.version;
+    }
+
+    int textureIndexVersion() {
+        return textures.version;
+    }
+
+    int normalIndexVersion() {
+        return normals.version;
+    }
+
+    public boolean hasArray() {
+        return vertices.offsets.hasArray();
+    }
+
+    /**
+     * Те же данные массивами — только для списка в куче (см. {@link #hasArray()}).
+     * Массивы могут быть общими у нескольких потоков, поэтому менять их напрямую нельзя.
+     */
+    public int[] vertexOffsets() {
+        return array(vertices.offsets);
+    }
+
+    public int[] vertexIndices() {
+        return array(vertices.indices);
+    }
+
+    public int[] textureOffsets() {
+        return array(textures.offsets);
+    }
+
+    public int[] textureIndices() {
+        return array(textures.indices);
+    }
+
+    public int[] normalOffsets() {
+        return array(normals.offsets);
+    }
+
+    public int[] normalIndices() {
+        return array(normals.indices);
+    }
+
+    private int[] array(IntBuffer buffer) {
+        if (!buffer.hasArray()) {
+            throw new UnsupportedOperationException("Indices are stored off-heap (" + storage + ")");
+        }
+        return buffer.array();
+    }
+
+    public int getVertexCount(int index) {
+        Objects.checkIndex(index, size);
+        return vertices.count(index);
+    }
+
+    public int getTextureVertexCount(int index) {
+        Objects.checkIndex(index, size);
+        return textures.count(index);
+    }
+
+    public int getNormalCount(int index) {
+        Objects.checkIndex(index, size);
+        return normals.count(index);
+    }
+
+    /**
+     * Общее число углов всех полигонов.
+     */
+    public int cornerCount() {
+        return vertices.offsets.get(size);
+    }
+
+    // --- Копии индексов одного полигона (для представлений Polygon) ---
+
+    int[] vertexIndicesOf(int index) {
+        Objects.checkIndex(index, size);
+        return vertices.copyOf(index);
+    }
+
+    int[] textureIndicesOf(int index) {
+        Objects.checkIndex(index, size);
+        return textures.copyOf(index);
+    }
+
+    int[] normalIndicesOf(int index) {
+        Objects.checkIndex(index, size);
+        return normals.copyOf(index);
+    }
+
+    boolean containsVertexIndex(int index, int vertexIndex) {
+        Objects.checkIndex(index, size);
+        IntBuffer indices = vertices.indices;
+        for (int k = vertices.offsets.get(index), end = vertices.offsets.get(index + 1); k < end; k++) {
+            if (indices.get(k) == vertexIndex) return true;
+        }
+        return false;
+    }
+
+    // --- Изменение ---
+
+    @Override
+    public boolean add(Polygon polygon) {
+        add(polygon.getVertexIndices(), polygon.getTextureVertexIndices(), polygon.getNormalIndices());
+        return true;
+    }
+
+    /**
+     * Добавляет полигон, копируя индексы. null и пустой массив означают отсутствие атрибута.
+     */
+    public void add(int[] vertexIndices, int[] textureIndices, int[] normalIndices) {
+        add(vertexIndices, vertexIndices.length,
+                textureIndices, textureIndices != null ? textureIndices.length : 0,
+                normalIndices, normalIndices != null ? normalIndices.length : 0);
+    }
+
+    /**
+     * Добавляет полигон из первых элементов массивов — удобно для переиспользуемых буферов разбора.
+     */
+    public void add(int[] vertexIndices, int vertexCount,
+                    int[] textureIndices, int textureCount,
+                    int[] normalIndices, int normalCount) {
+        ensureCapacity(size + 1);
+        vertices.append(size, vertexIndices, 0, vertexCount);
+        textures.append(size, textureIndices, 0, textureCount);
+        normals.append(size, normalIndices, 0, normalCount);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void add(int index, Polygon polygon) {
+        Objects.checkIndex(index, size + 1);
+        int[] vertexIndices = polygon.getVertexIndices();
+        int[] textureIndices = polygon.getTextureVertexIndices();
+        int[] normalIndices = polygon.getNormalIndices();
+        ensureCapacity(size + 1);
+        vertices.insert(index, size, vertexIndices);
+        textures.insert(index, size, textureIndices);
+        normals.insert(index, size, normalIndices);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Polygon> polygons) {
+        if (polygons instanceof PolygonList) {
+            PolygonList other = (PolygonList) polygons;
+            int count = other.size;
+            ensureCapacity(size + count);
+            // Сначала все потоки читаются из other: при addAll(this) они не должны меняться раньше времени
+            vertices.appendAll(size, other.vertices, count);
+            textures.appendAll(size, other.textures, count);
+            normals.appendAll(size, other.normals, count);
+            size += count;
+            modCount++;
+            return count != 0;
+        }
+        ensureCapacity(size + polygons.size());
+        for (Polygon polygon : polygons) {
+            add(polygon);
+        }
+        return !polygons.isEmpty();
+    }
+
+    /**
+     * Заменяет полигон и возвращает отсоединенную копию прежнего.
+     */
+    @Override
+    public Polygon set(int index, Polygon polygon) {
+        Polygon previous = detachedCopy(index);
+        int[] vertexIndices = polygon.getVertexIndices();
+        int[] textureIndices = polygon.getTextureVertexIndices();
+        int[] normalIndices = polygon.getNormalIndices();
+        vertices.replace(index, size, vertexIndices);
+        textures.replace(index, size, textureIndices);
+        normals.replace(index, size, normalIndices);
+        return previous;
+    }
+
+    public void setVertexIndices(int index, int[] vertexIndices) {
+        Objects.checkIndex(index, size);
+        vertices.replace(index, size, vertexIndices);
+    }
+
+    public void setTextureVertexIndices(int index, int[] textureIndices) {
+        Objects.checkIndex(index, size);
+        textures.replace(index, size, textureIndices);
+    }
+
+    public void setNormalIndices(int index, int[] normalIndices) {
+        Objects.checkIndex(index, size);
+        normals.replace(index, size, normalIndices);
+    }
+
+    @Override
+    public Polygon remove(int index) {
+        Polygon removed = detachedCopy(index);
+        removeRange(index, index + 1);
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        vertices.removeRange(fromIndex, toIndex, size);
+        textures.removeRange(fromIndex, toIndex, size);
+        normals.removeRange(fromIndex, toIndex, size);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    /**
+     * Удаляет полигоны, для которых filter вернул true, за один проход по массивам.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Polygon> filter) {
+        Objects.requireNonNull(filter);
+        return removePolygons(index -> filter.test(new Polygon(this, index)));
+    }
+
+    /**
+     * То же, что removeIf, но условие получает номер полигона и не требует создания представлений.
+     * Условие проверяется для всех полигонов до начала удаления.
+     */
+    public boolean removePolygons(IntPredicate filter) {
+        boolean[] removed = new boolean[size];
+        int removedCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (filter.test(i)) {
+                removed[i] = true;
+                removedCount++;
+            }
+        }
+        return compact(removed, removedCount);
+    }
+
+    /**
+     * Пакетное удаление вершин: remap[v] — новый номер вершины v или -1, если она удалена.
+     * Полигоны с удаленными вершинами выбрасываются, индексы остальных переписываются по remap.
+     * Поиск таких полигонов и перезапись индексов идут параллельно.
+     */
+    void removeVertices(int[] remap) {
+        IntBuffer offsets = vertices.offsets;
+        IntBuffer indices = vertices.indices;
+        boolean[] removed = new boolean[size];
+        int removedCount = (int) IntStream.range(0, size).parallel().filter(i -> {
+            for (int k = offsets.get(i), end = offsets.get(i + 1); k < end; k++) {
+                if (remap[indices.get(k)] < 0) {
+                    removed[i] = true;
+                    return true;
+                }
+            }
+            return false;
+        }).count();
+        compact(removed, removedCount);
+        remapVertexIndices(remap);
+    }
+
+    private boolean compact(boolean[] removed, int removedCount) {
+        if (removedCount == 0) {
+            return false;
+        }
+        vertices.compact(removed, size);
+        textures.compact(removed, size);
+        normals.compact(removed, size);
+        size -= removedCount;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        vertices.clear();
+        textures.clear();
+        normals.clear();
+        modCount++;
+    }
+
+    /**
+     * Уменьшает на единицу индексы вершин больше threshold во всех полигонах (после удаления вершины).
+     */
+    public void decrementVertexIndicesGreaterThan(int threshold) {
+        vertices.beginWrite(size);
+        IntBuffer indices = vertices.indices;
+        for (int k = 0, end = vertices.offsets.get(size); k < end; k++) {
+            int vertex = indices.get(k);
+            if (vertex > threshold) {
+                indices.put(k, vertex - 1);
+            }
+        }
+    }
+
+    void decrementVertexIndicesGreaterThan(int index, int threshold) {
+        Objects.checkIndex(index, size);
+        vertices.beginWrite(size);
+        IntBuffer indices = vertices.indices;
+        for (int k = vertices.offsets.get(index), end = vertices.offsets.get(index + 1); k < end; k++) {
+            int vertex = indices.get(k);
+            if (vertex > threshold) {
+                indices.put(k, vertex - 1);
+            }
+        }
+    }
+
+    /**
+     * Заменяет каждый индекс вершины v на remap[v] (параллельно, после сварки вершин).
+     */
+    void remapVertexIndices(int[] remap) {
+        vertices.beginWrite(size);
+        IntBuffer indices = vertices.indices;
+        IntStream.range(0, vertices.offsets.get(size)).parallel().forEach(k -> indices.put(k, remap[indices.get(k)]));
+    }
+
+    /**
+     * Заменяет каждый индекс нормали n на remap(n) у полигонов, выбранных filter
+     * (чтобы нормали по вершинам остались согласованы после удаления вершин).
+     */
+    void remapNormalIndices(IntUnaryOperator remap, IntPredicate filter) {
+        normals.beginWrite(size);
+        IntBuffer offsets = normals.offsets;
+        IntBuffer indices = normals.indices;
+        for (int p = 0; p < size; p++) {
+            if (!filter.test(p)) continue;
+            for (int k = offsets.get(p), end = offsets.get(p + 1); k < end; k++) {
+                indices.put(k, remap.applyAsInt(indices.get(k)));
+            }
+        }
+    }
+
+    /**
+     * Делает индексы нормалей равными индексам вершин у полигонов, выбранных filter.
+     */
+    void copyVertexIndicesToNormals(IntPredicate filter) {
+        IndexStream result = new IndexStream(storage, size);
+        result.version = normals.version + 1;
+        result.ensureIndexCapacity(vertices.offsets.get(size));
+        for (int i = 0; i < size; i++) {
+            result.append(i, filter.test(i) ? vertices : normals, i);
+        }
+        normals = result;
+    }
+
+    /**
+     * Возвращает индексам нормалей сохраненное состояние (смещения и индексы, снятые с этого же списка).
+     */
+    void restoreNormalIndices(int[] offsets, int[] indices) {
+        Objects.checkFromIndexSize(0, size + 1, offsets.length);
+        IndexStream restored = new IndexStream(storage, size);
+        restored.version = normals.version + 1;
+        restored.ensureIndexCapacity(offsets[size]);
+        restored.offsets.put(0, offsets, 0, size + 1);
+        restored.indices.put(0, indices, 0, offsets[size]);
+        normals = restored;
+    }
+
+    /**
+     * Вставляет полигоны other так, чтобы полигон k оказался на позиции positions[k] итогового списка
+     * (позиции по возрастанию). Список собирается заново за один проход, а не сдвигом хвоста на каждую вставку.
+     */
+    void insertAll(int[] positions, PolygonList other) {
+        int total = size + other.size;
+        IndexStream[] streams = {vertices, textures, normals};
+        IndexStream[] others = {other.vertices, other.textures, other.normals};
+        for (int k = 0; k < streams.length; k++) {
+            IndexStream result = new IndexStream(storage, total);
+            result.version = streams[k].version + 1;
+            result.ensureIndexCapacity(streams[k].offsets.get(size) + others[k].offsets.get(other.size));
+            for (int i = 0, own = 0, inserted = 0; i < total; i++) {
+                if (inserted < positions.length && positions[inserted] == i) {
+                    result.append(i, others[k], inserted++);
+                } else {
+                    result.append(i, streams[k], own++);
+                }
+            }
+            streams[k] = result;
+        }
+        vertices = streams[0];
+        textures = streams[1];
+        normals = streams[2];
+        size = total;
+        modCount++;
+    }
+
+    /**
+     * Резервирует место под полигоны (индексы растут по мере добавления).
+     */
+    public void ensureCapacity(int polygonCount) {
+        vertices.ensurePolygonCapacity(polygonCount);
+        textures.ensurePolygonCapacity(polygonCount);
+        normals.ensurePolygonCapacity(polygonCount);
+    }
+
+    /**
+     * Копия за O(1): массивы становятся общими, и каждый поток копирует свои
+     * только при первом изменении.
+     */
+    public PolygonList copy() {
+        return new PolygonList(storage, size, vertices.share(), textures.share(), normals.share());
+    }
+
+    /**
+     * Полная копия в другом хранилище — например, чтобы перенести индексы из кучи в файл.
+     */
+    public PolygonList copy(GeometryStorage target) {
+        if (target == storage) {
+            return copy();
+        }
+        return new PolygonList(target, size,
+                vertices.copy(target, size), textures.copy(target, size), normals.copy(target, size));
+    }
+
+    private Polygon detachedCopy(int index) {
+        return new Polygon(vertexIndicesOf(index), textureIndicesOf(index), normalIndicesOf(index));
+    }
+
+    /**
+     * Один поток индексов в виде CSR: смещения полигонов и индексы подряд.
+     * Массивы могут быть общими с другим потоком (shared): после wrap или copy списка. Тогда перед
+     * первым изменением поток получает собственную копию.
+     */
+    private static final class IndexStream {
+        final GeometryStorage storage;
+        IntBuffer offsets;
+        IntBuffer indices;
+        boolean shared;
+        // Растет при каждом изменении: по ней видно, что построенный по потоку индекс устарел
+        int version;
+
+        IndexStream(GeometryStorage storage, int polygonCapacity) {
+            this(storage, storage.allocateInts(polygonCapacity + 1), storage.allocateInts(0));
+        }
+
+        private IndexStream(GeometryStorage storage, IntBuffer offsets, IntBuffer indices) {
+            this.storage = storage;
+            this.offsets = offsets;
+            this.indices = indices;
+        }
+
+        static IndexStream wrap(int count, int[] offsets, int[] indices) {
+            Objects.checkFromIndexSize(0, count + 1, offsets.length);
+            if (offsets[0] != 0) {
+                throw new IllegalArgumentException("Offsets must start with 0");
+            }
+            for (int i = 0; i < count; i++) {
+                if (offsets[i + 1] < offsets[i]) {
+                    throw new IllegalArgumentException("Offsets must not decrease");
+                }
+            }
+            Objects.checkFromIndexSize(0, offsets[count], indices.length);
+            return new IndexStream(GeometryStorage.HEAP, IntBuffer.wrap(offsets), IntBuffer.wrap(indices));
+        }
+
+        int count(int polygon) {
+            return offsets.get(polygon + 1) - offsets.get(polygon);
+        }
+
+        int[] copyOf(int polygon) {
+            int count = count(polygon);
+            if (count == 0) {
+                return EMPTY;
+            }
+            int[] copy = new int[count];
+            indices.get(offsets.get(polygon), copy);
+            return copy;
+        }
+
+        boolean isSharedWith(IndexStream other) {
+            return offsets.hasArray() && other.offsets.hasArray()
+                    && (offsets.array() == other.offsets.array() || indices.array() == other.indices.array());
+        }
+
+        // Вызывается перед каждым изменением потока: новый номер версии и собственная копия массивов,
+        // если они общие с другим потоком
+        void beginWrite(int size) {
+            version++;
+            if (shared) {
+                offsets = storage.copyOf(offsets, size + 1, offsets.capacity());
+                indices = storage.copyOf(indices, offsets.get(size), indices.capacity());
+                shared = false;
+            }
+        }
+
+        void append(int size, int[] source, int from, int count) {
+            beginWrite(size);
+            int end = offsets.get(size);
+            ensureIndexCapacity(end + count);
+            if (count != 0) {
+                indices.put(end, source, from, count);
+            }
+            offsets.put(size + 1, end + count);
+        }
+
+        void append(int size, IndexStream source, int polygon) {
+            beginWrite(size);
+            int end = offsets.get(size);
+            int count = source.count(polygon);
+            ensureIndexCapacity(end + count);
+            indices.put(end, source.indices, source.offsets.get(polygon), count);
+            offsets.put(size + 1, end + count);
+        }
+
+        void appendAll(int size, IndexStream other, int count) {
+            beginWrite(size);
+            int end = offsets.get(size);
+            int otherEnd = other.offsets.get(count);
+            ensureIndexCapacity(end + otherEnd);
+            // При other == this буферы читаются уже после роста, поэтому берутся из other только здесь
+            indices.put(end, other.indices, 0, otherEnd);
+            IntBuffer otherOffsets = other.offsets;
+            for (int i = count; i >= 1; i--) {
+                offsets.put(size + i, end + otherOffsets.get(i));
+            }
+        }
+
+        void insert(int polygon, int size, int[] source) {
+            beginWrite(size);
+            int count = source != null ? source.length : 0;
+            int start = offsets.get(polygon);
+            int end = offsets.get(size);
+            ensureIndexCapacity(end + count);
+            indices.put(start + count, indices, start, end - start);
+            if (count != 0) {
+                indices.put(start, source);
+            }
+            offsets.put(polygon + 2, offsets, polygon + 1, size - polygon);
+            for (int i = polygon + 1; i <= size + 1; i++) {
+                offsets.put(i, offsets.get(i) + count);
+            }
+            offsets.put(polygon + 1, start + count);
+        }
+
+        // Замена индексов полигона; при другой длине хвост сдвигается
+        void replace(int polygon, int size, int[] source) {
+            beginWrite(size);
+            int count = source != null ? source.length : 0;
+            int start = offsets.get(polygon);
+            int delta = count - count(polygon);
+            if (delta != 0) {
+                int end = offsets.get(size);
+                ensureIndexCapacity(end + delta);
+                int tail = offsets.get(polygon + 1);
+                indices.put(tail + delta, indices, tail, end - tail);
+                for (int i = polygon + 1; i <= size; i++) {
+                    offsets.put(i, offsets.get(i) + delta);
+                }
+            }
+            if (count != 0) {
+                indices.put(start, source);
+            }
+        }
+
+        void removeRange(int from, int to, int size) {
+            beginWrite(size);
+            int start = offsets.get(from);
+            int tail = offsets.get(to);
+            int removed = tail - start;
+            int end = offsets.get(size);
+            indices.put(start, indices, tail, end - tail);
+            for (int i = to; i <= size; i++) {
+                offsets.put(i - (to - from), offsets.get(i) - removed);
+            }
+        }
+
+        void compact(boolean[] removed, int size) {
+            beginWrite(size);
+            int kept = 0;
+            int write = 0;
+            for (int i = 0; i < size; i++) {
+                int start = offsets.get(i);
+                int count = offsets.get(i + 1) - start;
+                if (removed[i]) continue;
+                if (write != start) {
+                    indices.put(write, indices, start, count);
+                }
+                // offsets[kept] уже равен write: он записан на прошлом шаге или это offsets[0]
+                write += count;
+                offsets.put(++kept, write);
+            }
+        }
+
+        void clear() {
+            version++;
+            if (shared) {
+                offsets = storage.allocateInts(offsets.capacity());
+                indices = storage.allocateInts(0);
+                shared = false;
+            }
+            offsets.put(0, 0);
+        }
+
+        void ensurePolygonCapacity(int polygonCount) {
+            if (polygonCount + 1 > offsets.capacity()) {
+                int capacity = storage.grownCapacity(offsets.capacity(), polygonCount + 1, 9);
+                offsets = storage.copyOf(offsets, offsets.capacity(), capacity);
+            }
+        }
+
+        void ensureIndexCapacity(int count) {
+            if (count > indices.capacity()) {
+                int capacity = storage.grownCapacity(indices.capacity(), count, 16);
+                indices = storage.copyOf(indices, indices.capacity(), capacity);
+            }
+        }
+
+        IndexStream copy(GeometryStorage target, int size) {
+            int end = offsets.get(size);
+            return new IndexStream(target, target.copyOf(offsets, size + 1, size + 1), target.copyOf(indices, end, end));
+        }
+
+        // Поток с теми же массивами: каждый из двух скопирует их перед своим первым изменением
+        IndexStream share() {
+            IndexStream copy = new IndexStream(storage, offsets, indices);
+            copy.shared = true;
+            shared = true;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector2f;
+
+import java.nio.FloatBuffer;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Список двумерных векторов (текстурных координат) в одном массиве float: x, y подряд.
+ * Устроен так же, как {@link Vector2fList}: get возвращает копию, изменения — через set,
+ * copy делит массив с исходным списком до первого изменения.
+ */
+public final class Vector2fList extends AbstractList<Vector2f> implements RandomAccess {
+
+    private final GeometryStorage storage;
+    private FloatBuffer data;
+    private int size;
+    // Массив общий с копией: перед записью его нужно скопировать
+    private boolean shared;
+    // Растет при каждом изменении: по ней видно, что посчитанные по списку данные устарели
+    private int version;
+
+    public Vector2fList() {
+        this(GeometryStorage.HEAP, 0);
+    }
+
+    public Vector2fList(int capacity) {
+        this(GeometryStorage.HEAP, capacity);
+    }
+
+    public Vector2fList(GeometryStorage storage, int capacity) {
+        this.storage = Objects.requireNonNull(storage);
+        this.data = storage.allocateFloats(Math.multiplyExact(capacity, 2));
+    }
+
+    /**
+     * Список в куче поверх готового массива координат (массив не копируется).
+     */
+    public static Vector2fList wrap(float[] xy, int size) {
+        Objects.checkFromIndexSize(0, Math.multiplyExact(size, 2), xy.length);
+        Vector2fList list = new Vector2fList();
+        list.data = FloatBuffer.wrap(xy);
+        list.size = size;
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public GeometryStorage storage() {
+        return storage;
+    }
+
+    @Override
+    public Vector2f get(int index) {
+        Objects.checkIndex(index, size);
+        int i = index * 2;
+        return new Vector2f(data.get(i), data.get(i + 1));
+    }
+
+    public float getX(int index) {
+        Objects.checkIndex(index, size);
+        return data.get(index * 2);
+    }
+
+    public float getY(int index) {
+        Objects.checkIndex(index, size);
+        return data.get(index * 2 + 1);
+    }
+
+    /**
+     * Координаты только для чтения абсолютными get(int), в куче или вне ее;
+     * действительны первые 2 * size() элементов. Буфер перестает быть актуальным после изменения списка.
+     */
+    public FloatBuffer buffer() {
+        return data.asReadOnlyBuffer();
+    }
+
+    /**
+     * Координаты для записи на месте (собственный, не общий с копиями буфер).
+     */
+    FloatBuffer writableBuffer() {
+        beginWrite();
+        return data.duplicate();
+    }
+
+    /**
+     * Номер версии: меняется при любом изменении списка, в том числе через {@link #array()}.
+     */
+    int version() {
+        return version;
+    }
+
+    public boolean hasArray() {
+        return data.hasArray();
+    }
+
+    /**
+     * Массив координат (только для списка в куче, см. {@link #hasArray()}); действительны первые 2 * size() элементов.
+     * Ссылка перестает быть актуальной после изменения списка.
+     */
+    public float[] array() {
+        if (!data.hasArray()) {
+            throw new UnsupportedOperationException("Coordinates are stored off-heap (" + storage + ")");
+        }
+        beginWrite();
+        return data.array();
+    }
+
+    @Override
+    public Vector2f set(int index, Vector2f vector) {
+        Vector2f previous = get(index);
+        set(index, vector.x, vector.y);
+        return previous;
+    }
+
+    public void set(int index, float x, float y) {
+        Objects.checkIndex(index, size);
+        beginWrite();
+        int i = index * 2;
+        data.put(i, x);
+        data.put(i + 1, y);
+    }
+
+    @Override
+    public boolean add(Vector2f vector) {
+        add(vector.x, vector.y);
+        return true;
+    }
+
+    public void add(float x, float y) {
+        if (size * 2 == data.capacity()) {
+            grow(size + 1);
+        }
+        beginWrite();
+        int i = size * 2;
+        data.put(i, x);
+        data.put(i + 1, y);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void add(int index, Vector2f vector) {
+        Objects.checkIndex(index, size + 1);
+        float x = vector.x, y = vector.y;
+        if (size * 2 == data.capacity()) {
+            grow(size + 1);
+        }
+        beginWrite();
+        data.put(index * 2 + 2, data, index * 2, (size - index) * 2);
+        size++;
+        modCount++;
+        set(index, x, y);
+    }
+
+    /**
+     * Добавляет count векторов из массива координат, начиная с вектора from.
+     */
+    public void addAll(float[] xy, int from, int count) {
+        Objects.checkFromIndexSize(from * 2, count * 2, xy.length);
+        ensureCapacity(size + count);
+        beginWrite();
+        data.put(size * 2, xy, from * 2, count * 2);
+        size += count;
+        modCount++;
+    }
+
+    /**
+     * То же для буфера координат (например, {@link #buffer()} другого списка).
+     */
+    public void addAll(FloatBuffer xy, int from, int count) {
+        Objects.checkFromIndexSize(from * 2, count * 2, xy.limit());
+        ensureCapacity(size + count);
+        beginWrite();
+        data.put(size * 2, xy, from * 2, count * 2);
+        size += count;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Vector2f> vectors) {
+        if (vectors instanceof Vector2fList) {
+            Vector2fList other = (Vector2fList) vectors;
+            int count = other.size;
+            ensureCapacity(size + count);
+            beginWrite();
+            data.put(size * 2, other.data, 0, count * 2);
+            size += count;
+            modCount++;
+            return count != 0;
+        }
+        ensureCapacity(size + vectors.size());
+        for (Vector2f vector : vectors) {
+            add(vector);
+        }
+        return !vectors.isEmpty();
+    }
+
+    @Override
+    public Vector2f remove(int index) {
+        Vector2f removed = get(index);
+        removeRange(index, index + 1);
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        beginWrite();
+        data.put(fromIndex * 2, data, toIndex * 2, (size - toIndex) * 2);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        version++;
+        if (shared) {
+            data = storage.allocateFloats(0);
+            shared = false;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity * 2L > data.capacity()) {
+            grow(capacity);
+        }
+    }
+
+    /**
+     * Оставляет первые size векторов (size не больше текущего).
+     */
+    public void truncate(int newSize) {
+        Objects.checkFromToIndex(0, newSize, size);
+        version++;
+        size = newSize;
+        modCount++;
+    }
+
+    /**
+     * Копия за O(1): массив становится общим и копируется только при первом изменении
+     * одного из списков.
+     */
+    public Vector2fList copy() {
+        Vector2fList copy = new Vector2fList(storage, 0);
+        copy.data = data;
+        copy.size = size;
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
+    /**
+     * Полная копия в другом хранилище — например, чтобы перенести координаты из кучи в файл.
+     */
+    public Vector2fList copy(GeometryStorage target) {
+        if (target == storage) {
+            return copy();
+        }
+        Vector2fList copy = new Vector2fList(target, 0);
+        copy.data = target.copyOf(data, size * 2, size * 2);
+        copy.size = size;
+        return copy;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = storage.grownCapacity(data.capacity(), Math.multiplyExact(minCapacity, 2), 16) / 2 * 2;
+        data = storage.copyOf(data, size * 2, capacity);
+        shared = false;
+    }
+
+    // Вызывается перед каждым изменением: новый номер версии и собственная копия массива, если он общий
+    private void beginWrite() {
+        version++;
+        if (shared) {
+            data = storage.copyOf(data, size * 2, data.capacity());
+            shared = false;
+        }
+    }
+}
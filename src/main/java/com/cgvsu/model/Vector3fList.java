@@ -0,0 +1,300 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector3f;
+
+import java.nio.FloatBuffer;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Список трехмерных векторов в одном массиве float: x, y, z каждого вектора подряд.
+ * Вместо объекта с заголовком и ссылкой на каждую вершину — 12 байт подряд в памяти.
+ * Массив лежит в куче или вне ее — см. {@link GeometryStorage}. Копия ({@link #copy()}) делит массив
+ * с исходным списком, пока один из них не изменится (копирование при записи).
+ * <p>
+ * Интерфейс List оставлен для совместимости: get возвращает новый Vector3f (копию),
+ * поэтому изменить координаты через него нельзя — для этого есть set. Горячие пути
+ * читают координаты через getX/getY/getZ или напрямую из {@link #buffer()}.
+ */
+public final class Vector3fList extends AbstractList<Vector3f> implements RandomAccess {
+
+    private final GeometryStorage storage;
+    private FloatBuffer data;
+    private int size;
+    // Массив общий с копией: перед записью его нужно скопировать
+    private boolean shared;
+    // Растет при каждом изменении: по ней видно, что посчитанные по списку данные устарели
+    private int version;
+
+    public Vector3fList() {
+        this(GeometryStorage.HEAP, 0);
+    }
+
+    public Vector3fList(int capacity) {
+        this(GeometryStorage.HEAP, capacity);
+    }
+
+    public Vector3fList(GeometryStorage storage, int capacity) {
+        this.storage = Objects.requireNonNull(storage);
+        this.data = storage.allocateFloats(Math.multiplyExact(capacity, 3));
+    }
+
+    /**
+     * Список в куче поверх готового массива координат (массив не копируется).
+     */
+    public static Vector3fList wrap(float[] xyz, int size) {
+        Objects.checkFromIndexSize(0, Math.multiplyExact(size, 3), xyz.length);
+        Vector3fList list = new Vector3fList();
+        list.data = FloatBuffer.wrap(xyz);
+        list.size = size;
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public GeometryStorage storage() {
+        return storage;
+    }
+
+    @Override
+    public Vector3f get(int index) {
+        Objects.checkIndex(index, size);
+        int i = index * 3;
+        return new Vector3f(data.get(i), data.get(i + 1), data.get(i + 2));
+    }
+
+    public float getX(int index) {
+        Objects.checkIndex(index, size);
+        return data.get(index * 3);
+    }
+
+    public float getY(int index) {
+        Objects.checkIndex(index, size);
+        return data.get(index * 3 + 1);
+    }
+
+    public float getZ(int index) {
+        Objects.checkIndex(index, size);
+        return data.get(index * 3 + 2);
+    }
+
+    /**
+     * Координаты только для чтения абсолютными get(int), в куче или вне ее;
+     * действительны первые 3 * size() элементов. Буфер перестает быть актуальным после изменения списка.
+     */
+    public FloatBuffer buffer() {
+        return data.asReadOnlyBuffer();
+    }
+
+    /**
+     * Координаты для записи на месте (собственный, не общий с копиями буфер).
+     */
+    FloatBuffer writableBuffer() {
+        beginWrite();
+        return data.duplicate();
+    }
+
+    /**
+     * Номер версии: меняется при любом изменении списка, в том числе через {@link #array()}.
+     */
+    int version() {
+        return version;
+    }
+
+    public boolean hasArray() {
+        return data.hasArray();
+    }
+
+    /**
+     * Массив координат (только для списка в куче, см. {@link #hasArray()}); действительны первые 3 * size() элементов.
+     * Ссылка перестает быть актуальной после изменения списка.
+     */
+    public float[] array() {
+        if (!data.hasArray()) {
+            throw new UnsupportedOperationException("Coordinates are stored off-heap (" + storage + ")");
+        }
+        beginWrite();
+        return data.array();
+    }
+
+    @Override
+    public Vector3f set(int index, Vector3f vector) {
+        Vector3f previous = get(index);
+        set(index, vector.x, vector.y, vector.z);
+        return previous;
+    }
+
+    public void set(int index, float x, float y, float z) {
+        Objects.checkIndex(index, size);
+        beginWrite();
+        int i = index * 3;
+        data.put(i, x);
+        data.put(i + 1, y);
+        data.put(i + 2, z);
+    }
+
+    @Override
+    public boolean add(Vector3f vector) {
+        add(vector.x, vector.y, vector.z);
+        return true;
+    }
+
+    public void add(float x, float y, float z) {
+        if (size * 3 == data.capacity()) {
+            grow(size + 1);
+        }
+        beginWrite();
+        int i = size * 3;
+        data.put(i, x);
+        data.put(i + 1, y);
+        data.put(i + 2, z);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void add(int index, Vector3f vector) {
+        Objects.checkIndex(index, size + 1);
+        float x = vector.x, y = vector.y, z = vector.z;
+        if (size * 3 == data.capacity()) {
+            grow(size + 1);
+        }
+        beginWrite();
+        data.put(index * 3 + 3, data, index * 3, (size - index) * 3);
+        size++;
+        modCount++;
+        set(index, x, y, z);
+    }
+
+    /**
+     * Добавляет count векторов из массива координат, начиная с вектора from.
+     */
+    public void addAll(float[] xyz, int from, int count) {
+        Objects.checkFromIndexSize(from * 3, count * 3, xyz.length);
+        ensureCapacity(size + count);
+        beginWrite();
+        data.put(size * 3, xyz, from * 3, count * 3);
+        size += count;
+        modCount++;
+    }
+
+    /**
+     * То же для буфера координат (например, {@link #buffer()} другого списка).
+     */
+    public void addAll(FloatBuffer xyz, int from, int count) {
+        Objects.checkFromIndexSize(from * 3, count * 3, xyz.limit());
+        ensureCapacity(size + count);
+        beginWrite();
+        data.put(size * 3, xyz, from * 3, count * 3);
+        size += count;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Vector3f> vectors) {
+        if (vectors instanceof Vector3fList) {
+            Vector3fList other = (Vector3fList) vectors;
+            int count = other.size;
+            ensureCapacity(size + count);
+            beginWrite();
+            data.put(size * 3, other.data, 0, count * 3);
+            size += count;
+            modCount++;
+            return count != 0;
+        }
+        ensureCapacity(size + vectors.size());
+        for (Vector3f vector : vectors) {
+            add(vector);
+        }
+        return !vectors.isEmpty();
+    }
+
+    @Override
+    public Vector3f remove(int index) {
+        Vector3f removed = get(index);
+        removeRange(index, index + 1);
+        return removed;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        Objects.checkFromToIndex(fromIndex, toIndex, size);
+        beginWrite();
+        data.put(fromIndex * 3, data, toIndex * 3, (size - toIndex) * 3);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        version++;
+        if (shared) {
+            data = storage.allocateFloats(0);
+            shared = false;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity * 3L > data.capacity()) {
+            grow(capacity);
+        }
+    }
+
+    /**
+     * Оставляет первые size векторов (size не больше текущего).
+     */
+    public void truncate(int newSize) {
+        Objects.checkFromToIndex(0, newSize, size);
+        version++;
+        size = newSize;
+        modCount++;
+    }
+
+    /**
+     * Копия за O(1): массив становится общим и копируется только при первом изменении
+     * одного из списков.
+     */
+    public Vector3fList copy() {
+        Vector3fList copy = new Vector3fList(storage, 0);
+        copy.data = data;
+        copy.size = size;
+        copy.shared = true;
+        shared = true;
+        return copy;
+    }
+
+    /**
+     * Полная копия в другом хранилище — например, чтобы перенести координаты из кучи в файл.
+     */
+    public Vector3fList copy(GeometryStorage target) {
+        if (target == storage) {
+            return copy();
+        }
+        Vector3fList copy = new Vector3fList(target, 0);
+        copy.data = target.copyOf(data, size * 3, size * 3);
+        copy.size = size;
+        return copy;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = storage.grownCapacity(data.capacity(), Math.multiplyExact(minCapacity, 3), 24) / 3 * 3;
+        data = storage.copyOf(data, size * 3, capacity);
+        shared = false;
+    }
+
+    // Вызывается перед каждым изменением: новый номер версии и собственная копия массива, если он общий
+    private void beginWrite() {
+        version++;
+        if (shared) {
+            data = storage.copyOf(data, size * 3, data.capacity());
+            shared = false;
+        }
+    }
+}
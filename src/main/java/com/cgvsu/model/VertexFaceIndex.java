@@ -0,0 +1,186 @@
+package com.cgvsu.model;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Индекс смежности «вершина → полигоны» в сжатом построчном виде (CSR): идентификаторы полигонов,
+ * содержащих вершину v, лежат по возрастанию в faces с позиции starts[v], их counts[v] штук.
+ * После удаления полигонов и вершин в отрезках остаются свободные места, поэтому отрезок вершины
+ * тянется до starts[v + 1], а не заканчивается на последнем полигоне.
+ * <p>
+ * Индекс строит и поддерживает {@link Model#getVertexFaces()}: полигоны, которые касаются вершины,
+ * находятся за O(валентности) вместо прохода по всем полигонам.
+ */
+public final class VertexFaceIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int vertexCount;
+    private final int[] starts;
+    private final int[] counts;
+    private final int[] faces;
+
+    private VertexFaceIndex(int vertexCount, int[] starts, int[] counts, int[] faces) {
+        this.vertexCount = vertexCount;
+        this.starts = starts;
+        this.counts = counts;
+        this.faces = faces;
+    }
+
+    /**
+     * Строит индекс параллельно: подсчет валентностей, префиксная сумма, раскладка полигонов
+     * по отрезкам и сортировка каждого отрезка. Полигоны, для которых deleted вернул true, пропускаются,
+     * а повторы вершины в одном полигоне дают одну запись.
+     */
+    static VertexFaceIndex build(PolygonList polygons, int vertexCount, IntPredicate deleted) {
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer indices = polygons.vertexIndexBuffer();
+        int size = polygons.size();
+
+        AtomicIntegerArray degree = new AtomicIntegerArray(vertexCount);
+        IntStream.range(0, size).parallel().filter(p -> !deleted.test(p)).forEach(p -> {
+            for (int k = offsets.get(p), end = offsets.get(p + 1); k < end; k++) {
+                degree.incrementAndGet(Objects.checkIndex(indices.get(k), vertexCount));
+            }
+        });
+
+        int[] starts = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            starts[v + 1] = starts[v] + degree.get(v);
+        }
+
+        int[] faces = new int[starts[vertexCount]];
+        AtomicIntegerArray cursor = new AtomicIntegerArray(Arrays.copyOf(starts, vertexCount));
+        IntStream.range(0, size).parallel().filter(p -> !deleted.test(p)).forEach(p -> {
+            for (int k = offsets.get(p), end = offsets.get(p + 1); k < end; k++) {
+                faces[cursor.getAndIncrement(indices.get(k))] = p;
+            }
+        });
+
+        int[] counts = new int[vertexCount];
+        IntStream.range(0, vertexCount).parallel().forEach(v -> {
+            int start = starts[v];
+            int end = starts[v + 1];
+            Arrays.sort(faces, start, end);
+            int write = start;
+            for (int k = start; k < end; k++) {
+                if (write == start || faces[write - 1] != faces[k]) {
+                    faces[write++] = faces[k];
+                }
+            }
+            counts[v] = write - start;
+        });
+        return new VertexFaceIndex(vertexCount, starts, counts, faces);
+    }
+
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Число полигонов, содержащих вершину.
+     */
+    public int valence(int vertex) {
+        Objects.checkIndex(vertex, vertexCount);
+        return counts[vertex];
+    }
+
+    /**
+     * k-й по возрастанию идентификатор полигона, содержащего вершину (0 <= k < valence).
+     */
+    public int face(int vertex, int k) {
+        Objects.checkIndex(k, valence(vertex));
+        return faces[starts[vertex] + k];
+    }
+
+    /**
+     * Идентификаторы полигонов, содержащих вершину, по возрастанию (копия).
+     */
+    public int[] facesOf(int vertex) {
+        int count = valence(vertex);
+        if (count == 0) {
+            return EMPTY;
+        }
+        int start = starts[vertex];
+        return Arrays.copyOfRange(faces, start, start + count);
+    }
+
+    // --- Обновление при изменении модели ---
+
+    /**
+     * Убирает полигон face из отрезков его вершин (полигон еще лежит в списке polygons).
+     */
+    void removeFace(int face, PolygonList polygons) {
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer indices = polygons.vertexIndexBuffer();
+        for (int k = offsets.get(face), end = offsets.get(face + 1); k < end; k++) {
+            int vertex = indices.get(k);
+            int start = starts[vertex];
+            int count = counts[vertex];
+            int position = Arrays.binarySearch(faces, start, start + count, face);
+            // При повторе вершины в полигоне запись уже убрана на прошлом шаге
+            if (position >= 0) {
+                System.arraycopy(faces, position + 1, faces, position, start + count - position - 1);
+                counts[vertex] = count - 1;
+            }
+        }
+    }
+
+    /**
+     * Возвращает полигон face в отрезки его вершин (после отмены удаления). Если в отрезке какой-то
+     * вершины нет свободного места, индекс не меняется и возвращается false — его нужно построить заново.
+     */
+    boolean addFace(int face, PolygonList polygons) {
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer indices = polygons.vertexIndexBuffer();
+        int from = offsets.get(face);
+        int to = offsets.get(face + 1);
+        for (int k = from; k < to; k++) {
+            int vertex = indices.get(k);
+            if (counts[vertex] == starts[vertex + 1] - starts[vertex]) {
+                return false;
+            }
+        }
+        for (int k = from; k < to; k++) {
+            int vertex = indices.get(k);
+            int start = starts[vertex];
+            int count = counts[vertex];
+            int position = Arrays.binarySearch(faces, start, start + count, face);
+            if (position < 0) {
+                position = -position - 1;
+                System.arraycopy(faces, position, faces, position + 1, start + count - position);
+                faces[position] = face;
+                counts[vertex] = count + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Убирает вершину: номера следующих вершин уменьшаются на единицу. Полигоны с этой вершиной
+     * должны быть убраны раньше; ее отрезок становится свободным местом предыдущей вершины.
+     */
+    void removeVertex(int vertex) {
+        Objects.checkIndex(vertex, vertexCount);
+        System.arraycopy(starts, vertex + 1, starts, vertex, vertexCount - vertex);
+        System.arraycopy(counts, vertex + 1, counts, vertex, vertexCount - vertex - 1);
+        vertexCount--;
+    }
+
+    /**
+     * Перенумеровывает полигоны после сжатия списка: remap[p] — новый номер полигона p.
+     * Порядок номеров сохраняется, поэтому отрезки остаются отсортированными.
+     */
+    void remapFaces(int[] remap) {
+        IntStream.range(0, vertexCount).parallel().forEach(v -> {
+            for (int k = starts[v], end = k + counts[v]; k < end; k++) {
+                faces[k] = remap[faces[k]];
+            }
+        });
+    }
+}
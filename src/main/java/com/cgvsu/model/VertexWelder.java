@@ -0,0 +1,176 @@
+package com.cgvsu.model;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Сваривание совпадающих вершин через пространственную хеш-сетку.
+ * Ячейка сетки не меньше 2 * epsilon, поэтому близкие вершины лежат в своей ячейке
+ * или в соседних со стороны ближайших граней — всего 8 ячеек.
+ * Сетка — отсортированный массив пар (хеш ячейки, индекс вершины) и таблица начала
+ * каждой ячейки в нем. Близкие пары объединяются в системе непересекающихся множеств, корень
+ * которой — наименьший индекс. Сортировка, поиск соседей и перенумерация полигонов выполняются параллельно.
+ */
+final class VertexWelder {
+
+    // Ячейка не делается мельче, чтобы координаты ячеек не переполняли long
+    private static final float MIN_CELL_SIZE = 1e-6f;
+
+    private final float epsilon;
+    private final float cellSize;
+
+    // Координаты вершин модели подряд: x, y, z
+    private FloatBuffer positions;
+    private long[] grid;
+    // Открытая адресация: хеш ячейки -> начало ее записей в grid
+    private int[] cellHashes;
+    private int[] cellStarts;
+    private int tableMask;
+    // Родитель вершины в системе непересекающихся множеств; родитель всегда не больше самой вершины
+    private AtomicIntegerArray parents;
+
+    VertexWelder(float epsilon) {
+        this.epsilon = epsilon;
+        this.cellSize = Math.max(2 * epsilon, MIN_CELL_SIZE);
+    }
+
+    /**
+     * Сваривает вершины модели и возвращает число удаленных вершин.
+     * Вершины, близкие в пределах epsilon по каждой координате, сливаются вместе с цепочками
+     * близких к ним вершин, так что результат не зависит от порядка вершин.
+     * Позиция берется у вершины с наименьшим индексом.
+     */
+    int weld(Model model) {
+        Vector3fList vertices = model.getVerticesInternal();
+        int count = vertices.size();
+        if (count < 2) return 0;
+
+        positions = vertices.buffer();
+        grid = new long[count];
+        IntStream.range(0, count).parallel().forEach(i -> grid[i] =
+                ((long) cellHash(cell(positions.get(i * 3)), cell(positions.get(i * 3 + 1)), cell(positions.get(i * 3 + 2))) << 32) | i);
+        Arrays.parallelSort(grid);
+        buildCellTable();
+
+        parents = new AtomicIntegerArray(count);
+        for (int i = 0; i < count; i++) {
+            parents.set(i, i);
+        }
+        IntStream.range(0, count).parallel().forEach(this::unionNear);
+        int[] target = new int[count];
+        IntStream.range(0, count).parallel().forEach(i -> target[i] = find(i));
+        parents = null;
+
+        // target[i] <= i и target[target[i]] == target[i], поэтому хватает одного прохода по возрастанию
+        int[] remap = new int[count];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            remap[i] = target[i] == i ? kept++ : remap[target[i]];
+        }
+        if (kept == count) return 0;
+
+        // remap[i] <= i, поэтому оставшиеся вершины сдвигаются к началу на месте, без второго массива
+        FloatBuffer writable = vertices.writableBuffer();
+        for (int i = 0; i < count; i++) {
+            if (target[i] == i && remap[i] != i) writable.put(remap[i] * 3, positions, i * 3, 3);
+        }
+        model.getPolygonsInternal().remapVertexIndices(remap);
+        vertices.truncate(kept);
+        return count - kept;
+    }
+
+    private void buildCellTable() {
+        int capacity = Integer.highestOneBit(Math.max(grid.length, 2) - 1) << 2;
+        cellHashes = new int[capacity];
+        cellStarts = new int[capacity];
+        Arrays.fill(cellStarts, -1);
+        tableMask = capacity - 1;
+        for (int k = 0; k < grid.length; k++) {
+            int hash = (int) (grid[k] >> 32);
+            if (k > 0 && (int) (grid[k - 1] >> 32) == hash) continue;
+            int slot = mix(hash) & tableMask;
+            while (cellStarts[slot] != -1) slot = (slot + 1) & tableMask;
+            cellHashes[slot] = hash;
+            cellStarts[slot] = k;
+        }
+    }
+
+    private int cellStart(int hash) {
+        for (int slot = mix(hash) & tableMask; cellStarts[slot] != -1; slot = (slot + 1) & tableMask) {
+            if (cellHashes[slot] == hash) return cellStarts[slot];
+        }
+        return -1;
+    }
+
+    // Объединяет вершину со всеми близкими вершинами меньшего индекса; пару видит только вершина с большим индексом
+    private void unionNear(int i) {
+        float x = positions.get(i * 3), y = positions.get(i * 3 + 1), z = positions.get(i * 3 + 2);
+        long cx = cell(x), cy = cell(y), cz = cell(z);
+        long nx = neighbour(x, cx), ny = neighbour(y, cy), nz = neighbour(z, cz);
+        for (int corner = 0; corner < 8; corner++) {
+            int hash = cellHash((corner & 1) == 0 ? cx : nx, (corner & 2) == 0 ? cy : ny, (corner & 4) == 0 ? cz : nz);
+            int start = cellStart(hash);
+            if (start == -1) continue;
+            // Внутри ячейки записи идут по возрастанию индекса
+            for (int k = start; k < grid.length && (int) (grid[k] >> 32) == hash; k++) {
+                int j = (int) grid[k];
+                if (j >= i) break;
+                if (isNear(i, j)) union(i, j);
+            }
+        }
+    }
+
+    // Корень всегда подвешивается к меньшему корню, поэтому корень множества — его наименьший индекс
+    private void union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b) return;
+            if (a < b) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            if (parents.compareAndSet(a, a, b)) return;
+        }
+    }
+
+    // Сжатие путей делением пополам: записываемый родитель — всегда предок, так что гонки безопасны
+    private int find(int i) {
+        int parent = parents.get(i);
+        while (parent != i) {
+            int grandparent = parents.get(parent);
+            parents.compareAndSet(i, parent, grandparent);
+            i = grandparent;
+            parent = parents.get(i);
+        }
+        return i;
+    }
+
+    // Соседняя ячейка со стороны ближайшей грани
+    private long neighbour(float coordinate, long cell) {
+        return coordinate / cellSize - cell < 0.5f ? cell - 1 : cell + 1;
+    }
+
+    private boolean isNear(int i, int j) {
+        return Math.abs(positions.get(i * 3) - positions.get(j * 3)) <= epsilon
+                && Math.abs(positions.get(i * 3 + 1) - positions.get(j * 3 + 1)) <= epsilon
+                && Math.abs(positions.get(i * 3 + 2) - positions.get(j * 3 + 2)) <= epsilon;
+    }
+
+    private long cell(float coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    // Коллизии хешей безопасны: кандидаты все равно проверяются по расстоянию
+    private static int cellHash(long x, long y, long z) {
+        long h = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + z * 0x165667B19E3779F9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int mix(int hash) {
+        return hash * 0x9E3779B9 ^ (hash >>> 16);
+    }
+}
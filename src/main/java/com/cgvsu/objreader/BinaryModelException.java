@@ -0,0 +1,10 @@
+package com.cgvsu.objreader;
+
+/**
+ * Ошибка формата бинарного PLY или STL. В отличие от ObjReaderException, номера строки у нее нет.
+ */
+public class BinaryModelException extends RuntimeException {
+	public BinaryModelException(String message) {
+		super(message);
+	}
+}
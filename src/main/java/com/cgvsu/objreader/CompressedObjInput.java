@@ -0,0 +1,140 @@
+package com.cgvsu.objreader;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Сжатые OBJ: .obj.gz и .zip-архивы. Формат определяется по сигнатуре файла, а не по расширению.
+ * Распакованные данные идут прямо в парсер потоком, без временных файлов и без строки со всем текстом.
+ */
+final class CompressedObjInput {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private CompressedObjInput() {
+	}
+
+	static boolean isCompressed(Path path) throws IOException {
+		int magic = readMagic(path);
+		return isGzip(magic) || isZip(magic);
+	}
+
+	/**
+	 * Открывает распакованный поток поверх file — потока самого файла path.
+	 * Для архива берется запись entryName, а если она не задана — первая запись с расширением .obj.
+	 */
+	static InputStream open(Path path, String entryName, InputStream file) throws IOException {
+		int magic = readMagic(path);
+		if (isGzip(magic)) {
+			return new GZIPInputStream(file, BUFFER_SIZE);
+		}
+		if (!isZip(magic)) {
+			throw new IOException("Not a gzip or zip file: " + path);
+		}
+		ZipInputStream zip = new ZipInputStream(new BufferedInputStream(file, BUFFER_SIZE));
+		ZipEntry entry;
+		while ((entry = zip.getNextEntry()) != null) {
+			if (entryName == null ? isObjEntry(entry) : entry.getName().equals(entryName)) {
+				return zip;
+			}
+		}
+		zip.close();
+		throw new IOException(entryName == null
+				? "No .obj entry in archive: " + path
+				: "Entry " + entryName + " not found in archive: " + path);
+	}
+
+	/**
+	 * Имена OBJ-записей архива в порядке центрального каталога.
+	 */
+	static List<String> listObjEntries(Path path) throws IOException {
+		List<String> names = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (isObjEntry(entry)) {
+					names.add(entry.getName());
+				}
+			}
+		}
+		return names;
+	}
+
+	private static boolean isObjEntry(ZipEntry entry) {
+		return !entry.isDirectory() && entry.getName().toLowerCase(Locale.ROOT).endsWith(".obj");
+	}
+
+	// Первые четыре байта файла, big-endian; -1, если файл короче
+	private static int readMagic(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			while (magic.hasRemaining() && channel.read(magic) > 0) {
+				// дочитываем сигнатуру
+			}
+			return magic.hasRemaining() ? -1 : magic.getInt(0);
+		}
+	}
+
+	private static boolean isGzip(int magic) {
+		return magic != -1 && (magic >>> 16) == 0x1F8B;
+	}
+
+	private static boolean isZip(int magic) {
+		return magic == 0x504B0304;
+	}
+
+	/**
+	 * Считает прочитанные из файла (сжатые) байты — по ним показывается прогресс загрузки.
+	 */
+	static final class CountingInputStream extends FilterInputStream {
+		private volatile long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,383 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PolygonList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Чтение сеток из GLB (бинарный glTF 2.0) без внешних библиотек.
+ * Файл отображается в память; JSON-чанк разбирается {@link JsonReader}, а BIN-чанк
+ * читается напрямую: плотно упакованные float- и uint-аксессоры копируются в массивы
+ * одной операцией через FloatBuffer/IntBuffer-представления, остальные — поэлементно.
+ * <p>
+ * Все треугольные примитивы всех сеток (TRIANGLES, TRIANGLE_STRIP, TRIANGLE_FAN) собираются
+ * в одну модель: POSITION — вершины, NORMAL — нормали, TEXCOORD_0 — текстурные координаты
+ * (v переворачивается под соглашение OBJ). Трансформации узлов сцены не применяются.
+ */
+public final class GlbReader {
+
+	private static final int MAGIC = 0x46546C67;
+	private static final int JSON_CHUNK = 0x4E4F534A;
+	private static final int BIN_CHUNK = 0x004E4942;
+	private static final int HEADER_SIZE = 12;
+
+	private static final int MODE_TRIANGLES = 4;
+	private static final int MODE_TRIANGLE_STRIP = 5;
+	private static final int MODE_TRIANGLE_FAN = 6;
+
+	private static final int BYTE = 5120;
+	private static final int UNSIGNED_BYTE = 5121;
+	private static final int SHORT = 5122;
+	private static final int UNSIGNED_SHORT = 5123;
+	private static final int UNSIGNED_INT = 5125;
+	private static final int FLOAT = 5126;
+
+	// Аксессор без bufferView заполняется нулями: его размер не ограничен данными файла, поэтому ограничен здесь
+	private static final int MAX_ZERO_FILLED_COUNT = 1 << 20;
+
+	private GlbReader() {
+	}
+
+	public static Model read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new BinaryModelException("GLB file is too large: " + size + " bytes");
+			}
+			if (size < HEADER_SIZE) {
+				throw new BinaryModelException("Not a GLB file");
+			}
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			data.order(ByteOrder.LITTLE_ENDIAN);
+			try {
+				return read(data);
+			} catch (IndexOutOfBoundsException e) {
+				throw new BinaryModelException("Unexpected end of GLB data");
+			} catch (ClassCastException | NullPointerException e) {
+				throw new BinaryModelException("Invalid glTF structure");
+			}
+		}
+	}
+
+	private static Model read(ByteBuffer data) {
+		if (data.getInt(0) != MAGIC) {
+			throw new BinaryModelException("Not a GLB file");
+		}
+		int version = data.getInt(4);
+		if (version != 2) {
+			throw new BinaryModelException("Unsupported glTF version: " + version);
+		}
+		int length = Math.min(data.getInt(8), data.limit());
+
+		String json = null;
+		ByteBuffer bin = null;
+		int position = HEADER_SIZE;
+		while (position + 8 <= length) {
+			int chunkLength = data.getInt(position);
+			int chunkType = data.getInt(position + 4);
+			int start = position + 8;
+			if (chunkLength < 0 || start + chunkLength > length) {
+				throw new BinaryModelException("Unexpected end of GLB data");
+			}
+			if (chunkType == JSON_CHUNK && json == null) {
+				byte[] bytes = new byte[chunkLength];
+				data.get(start, bytes);
+				json = new String(bytes, StandardCharsets.UTF_8);
+			} else if (chunkType == BIN_CHUNK && bin == null) {
+				bin = data.slice(start, chunkLength).order(ByteOrder.LITTLE_ENDIAN);
+			}
+			// Чанки выровнены по 4 байта
+			position = start + ((chunkLength + 3) & ~3);
+		}
+		if (json == null) {
+			throw new BinaryModelException("GLB has no JSON chunk");
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> root = (Map<String, Object>) JsonReader.parse(json);
+		return new Decoder(root, bin).decode();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static final class Decoder {
+		private final Map<String, Object> root;
+		private final ByteBuffer bin;
+		private final Model result = new Model();
+
+		Decoder(Map<String, Object> root, ByteBuffer bin) {
+			this.root = root;
+			this.bin = bin;
+		}
+
+		Model decode() {
+			List<Object> required = list(root, "extensionsRequired");
+			if (!required.isEmpty()) {
+				throw new BinaryModelException("Unsupported glTF extensions: " + required);
+			}
+			List<Object> buffers = list(root, "buffers");
+			if (!buffers.isEmpty() && ((Map<String, Object>) buffers.get(0)).containsKey("uri")) {
+				throw new BinaryModelException("External glTF buffers are not supported");
+			}
+			for (Object mesh : list(root, "meshes")) {
+				for (Object primitive : list((Map<String, Object>) mesh, "primitives")) {
+					readPrimitive((Map<String, Object>) primitive);
+				}
+			}
+			return result;
+		}
+
+		private void readPrimitive(Map<String, Object> primitive) {
+			int mode = intField(primitive, "mode", MODE_TRIANGLES);
+			if (mode != MODE_TRIANGLES && mode != MODE_TRIANGLE_STRIP && mode != MODE_TRIANGLE_FAN) {
+				// Точки и линии поверхностью не являются
+				return;
+			}
+			Map<String, Object> attributes = (Map<String, Object>) primitive.get("attributes");
+			if (attributes == null || !attributes.containsKey("POSITION")) {
+				return;
+			}
+
+			float[] positions = readFloats(intField(attributes, "POSITION", -1), 3);
+			int vertexCount = positions.length / 3;
+			float[] normals = attributes.containsKey("NORMAL")
+					? readFloats(intField(attributes, "NORMAL", -1), 3) : null;
+			float[] textures = attributes.containsKey("TEXCOORD_0")
+					? readFloats(intField(attributes, "TEXCOORD_0", -1), 2) : null;
+			if (normals != null && normals.length != positions.length
+					|| textures != null && textures.length / 2 != vertexCount) {
+				throw new BinaryModelException("glTF attribute counts do not match");
+			}
+			int[] indices = primitive.containsKey("indices")
+					? readIndices(intField(primitive, "indices", -1)) : sequence(vertexCount);
+
+			int vertexBase = result.getVertices().size();
+			int normalBase = result.getNormals().size();
+			int textureBase = result.getTextureVertices().size();
+			result.getVerticesInternal().addAll(positions, 0, vertexCount);
+			if (normals != null) {
+				result.getNormalsInternal().addAll(normals, 0, vertexCount);
+			}
+			if (textures != null) {
+				for (int i = 1; i < textures.length; i += 2) {
+					textures[i] = 1 - textures[i];
+				}
+				result.getTextureVerticesInternal().addAll(textures, 0, vertexCount);
+			}
+
+			int triangleCount = mode == MODE_TRIANGLES ? indices.length / 3 : Math.max(0, indices.length - 2);
+			PolygonList polygons = result.getPolygonsInternal();
+			polygons.ensureCapacity(polygons.size() + triangleCount);
+			int[] vertexIndices = new int[3];
+			int[] textureIndices = new int[3];
+			int[] normalIndices = new int[3];
+			for (int t = 0; t < triangleCount; t++) {
+				int a, b, c;
+				if (mode == MODE_TRIANGLES) {
+					a = indices[t * 3];
+					b = indices[t * 3 + 1];
+					c = indices[t * 3 + 2];
+				} else if (mode == MODE_TRIANGLE_STRIP) {
+					// Каждый второй треугольник полосы разворачивается, чтобы сохранить обход
+					a = indices[t];
+					b = indices[(t & 1) == 0 ? t + 1 : t + 2];
+					c = indices[(t & 1) == 0 ? t + 2 : t + 1];
+				} else {
+					a = indices[0];
+					b = indices[t + 1];
+					c = indices[t + 2];
+				}
+				checkIndex(a, vertexCount);
+				checkIndex(b, vertexCount);
+				checkIndex(c, vertexCount);
+				setTriangle(vertexIndices, vertexBase, a, b, c);
+				setTriangle(textureIndices, textureBase, a, b, c);
+				setTriangle(normalIndices, normalBase, a, b, c);
+				polygons.add(vertexIndices, 3,
+						textureIndices, textures != null ? 3 : 0,
+						normalIndices, normals != null ? 3 : 0);
+			}
+		}
+
+		private static void setTriangle(int[] target, int base, int a, int b, int c) {
+			target[0] = base + a;
+			target[1] = base + b;
+			target[2] = base + c;
+		}
+
+		private static void checkIndex(int index, int vertexCount) {
+			if (index < 0 || index >= vertexCount) {
+				throw new BinaryModelException("glTF index " + Integer.toUnsignedString(index) + " is out of range");
+			}
+		}
+
+		private static int[] sequence(int count) {
+			int[] result = new int[count];
+			for (int i = 0; i < count; i++) {
+				result[i] = i;
+			}
+			return result;
+		}
+
+		// Значения аксессора как float; плотный FLOAT копируется одной операцией
+		private float[] readFloats(int accessorIndex, int components) {
+			Map<String, Object> accessor = accessor(accessorIndex, components);
+			int count = count(accessor);
+			int componentType = intField(accessor, "componentType", FLOAT);
+			boolean normalized = Boolean.TRUE.equals(accessor.get("normalized"));
+			if (!accessor.containsKey("bufferView")) {
+				return new float[count * components];
+			}
+
+			// Границы проверяются до выделения: после view() count * elementSize не больше бинарного блока
+			int componentSize = componentSize(componentType);
+			int elementSize = components * componentSize;
+			View view = view(accessor, count, elementSize);
+			float[] result = new float[count * components];
+			if (componentType == FLOAT && view.stride == elementSize) {
+				bin.slice(view.start, count * elementSize).order(ByteOrder.LITTLE_ENDIAN)
+						.asFloatBuffer().get(result);
+				return result;
+			}
+			for (int i = 0; i < count; i++) {
+				int element = view.start + i * view.stride;
+				for (int j = 0; j < components; j++) {
+					result[i * components + j] = readComponent(componentType, normalized, element + j * componentSize);
+				}
+			}
+			return result;
+		}
+
+		private int[] readIndices(int accessorIndex) {
+			Map<String, Object> accessor = accessor(accessorIndex, 1);
+			int count = count(accessor);
+			int componentType = intField(accessor, "componentType", UNSIGNED_INT);
+			if (componentType != UNSIGNED_BYTE && componentType != UNSIGNED_SHORT && componentType != UNSIGNED_INT) {
+				throw new BinaryModelException("Invalid glTF index type: " + componentType);
+			}
+			if (!accessor.containsKey("bufferView")) {
+				return new int[count];
+			}
+
+			int componentSize = componentSize(componentType);
+			View view = view(accessor, count, componentSize);
+			int[] result = new int[count];
+			if (componentType == UNSIGNED_INT && view.stride == componentSize) {
+				bin.slice(view.start, count * componentSize).order(ByteOrder.LITTLE_ENDIAN)
+						.asIntBuffer().get(result);
+				return result;
+			}
+			for (int i = 0; i < count; i++) {
+				int offset = view.start + i * view.stride;
+				result[i] = componentType == UNSIGNED_BYTE
+						? bin.get(offset) & 0xFF
+						: bin.getShort(offset) & 0xFFFF;
+			}
+			return result;
+		}
+
+		private static int count(Map<String, Object> accessor) {
+			int count = intField(accessor, "count", 0);
+			if (count < 0 || !accessor.containsKey("bufferView") && count > MAX_ZERO_FILLED_COUNT) {
+				throw new BinaryModelException("Invalid glTF accessor count: " + count);
+			}
+			return count;
+		}
+
+		private float readComponent(int componentType, boolean normalized, int offset) {
+			return switch (componentType) {
+				case FLOAT -> bin.getFloat(offset);
+				case BYTE -> normalized ? Math.max(bin.get(offset) / 127f, -1f) : bin.get(offset);
+				case UNSIGNED_BYTE -> normalized ? (bin.get(offset) & 0xFF) / 255f : bin.get(offset) & 0xFF;
+				case SHORT -> normalized ? Math.max(bin.getShort(offset) / 32767f, -1f) : bin.getShort(offset);
+				case UNSIGNED_SHORT -> normalized ? (bin.getShort(offset) & 0xFFFF) / 65535f : bin.getShort(offset) & 0xFFFF;
+				case UNSIGNED_INT -> Integer.toUnsignedLong(bin.getInt(offset));
+				default -> throw new BinaryModelException("Invalid glTF component type: " + componentType);
+			};
+		}
+
+		private static int componentSize(int componentType) {
+			return switch (componentType) {
+				case BYTE, UNSIGNED_BYTE -> 1;
+				case SHORT, UNSIGNED_SHORT -> 2;
+				case UNSIGNED_INT, FLOAT -> 4;
+				default -> throw new BinaryModelException("Invalid glTF component type: " + componentType);
+			};
+		}
+
+		private Map<String, Object> accessor(int index, int components) {
+			List<Object> accessors = list(root, "accessors");
+			if (index < 0 || index >= accessors.size()) {
+				throw new BinaryModelException("Invalid glTF accessor index: " + index);
+			}
+			Map<String, Object> accessor = (Map<String, Object>) accessors.get(index);
+			if (accessor.containsKey("sparse")) {
+				throw new BinaryModelException("Sparse glTF accessors are not supported");
+			}
+			String expected = components == 1 ? "SCALAR" : "VEC" + components;
+			if (!expected.equals(accessor.get("type"))) {
+				throw new BinaryModelException("glTF accessor " + index + " must be " + expected);
+			}
+			return accessor;
+		}
+
+		// Начало и шаг данных аксессора в BIN-чанке с проверкой границ
+		private View view(Map<String, Object> accessor, int count, int elementSize) {
+			List<Object> views = list(root, "bufferViews");
+			int viewIndex = intField(accessor, "bufferView", -1);
+			if (viewIndex < 0 || viewIndex >= views.size()) {
+				throw new BinaryModelException("Invalid glTF buffer view index: " + viewIndex);
+			}
+			Map<String, Object> view = (Map<String, Object>) views.get(viewIndex);
+			if (intField(view, "buffer", 0) != 0 || bin == null) {
+				throw new BinaryModelException("glTF buffer view " + viewIndex + " is not in the GLB binary chunk");
+			}
+			int viewStart = intField(view, "byteOffset", 0);
+			int viewLength = intField(view, "byteLength", 0);
+			int stride = intField(view, "byteStride", elementSize);
+			int start = viewStart + intField(accessor, "byteOffset", 0);
+			long end = count == 0 ? start : start + (long) stride * (count - 1) + elementSize;
+			if (viewStart < 0 || start < viewStart || stride < elementSize
+					|| end > (long) viewStart + viewLength || (long) viewStart + viewLength > bin.limit()) {
+				throw new BinaryModelException("glTF accessor is out of its buffer view");
+			}
+			return new View(start, stride);
+		}
+
+		private static List<Object> list(Map<String, Object> object, String key) {
+			Object value = object.get(key);
+			return value == null ? List.of() : (List<Object>) value;
+		}
+
+		private static int intField(Map<String, Object> object, String key, int defaultValue) {
+			Object value = object.get(key);
+			if (value == null) {
+				return defaultValue;
+			}
+			double number = (Double) value;
+			if (number != Math.rint(number) || number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+				throw new BinaryModelException("glTF field '" + key + "' must be an integer");
+			}
+			return (int) number;
+		}
+	}
+
+	private static final class View {
+		final int start;
+		final int stride;
+
+		View(int start, int stride) {
+			this.start = start;
+			this.stride = stride;
+		}
+	}
+}
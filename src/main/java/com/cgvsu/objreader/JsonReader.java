@@ -0,0 +1,181 @@
+package com.cgvsu.objreader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимальный разбор JSON для заголовка glTF, без внешних библиотек.
+ * Объекты становятся Map, массивы — List, числа — Double, а также String, Boolean и null.
+ */
+final class JsonReader {
+
+	private final String text;
+	private int position;
+
+	private JsonReader(String text) {
+		this.text = text;
+	}
+
+	static Object parse(String text) {
+		JsonReader reader = new JsonReader(text);
+		Object value = reader.readValue();
+		reader.skipWhitespace();
+		if (reader.position != text.length()) {
+			throw reader.error("Unexpected trailing characters");
+		}
+		return value;
+	}
+
+	private Object readValue() {
+		skipWhitespace();
+		if (position >= text.length()) {
+			throw error("Unexpected end of JSON");
+		}
+		char c = text.charAt(position);
+		return switch (c) {
+			case '{' -> readObject();
+			case '[' -> readArray();
+			case '"' -> readString();
+			case 't' -> readLiteral("true", Boolean.TRUE);
+			case 'f' -> readLiteral("false", Boolean.FALSE);
+			case 'n' -> readLiteral("null", null);
+			default -> readNumber();
+		};
+	}
+
+	private Map<String, Object> readObject() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		position++;
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return result;
+		}
+		while (true) {
+			skipWhitespace();
+			if (peek() != '"') {
+				throw error("Expected object key");
+			}
+			String key = readString();
+			skipWhitespace();
+			expect(':');
+			result.put(key, readValue());
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect('}');
+				return result;
+			}
+		}
+	}
+
+	private List<Object> readArray() {
+		List<Object> result = new ArrayList<>();
+		position++;
+		skipWhitespace();
+		if (peek() == ']') {
+			position++;
+			return result;
+		}
+		while (true) {
+			result.add(readValue());
+			skipWhitespace();
+			if (peek() == ',') {
+				position++;
+			} else {
+				expect(']');
+				return result;
+			}
+		}
+	}
+
+	private String readString() {
+		position++;
+		StringBuilder result = new StringBuilder();
+		while (true) {
+			if (position >= text.length()) {
+				throw error("Unterminated string");
+			}
+			char c = text.charAt(position++);
+			if (c == '"') {
+				return result.toString();
+			}
+			if (c != '\\') {
+				result.append(c);
+				continue;
+			}
+			if (position >= text.length()) {
+				throw error("Unterminated string");
+			}
+			char escaped = text.charAt(position++);
+			switch (escaped) {
+				case '"', '\\', '/' -> result.append(escaped);
+				case 'b' -> result.append('\b');
+				case 'f' -> result.append('\f');
+				case 'n' -> result.append('\n');
+				case 'r' -> result.append('\r');
+				case 't' -> result.append('\t');
+				case 'u' -> {
+					if (position + 4 > text.length()) {
+						throw error("Invalid unicode escape");
+					}
+					try {
+						result.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("Invalid unicode escape");
+					}
+					position += 4;
+				}
+				default -> throw error("Invalid escape");
+			}
+		}
+	}
+
+	private Object readLiteral(String literal, Object value) {
+		if (!text.startsWith(literal, position)) {
+			throw error("Unexpected token");
+		}
+		position += literal.length();
+		return value;
+	}
+
+	private Double readNumber() {
+		int start = position;
+		while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+			position++;
+		}
+		try {
+			return Double.valueOf(text.substring(start, position));
+		} catch (NumberFormatException e) {
+			throw error("Invalid number");
+		}
+	}
+
+	private void skipWhitespace() {
+		while (position < text.length()) {
+			char c = text.charAt(position);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			position++;
+		}
+	}
+
+	private char peek() {
+		return position < text.length() ? text.charAt(position) : '\0';
+	}
+
+	private void expect(char c) {
+		if (peek() != c) {
+			throw error("Expected '" + c + "'");
+		}
+		position++;
+	}
+
+	private BinaryModelException error(String message) {
+		return new BinaryModelException("Invalid glTF JSON at " + position + ": " + message);
+	}
+}
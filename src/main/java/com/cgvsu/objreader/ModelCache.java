@@ -0,0 +1,531 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.GeometryStorage;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PolygonList;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Бинарный кэш загруженных моделей.
+ * Для каждого OBJ хранится файл с плоскими little-endian блоками: вершины, текстурные
+ * вершины, нормали и индексы полигонов. Запись кэша привязана к пути, размеру,
+ * времени изменения и отпечатку содержимого исходного файла. При повторном открытии
+ * кэш отображается в память и копируется в модель целыми блоками без разбора текста.
+ * Устаревшая или поврежденная запись игнорируется, и файл разбирается заново.
+ * Имя записи зависит только от пути, поэтому новая версия файла замещает старую.
+ * Общий размер каталога ограничен: после записи самые давно использованные записи удаляются.
+ */
+public class ModelCache {
+
+	private static final int MAGIC = 0x4D443343; // "C3DM"
+	private static final int VERSION = 1;
+
+	// magic, version, sourceSize, sourceModified, fingerprint, pathLength,
+	// vertexCount, textureCount, normalCount, polygonCount, indexCount,
+	// textureIndexCount, normalIndexCount, payloadCrc
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 + 4 * 7 + 4;
+
+	private static final int FINGERPRINT_BLOCK = 1 << 16;
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+	private static final byte HAS_TEXTURES = 1;
+	private static final byte HAS_NORMALS = 2;
+
+	public static final long DEFAULT_MAX_SIZE = 2L << 30;
+
+	private static final String ENTRY_SUFFIX = ".bin";
+
+	private final Path directory;
+	private final long maxSize;
+
+	public ModelCache(Path directory) {
+		this(directory, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Кэш в каталоге directory, общий размер записей в котором не превышает maxSize байт
+	 * (кроме только что записанной, если она одна больше предела).
+	 */
+	public ModelCache(Path directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Кэш во временном каталоге системы.
+	 */
+	public static ModelCache inTempDirectory() {
+		return new ModelCache(Path.of(System.getProperty("java.io.tmpdir"), "cgvsu-model-cache"));
+	}
+
+	/**
+	 * Загружает модель из кэша, а при промахе разбирает OBJ и сохраняет результат в кэш.
+	 */
+	public Model load(Path source) throws IOException {
+		Key key = keyOf(source);
+		Model cached = readCached(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		Model model = ObjReader.readParallel(source);
+		try {
+			store(key, model);
+		} catch (IOException | RuntimeException e) {
+			// Кэш — только ускорение: ошибка записи не должна мешать открытию модели
+		}
+		return model;
+	}
+
+	/**
+	 * Ключ записи для текущего состояния файла. Его стоит получить до разбора файла,
+	 * чтобы запись не оказалась привязана к версии файла, измененной во время загрузки.
+	 */
+	public Key keyOf(Path source) throws IOException {
+		return Key.of(source);
+	}
+
+	/**
+	 * Ключ для записи entryName zip-архива: у разных записей одного архива свои записи в кэше.
+	 */
+	public Key keyOf(Path archive, String entryName) throws IOException {
+		Key key = Key.of(archive);
+		return entryName == null ? key : new Key(key.path + "!/" + entryName, key.size, key.modified, key.fingerprint);
+	}
+
+	/**
+	 * Модель из кэша или null, если записи нет, она устарела или повреждена.
+	 */
+	public Model readCached(Path source) throws IOException {
+		return readCached(keyOf(source));
+	}
+
+	public void store(Path source, Model model) throws IOException {
+		store(keyOf(source), model);
+	}
+
+	Path entryPath(Path source) {
+		return entryPath(source.toAbsolutePath().normalize().toString());
+	}
+
+	private Path entryPath(String sourcePath) {
+		CRC32C crc = new CRC32C();
+		crc.update(sourcePath.getBytes(StandardCharsets.UTF_8));
+		return directory.resolve(Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(sourcePath.hashCode()) + ENTRY_SUFFIX);
+	}
+
+	public Model readCached(Key key) throws IOException {
+		return readCached(key, GeometryStorage.HEAP);
+	}
+
+	/**
+	 * Модель из кэша с массивами в storage. Вне кучи данные копируются из отображенного файла
+	 * прямо в хранилище, без промежуточных массивов в куче, поэтому так можно открыть модель больше -Xmx.
+	 */
+	public Model readCached(Key key, GeometryStorage storage) throws IOException {
+		Path entry = entryPath(key.path);
+		if (!Files.isRegularFile(entry)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			Model model = decode(buffer, key, storage);
+			if (model != null) {
+				touch(entry);
+			}
+			return model;
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	private static Model decode(ByteBuffer buffer, Key key, GeometryStorage storage) {
+		if (buffer.remaining() < HEADER_SIZE
+				|| buffer.getInt() != MAGIC
+				|| buffer.getInt() != VERSION
+				|| buffer.getLong() != key.size
+				|| buffer.getLong() != key.modified
+				|| buffer.getLong() != key.fingerprint) {
+			return null;
+		}
+		int pathLength = buffer.getInt();
+		int vertexCount = buffer.getInt();
+		int textureCount = buffer.getInt();
+		int normalCount = buffer.getInt();
+		int polygonCount = buffer.getInt();
+		int indexCount = buffer.getInt();
+		int textureIndexCount = buffer.getInt();
+		int normalIndexCount = buffer.getInt();
+		int payloadCrc = buffer.getInt();
+
+		long expectedSize = (long) HEADER_SIZE + pathLength
+				+ 4L * (3L * vertexCount + 2L * textureCount + 3L * normalCount)
+				+ 4L * ((polygonCount + 1L) + indexCount + textureIndexCount + normalIndexCount)
+				+ polygonCount;
+		if (pathLength < 0 || vertexCount < 0 || textureCount < 0 || normalCount < 0 || polygonCount < 0
+				|| indexCount < 0 || textureIndexCount < 0 || normalIndexCount < 0
+				|| expectedSize != buffer.limit()) {
+			return null;
+		}
+
+		CRC32C crc = new CRC32C();
+		crc.update(buffer.duplicate());
+		if ((int) crc.getValue() != payloadCrc) {
+			return null;
+		}
+
+		byte[] pathBytes = new byte[pathLength];
+		buffer.get(pathBytes);
+		if (!key.path.equals(new String(pathBytes, StandardCharsets.UTF_8))) {
+			return null;
+		}
+
+		if (storage.isOffHeap()) {
+			return decodeInto(new Model(storage), buffer, vertexCount, textureCount, normalCount,
+					polygonCount, indexCount, textureIndexCount, normalIndexCount);
+		}
+
+		Model model = new Model();
+		model.getVerticesInternal().addAll(readFloats(buffer, 3 * vertexCount), 0, vertexCount);
+		model.getTextureVerticesInternal().addAll(readFloats(buffer, 2 * textureCount), 0, textureCount);
+		model.getNormalsInternal().addAll(readFloats(buffer, 3 * normalCount), 0, normalCount);
+
+		int[] offsets = readInts(buffer, polygonCount + 1);
+		int[] vertexIndices = readInts(buffer, indexCount);
+		int[] textureIndices = readInts(buffer, textureIndexCount);
+		int[] normalIndices = readInts(buffer, normalIndexCount);
+		byte[] flags = new byte[polygonCount];
+		buffer.get(flags);
+
+		// Полигоны собираются прямо из массивов файла; смещения текстур и нормалей восстанавливаются по флагам
+		int[] textureOffsets = new int[polygonCount + 1];
+		int[] normalOffsets = new int[polygonCount + 1];
+		for (int i = 0; i < polygonCount; i++) {
+			int size = offsets[i + 1] - offsets[i];
+			textureOffsets[i + 1] = textureOffsets[i] + ((flags[i] & HAS_TEXTURES) != 0 ? size : 0);
+			normalOffsets[i + 1] = normalOffsets[i] + ((flags[i] & HAS_NORMALS) != 0 ? size : 0);
+		}
+		if (offsets[0] != 0 || textureOffsets[polygonCount] != textureIndexCount
+				|| normalOffsets[polygonCount] != normalIndexCount) {
+			return null;
+		}
+		model.getPolygonsInternal().addAll(PolygonList.wrap(polygonCount, offsets, vertexIndices,
+				textureOffsets, textureIndices, normalOffsets, normalIndices));
+		return model;
+	}
+
+	// Вне кучи полигоны добавляются по одному через небольшие буферы, а координаты — целыми блоками
+	private static Model decodeInto(Model model, ByteBuffer buffer, int vertexCount, int textureCount, int normalCount,
+									int polygonCount, int indexCount, int textureIndexCount, int normalIndexCount) {
+		model.getVerticesInternal().addAll(floatView(buffer, 3 * vertexCount), 0, vertexCount);
+		model.getTextureVerticesInternal().addAll(floatView(buffer, 2 * textureCount), 0, textureCount);
+		model.getNormalsInternal().addAll(floatView(buffer, 3 * normalCount), 0, normalCount);
+
+		IntBuffer offsets = intView(buffer, polygonCount + 1);
+		IntBuffer vertexIndices = intView(buffer, indexCount);
+		IntBuffer textureIndices = intView(buffer, textureIndexCount);
+		IntBuffer normalIndices = intView(buffer, normalIndexCount);
+		int flagsStart = buffer.position();
+
+		PolygonList polygons = model.getPolygonsInternal();
+		polygons.ensureCapacity(polygonCount);
+		int[] vertices = new int[0];
+		int[] textures = new int[0];
+		int[] normals = new int[0];
+		int textureOffset = 0;
+		int normalOffset = 0;
+		if (offsets.get(0) != 0) {
+			return null;
+		}
+		for (int i = 0; i < polygonCount; i++) {
+			int start = offsets.get(i);
+			int size = offsets.get(i + 1) - start;
+			if (size < 0) {
+				return null;
+			}
+			if (vertices.length < size) {
+				vertices = new int[size];
+				textures = new int[size];
+				normals = new int[size];
+			}
+			byte flags = buffer.get(flagsStart + i);
+			int textureSize = (flags & HAS_TEXTURES) != 0 ? size : 0;
+			int normalSize = (flags & HAS_NORMALS) != 0 ? size : 0;
+			vertexIndices.get(start, vertices, 0, size);
+			textureIndices.get(textureOffset, textures, 0, textureSize);
+			normalIndices.get(normalOffset, normals, 0, normalSize);
+			polygons.add(vertices, size, textures, textureSize, normals, normalSize);
+			textureOffset += textureSize;
+			normalOffset += normalSize;
+		}
+		if (textureOffset != textureIndexCount || normalOffset != normalIndexCount) {
+			return null;
+		}
+		return model;
+	}
+
+	private static FloatBuffer floatView(ByteBuffer buffer, int count) {
+		FloatBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().limit(count);
+		buffer.position(buffer.position() + 4 * count);
+		return view;
+	}
+
+	private static IntBuffer intView(ByteBuffer buffer, int count) {
+		IntBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().limit(count);
+		buffer.position(buffer.position() + 4 * count);
+		return view;
+	}
+
+	private static float[] readFloats(ByteBuffer buffer, int count) {
+		float[] result = new float[count];
+		FloatBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		view.get(result);
+		buffer.position(buffer.position() + 4 * count);
+		return result;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) {
+		int[] result = new int[count];
+		IntBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		view.get(result);
+		buffer.position(buffer.position() + 4 * count);
+		return result;
+	}
+
+	public void store(Key key, Model model) throws IOException {
+		PolygonList polygons = model.getPolygonsInternal();
+		int polygonCount = polygons.size();
+		IntBuffer offsets = polygons.vertexOffsetBuffer();
+		IntBuffer textureOffsets = polygons.textureOffsetBuffer();
+		IntBuffer normalOffsets = polygons.normalOffsetBuffer();
+		for (int i = 0; i < polygonCount; i++) {
+			int size = offsets.get(i + 1) - offsets.get(i);
+			int textures = textureOffsets.get(i + 1) - textureOffsets.get(i);
+			int normals = normalOffsets.get(i + 1) - normalOffsets.get(i);
+			// Кэшируются только полигоны в том виде, который выдает ObjReader
+			if ((textures != 0 && textures != size) || (normals != 0 && normals != size)) {
+				return;
+			}
+		}
+		int indexCount = offsets.get(polygonCount);
+		int textureIndexCount = textureOffsets.get(polygonCount);
+		int normalIndexCount = normalOffsets.get(polygonCount);
+
+		Files.createDirectories(directory);
+		Path entry = entryPath(key.path);
+		Path temp = Files.createTempFile(directory, "entry", ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				BlockWriter writer = new BlockWriter(channel, HEADER_SIZE);
+				writer.putBytes(key.path.getBytes(StandardCharsets.UTF_8));
+				writer.putFloats(model.getVerticesInternal().buffer(), 3 * model.getVertices().size());
+				writer.putFloats(model.getTextureVerticesInternal().buffer(), 2 * model.getTextureVertices().size());
+				writer.putFloats(model.getNormalsInternal().buffer(), 3 * model.getNormals().size());
+				writer.putInts(offsets, polygonCount + 1);
+				writer.putInts(polygons.vertexIndexBuffer(), indexCount);
+				writer.putInts(polygons.textureIndexBuffer(), textureIndexCount);
+				writer.putInts(polygons.normalIndexBuffer(), normalIndexCount);
+				for (int i = 0; i < polygonCount; i++) {
+					byte flags = 0;
+					if (textureOffsets.get(i + 1) > textureOffsets.get(i)) flags |= HAS_TEXTURES;
+					if (normalOffsets.get(i + 1) > normalOffsets.get(i)) flags |= HAS_NORMALS;
+					writer.putByte(flags);
+				}
+				int payloadCrc = writer.finish();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION)
+						.putLong(key.size).putLong(key.modified).putLong(key.fingerprint)
+						.putInt(key.path.getBytes(StandardCharsets.UTF_8).length)
+						.putInt(model.getVertices().size())
+						.putInt(model.getTextureVertices().size())
+						.putInt(model.getNormals().size())
+						.putInt(polygonCount)
+						.putInt(indexCount)
+						.putInt(textureIndexCount)
+						.putInt(normalIndexCount)
+						.putInt(payloadCrc);
+				header.flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+			}
+			Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		evict(entry);
+	}
+
+	// Время изменения записи служит временем последнего использования для вытеснения
+	private static void touch(Path entry) {
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Порядок вытеснения станет менее точным, но запись все равно прочитана
+		}
+	}
+
+	// Удаляет самые давно использованные записи, пока их общий размер больше maxSize; keep не удаляется
+	private void evict(Path keep) throws IOException {
+		Map<Path, BasicFileAttributes> entries = new HashMap<>();
+		long total = 0;
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				if (!file.getFileName().toString().endsWith(ENTRY_SUFFIX)) continue;
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					entries.put(file, attributes);
+					total += attributes.size();
+				} catch (IOException e) {
+					// Запись удалили параллельно
+				}
+			}
+		}
+		if (total <= maxSize) {
+			return;
+		}
+		List<Path> oldestFirst = new ArrayList<>(entries.keySet());
+		oldestFirst.sort(Comparator.comparing(file -> entries.get(file).lastModifiedTime()));
+		for (Path entry : oldestFirst) {
+			if (total <= maxSize) break;
+			if (entry.equals(keep)) continue;
+			try {
+				Files.deleteIfExists(entry);
+				total -= entries.get(entry).size();
+			} catch (IOException e) {
+				// Запись может быть занята (например, отображена в память на Windows): пропускаем ее
+			}
+		}
+	}
+
+	// Последовательная запись через фиксированный direct-буфер с подсчетом CRC полезной нагрузки
+	private static final class BlockWriter {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32C crc = new CRC32C();
+		private long position;
+
+		BlockWriter(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		BlockWriter putFloat(float value) throws IOException {
+			ensure(4);
+			buffer.putFloat(value);
+			return this;
+		}
+
+		void putFloats(FloatBuffer values, int count) throws IOException {
+			for (int i = 0; i < count; i++) {
+				putFloat(values.get(i));
+			}
+		}
+
+		BlockWriter putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+			return this;
+		}
+
+		void putInts(IntBuffer values, int count) throws IOException {
+			for (int i = 0; i < count; i++) {
+				putInt(values.get(i));
+			}
+		}
+
+		void putByte(byte value) throws IOException {
+			ensure(1);
+			buffer.put(value);
+		}
+
+		void putBytes(byte[] values) throws IOException {
+			for (byte value : values) {
+				putByte(value);
+			}
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			crc.update(buffer.duplicate());
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			buffer.clear();
+		}
+
+		int finish() throws IOException {
+			flush();
+			return (int) crc.getValue();
+		}
+	}
+
+	/**
+	 * Ключ записи: путь, размер, время изменения и отпечаток содержимого (начало, середина и конец файла).
+	 */
+	public static final class Key {
+		final String path;
+		final long size;
+		final long modified;
+		final long fingerprint;
+
+		private Key(String path, long size, long modified, long fingerprint) {
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+			this.fingerprint = fingerprint;
+		}
+
+		static Key of(Path source) throws IOException {
+			Path absolute = source.toAbsolutePath().normalize();
+			BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+			long size = attributes.size();
+			long modified = attributes.lastModifiedTime().toMillis();
+
+			CRC32C crc = new CRC32C();
+			try (FileChannel channel = FileChannel.open(absolute, StandardOpenOption.READ)) {
+				ByteBuffer block = ByteBuffer.allocate(FINGERPRINT_BLOCK);
+				long[] positions = {0, Math.max(0, size / 2 - FINGERPRINT_BLOCK / 2), Math.max(0, size - FINGERPRINT_BLOCK)};
+				for (long position : positions) {
+					block.clear();
+					while (block.hasRemaining() && channel.read(block, position + block.position()) > 0) {
+						// дочитываем блок целиком
+					}
+					block.flip();
+					crc.update(block);
+				}
+			}
+			return new Key(absolute.toString(), size, modified, (size << 32) ^ crc.getValue());
+		}
+	}
+}
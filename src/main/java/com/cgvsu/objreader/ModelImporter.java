@@ -0,0 +1,173 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Одновременный импорт множества файлов. Файлы разбираются на пуле потоков
+ * по числу ядер, а число одновременных разборов ограничено свободной памятью:
+ * каждый разбор заранее резервирует оценку своего объема, и новые файлы
+ * не начинаются, пока резерва не хватает. Готовые модели отдаются по мере завершения.
+ */
+public final class ModelImporter {
+
+	/**
+	 * Получатель результатов. Вызывается из рабочих потоков импорта.
+	 */
+	public interface Listener {
+		void onLoaded(Path file, Model model);
+
+		void onFailed(Path file, Exception error);
+	}
+
+	// Грубая оценка: объекты модели занимают в несколько раз больше текста OBJ
+	private static final long HEAP_PER_TEXT_BYTE = 4;
+	private static final long HEAP_PER_COMPRESSED_BYTE = 40;
+	// Какую долю свободной памяти можно занять разбором
+	private static final double MEMORY_SHARE = 0.5;
+	private static final int PERMIT_SIZE = 1 << 20;
+
+	private final ExecutorService executor;
+	private final Semaphore memory;
+	private final int memoryPermits;
+	private final CompletableFuture<Void> completion;
+	private final AtomicInteger finished = new AtomicInteger();
+	private final int total;
+	private volatile boolean cancelled;
+
+	private ModelImporter(List<Path> files, ModelCache cache, Listener listener, long memoryBudget) {
+		this.total = files.size();
+		this.memoryPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / PERMIT_SIZE));
+		this.memory = new Semaphore(memoryPermits, true);
+		int threads = Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "model-importer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		List<CompletableFuture<Void>> tasks = new ArrayList<>(files.size());
+		for (Path file : files) {
+			tasks.add(CompletableFuture.runAsync(() -> importFile(file, cache, listener), executor));
+		}
+		this.completion = CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+		this.completion.whenComplete((ignored, error) -> executor.shutdown());
+	}
+
+	/**
+	 * Запускает импорт. cache может быть null — тогда файлы всегда разбираются заново.
+	 */
+	public static ModelImporter start(List<Path> files, ModelCache cache, Listener listener) {
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		return new ModelImporter(files, cache, listener, (long) (free * MEMORY_SHARE));
+	}
+
+	/**
+	 * Файлы моделей в папке (.obj, .obj.gz, .zip, .ply, .stl, .glb), без обхода вложенных папок, по имени.
+	 */
+	public static List<Path> listModelFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(Files::isRegularFile)
+					.filter(ModelImporter::isModelFile)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	public static boolean isModelFile(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		return name.endsWith(".obj") || name.endsWith(".obj.gz") || name.endsWith(".zip") || isBinaryMeshFile(file);
+	}
+
+	/**
+	 * Бинарные PLY, STL и GLB: читаются напрямую из отображенного файла, кэш им не нужен.
+	 */
+	public static boolean isBinaryMeshFile(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		return name.endsWith(".ply") || name.endsWith(".stl") || name.endsWith(".glb");
+	}
+
+	/**
+	 * Читает модель любого поддерживаемого формата. В STL совпадающие вершины треугольников сливаются.
+	 * OBJ читается через cache, если он не null.
+	 */
+	public static Model readModelFile(Path file, ModelCache cache) throws IOException {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".ply")) {
+			return PlyReader.read(file);
+		}
+		if (name.endsWith(".stl")) {
+			return StlReader.read(file, true);
+		}
+		if (name.endsWith(".glb")) {
+			return GlbReader.read(file);
+		}
+		return cache != null ? cache.load(file) : ObjReader.readParallel(file);
+	}
+
+	public CompletableFuture<Void> getCompletion() {
+		return completion;
+	}
+
+	public int getFinishedCount() {
+		return finished.get();
+	}
+
+	public int getTotalCount() {
+		return total;
+	}
+
+	/**
+	 * Отменяет еще не начатые файлы и прерывает текущие разборы.
+	 */
+	public void cancel() {
+		cancelled = true;
+		executor.shutdownNow();
+		completion.cancel(false);
+	}
+
+	private void importFile(Path file, ModelCache cache, Listener listener) {
+		int permits = 0;
+		try {
+			permits = estimatePermits(file);
+			memory.acquire(permits);
+			try {
+				Model model = readModelFile(file, cache);
+				if (!cancelled) {
+					listener.onLoaded(file, model);
+				}
+			} finally {
+				memory.release(permits);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException | RuntimeException e) {
+			if (!cancelled) {
+				listener.onFailed(file, e);
+			}
+		} finally {
+			finished.incrementAndGet();
+		}
+	}
+
+	// Файл больше всего бюджета занимает его целиком и разбирается в одиночку
+	private int estimatePermits(Path file) throws IOException {
+		long perByte = CompressedObjInput.isCompressed(file) ? HEAP_PER_COMPRESSED_BYTE : HEAP_PER_TEXT_BYTE;
+		long estimate = Files.size(file) * perByte / PERMIT_SIZE + 1;
+		return (int) Math.min(estimate, memoryPermits);
+	}
+}
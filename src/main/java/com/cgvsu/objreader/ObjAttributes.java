@@ -0,0 +1,30 @@
+package com.cgvsu.objreader;
+
+/**
+ * Какие атрибуты вершин сохранять при чтении OBJ.
+ * Вершины и полигоны читаются всегда. Отброшенные атрибуты пропускаются на уровне байтов:
+ * строки vt/vn не разбираются вовсе (и поэтому не проверяются на ошибки),
+ * а в полигонах вместо соответствующих индексов остаются пустые массивы.
+ */
+public enum ObjAttributes {
+	POSITIONS(false, false),
+	POSITIONS_TEXTURES(true, false),
+	POSITIONS_NORMALS(false, true),
+	ALL(true, true);
+
+	private final boolean textures;
+	private final boolean normals;
+
+	ObjAttributes(boolean textures, boolean normals) {
+		this.textures = textures;
+		this.normals = normals;
+	}
+
+	public boolean keepsTextures() {
+		return textures;
+	}
+
+	public boolean keepsNormals() {
+		return normals;
+	}
+}
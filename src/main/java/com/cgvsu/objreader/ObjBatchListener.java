@@ -0,0 +1,17 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+
+/**
+ * Получатель порций модели при постепенной загрузке ({@link ObjReader#readProgressive}).
+ */
+public interface ObjBatchListener {
+
+	/**
+	 * @param batch      новые вершины, текстурные вершины, нормали и полигоны;
+	 *                   индексы в полигонах сквозные по всему файлу
+	 * @param bytesRead  сколько байт файла уже разобрано; в последней порции равно totalBytes
+	 * @param totalBytes размер файла
+	 */
+	void onBatch(Model batch, long bytesRead, long totalBytes);
+}
@@ -0,0 +1,228 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.LongSupplier;
+
+/**
+ * Построчный разбор OBJ поверх {@link ObjTokenizer}.
+ * Повторяет правила и сообщения об ошибках ObjReader, но не создает
+ * промежуточных строк, списков и объектов: координаты и индексы полигонов
+ * записываются прямо в массивы модели.
+ */
+final class ObjParser {
+
+	private final ObjTokenizer tokenizer;
+	private final boolean keepTextures;
+	private final boolean keepNormals;
+
+	// Переиспользуемые буферы индексов одного полигона
+	private int[] faceVertices = new int[8];
+	private int[] faceTextures = new int[8];
+	private int[] faceNormals = new int[8];
+
+	private int lineInd;
+
+	ObjParser(ReadableByteChannel channel) {
+		this(channel, ObjAttributes.ALL);
+	}
+
+	ObjParser(ReadableByteChannel channel, ObjAttributes attributes) {
+		this.tokenizer = new ObjTokenizer(channel);
+		this.keepTextures = attributes.keepsTextures();
+		this.keepNormals = attributes.keepsNormals();
+	}
+
+	/**
+	 * Количество учтенных строк (по ним нумеруются строки в ObjReaderException).
+	 */
+	int getLineCount() {
+		return lineInd;
+	}
+
+	/**
+	 * Сколько байт входа уже разобрано.
+	 */
+	long getBytesRead() {
+		return tokenizer.position();
+	}
+
+	void parse(Model result) throws IOException {
+		while (parseLine(result)) {
+			// вся модель собирается в result
+		}
+	}
+
+	/**
+	 * Разбор порциями: как только в текущей порции набирается batchSize элементов,
+	 * она отдается listener, а следующие элементы складываются в новую модель.
+	 * Между порциями проверяется прерывание потока, чтобы загрузку можно было отменить.
+	 */
+	void parseInBatches(int batchSize, ObjBatchListener listener, LongSupplier bytesRead, long totalBytes) throws IOException {
+		Model batch = new Model();
+		while (parseLine(batch)) {
+			if (elementCount(batch) >= batchSize) {
+				listener.onBatch(batch, Math.min(bytesRead.getAsLong(), totalBytes), totalBytes);
+				batch = new Model();
+				if (Thread.interrupted()) {
+					throw new InterruptedIOException("OBJ loading cancelled");
+				}
+			}
+		}
+		listener.onBatch(batch, totalBytes, totalBytes);
+	}
+
+	private static int elementCount(Model model) {
+		return model.getVertices().size() + model.getTextureVertices().size()
+				+ model.getNormals().size() + model.getPolygons().size();
+	}
+
+	// Разбирает одну строку; false, если строки закончились
+	private boolean parseLine(Model result) throws IOException {
+		if (!tokenizer.nextLine()) {
+			return false;
+		}
+		// Строка из одних пробелов не считалась и в старой реализации (split давал пустой массив)
+		if (tokenizer.isBlankLine()) {
+			return true;
+		}
+		++lineInd;
+
+		// Пустая строка или строка с отступом — первым "словом" была пустая строка
+		if (!tokenizer.startsWithToken()) {
+			return true;
+		}
+		tokenizer.nextToken();
+
+		if (tokenizer.tokenIs('v')) {
+			parseVertex(result);
+		} else if (tokenizer.tokenIs('v', 't')) {
+			if (keepTextures) {
+				parseTextureVertex(result);
+			}
+		} else if (tokenizer.tokenIs('v', 'n')) {
+			if (keepNormals) {
+				parseNormal(result);
+			}
+		} else if (tokenizer.tokenIs('f')) {
+			parseFace(result);
+		}
+		return true;
+	}
+
+	// Координаты пишутся прямо в массивы модели, без промежуточных векторов
+	private void parseVertex(Model result) {
+		result.getVerticesInternal().add(
+				nextFloat("Too few vertex arguments."),
+				nextFloat("Too few vertex arguments."),
+				nextFloat("Too few vertex arguments."));
+	}
+
+	private void parseTextureVertex(Model result) {
+		result.getTextureVerticesInternal().add(
+				nextFloat("Too few texture vertex arguments."),
+				nextFloat("Too few texture vertex arguments."));
+	}
+
+	private void parseNormal(Model result) {
+		result.getNormalsInternal().add(
+				nextFloat("Too few normal arguments."),
+				nextFloat("Too few normal arguments."),
+				nextFloat("Too few normal arguments."));
+	}
+
+	private float nextFloat(String tooFewMessage) {
+		if (!tokenizer.nextToken()) {
+			throw new ObjReaderException(tooFewMessage, lineInd);
+		}
+		try {
+			return tokenizer.parseTokenFloat();
+		} catch (NumberFormatException e) {
+			throw new ObjReaderException("Failed to parse float value.", lineInd);
+		}
+	}
+
+	private void parseFace(Model result) {
+		int vertexCount = tokenizer.countRemainingTokens();
+		if (vertexCount < 3) {
+			throw new ObjReaderException("Polygon must have at least 3 vertices.", lineInd);
+		}
+		if (faceVertices.length < vertexCount) {
+			int capacity = Math.max(vertexCount, faceVertices.length * 2);
+			faceVertices = new int[capacity];
+			faceTextures = new int[capacity];
+			faceNormals = new int[capacity];
+		}
+
+		boolean allHaveTextures = keepTextures;
+		boolean allHaveNormals = keepNormals;
+		for (int i = 0; i < vertexCount; i++) {
+			tokenizer.nextToken();
+			parseFaceWord(i);
+			allHaveTextures &= faceTextures[i] != -1;
+			allHaveNormals &= faceNormals[i] != -1;
+		}
+
+		// Индексы копируются из буферов разбора прямо в массивы полигонов модели
+		result.getPolygonsInternal().add(faceVertices, vertexCount,
+				faceTextures, allHaveTextures ? vertexCount : 0,
+				faceNormals, allHaveNormals ? vertexCount : 0);
+	}
+
+	// Слово полигона: v, v/vt, v/vt/vn или v//vn. Как и String.split("/"),
+	// пустые части в конце слова отбрасываются. -1 означает отсутствие индекса.
+	// Индексы отброшенных атрибутов не разбираются, проверяется только структура слова.
+	private void parseFaceWord(int i) {
+		int start = tokenizer.tokenStart();
+		int end = tokenizer.tokenEnd();
+
+		int end0 = end, start1 = end, end1 = end, start2 = end, end2 = end;
+		int parts = 0;
+		int significantParts = 0;
+		int partStart = start;
+		for (int j = start; j <= end; j++) {
+			if (j == end || tokenizer.byteAt(j) == '/') {
+				switch (parts) {
+					case 0 -> end0 = j;
+					case 1 -> { start1 = partStart; end1 = j; }
+					case 2 -> { start2 = partStart; end2 = j; }
+					default -> {}
+				}
+				parts++;
+				if (j > partStart) {
+					significantParts = parts;
+				}
+				partStart = j + 1;
+			}
+		}
+
+		faceTextures[i] = -1;
+		faceNormals[i] = -1;
+		try {
+			switch (significantParts) {
+				case 1 -> faceVertices[i] = tokenizer.parseInt(start, end0) - 1;
+				case 2 -> {
+					faceVertices[i] = tokenizer.parseInt(start, end0) - 1;
+					if (keepTextures) {
+						faceTextures[i] = tokenizer.parseInt(start1, end1) - 1;
+					}
+				}
+				case 3 -> {
+					faceVertices[i] = tokenizer.parseInt(start, end0) - 1;
+					if (keepTextures && end1 > start1) {
+						faceTextures[i] = tokenizer.parseInt(start1, end1) - 1;
+					}
+					if (keepNormals) {
+						faceNormals[i] = tokenizer.parseInt(start2, end2) - 1;
+					}
+				}
+				default -> throw new ObjReaderException("Invalid element size.", lineInd);
+			}
+		} catch (NumberFormatException e) {
+			throw new ObjReaderException("Failed to parse int value.", lineInd);
+		}
+	}
+}
@@ -5,45 +5,138 @@ import com.cgvsu.math.Vector3f;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.Polygon;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Scanner;
+import java.util.List;
 
 public class ObjReader {
 
-	private static final String OBJ_VERTEX_TOKEN = "v";
-	private static final String OBJ_TEXTURE_TOKEN = "vt";
-	private static final String OBJ_NORMAL_TOKEN = "vn";
-	private static final String OBJ_FACE_TOKEN = "f";
+	private static final int[] NO_INDICES = new int[0];
 
 	public static Model read(String fileContent) {
-		Model result = new Model();
+		try {
+			return read(new ByteArrayInputStream(fileContent.getBytes(StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			// Чтение из массива в памяти не бросает IOException
+			throw new UncheckedIOException(e);
+		}
+	}
 
-		int lineInd = 0;
-		Scanner scanner = new Scanner(fileContent);
-		while (scanner.hasNextLine()) {
-			final String line = scanner.nextLine();
-			ArrayList<String> wordsInLine = new ArrayList<String>(Arrays.asList(line.split("\\s+")));
-			if (wordsInLine.isEmpty()) {
-				continue;
-			}
+	/**
+	 * Потоковое чтение модели из файла.
+	 * Файл читается через FileChannel порциями, поэтому пиковое потребление памяти
+	 * определяется размером самой модели, а не размером текста.
+	 */
+	public static Model read(Path path) throws IOException {
+		return read(path, ObjAttributes.ALL);
+	}
+
+	/**
+	 * Чтение только нужных атрибутов: отброшенные vt/vn и их индексы в полигонах пропускаются без разбора.
+	 * Файлы .obj.gz и .zip (первая OBJ-запись архива) распаковываются на лету.
+	 */
+	public static Model read(Path path, ObjAttributes attributes) throws IOException {
+		if (CompressedObjInput.isCompressed(path)) {
+			return readCompressed(path, null, attributes);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel, attributes);
+		}
+	}
+
+	/**
+	 * Чтение записи entryName из zip-архива.
+	 */
+	public static Model read(Path archive, String entryName, ObjAttributes attributes) throws IOException {
+		return readCompressed(archive, entryName, attributes);
+	}
+
+	/**
+	 * Имена OBJ-записей zip-архива, например для выбора модели пользователем.
+	 */
+	public static List<String> listObjEntries(Path archive) throws IOException {
+		return CompressedObjInput.listObjEntries(archive);
+	}
+
+	private static Model readCompressed(Path path, String entryName, ObjAttributes attributes) throws IOException {
+		try (InputStream file = Files.newInputStream(path);
+			 InputStream decompressed = CompressedObjInput.open(path, entryName, file)) {
+			return read(decompressed, attributes);
+		}
+	}
+
+	/**
+	 * Потоковое чтение модели из произвольного потока. Поток не закрывается.
+	 */
+	public static Model read(InputStream inputStream) throws IOException {
+		return read(inputStream, ObjAttributes.ALL);
+	}
+
+	public static Model read(InputStream inputStream, ObjAttributes attributes) throws IOException {
+		return read(Channels.newChannel(inputStream), attributes);
+	}
+
+	/**
+	 * Параллельное чтение большого файла на всех ядрах (файл отображается в память и делится по строкам).
+	 * Результат и ошибки совпадают с {@link #read(Path)}; небольшие файлы читаются последовательно.
+	 */
+	public static Model readParallel(Path path) throws IOException {
+		return readParallel(path, ObjAttributes.ALL);
+	}
+
+	public static Model readParallel(Path path, ObjAttributes attributes) throws IOException {
+		// Сжатый поток нельзя разрезать на независимые куски
+		if (CompressedObjInput.isCompressed(path)) {
+			return readCompressed(path, null, attributes);
+		}
+		return ParallelObjLoader.read(path, ParallelObjLoader.DEFAULT_MIN_CHUNK_SIZE, attributes);
+	}
 
-			final String token = wordsInLine.get(0);
-			wordsInLine.remove(0);
+	/**
+	 * Постепенная загрузка: модель отдается listener порциями по batchSize элементов
+	 * в порядке файла. Прерывание вызывающего потока отменяет загрузку (InterruptedIOException).
+	 */
+	public static void readProgressive(Path path, int batchSize, ObjBatchListener listener) throws IOException {
+		readProgressive(path, null, batchSize, listener);
+	}
 
-			++lineInd;
-			switch (token) {
-				case OBJ_VERTEX_TOKEN -> result.getVertices().add(parseVertex(wordsInLine, lineInd));
-				case OBJ_TEXTURE_TOKEN -> result.getTextureVertices().add(parseTextureVertex(wordsInLine, lineInd));
-				case OBJ_NORMAL_TOKEN -> result.getNormals().add(parseNormal(wordsInLine, lineInd));
-				case OBJ_FACE_TOKEN -> result.getPolygons().add(parseFace(wordsInLine, lineInd));
-				default -> {}
+	/**
+	 * То же для сжатых файлов: entryName — запись zip-архива (null — первая OBJ-запись).
+	 * Прогресс считается по прочитанным сжатым байтам.
+	 */
+	public static void readProgressive(Path path, String entryName, int batchSize, ObjBatchListener listener) throws IOException {
+		if (entryName == null && !CompressedObjInput.isCompressed(path)) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				ObjParser parser = new ObjParser(channel);
+				parser.parseInBatches(batchSize, listener, parser::getBytesRead, channel.size());
 			}
+			return;
+		}
+		try (CompressedObjInput.CountingInputStream file = new CompressedObjInput.CountingInputStream(Files.newInputStream(path));
+			 InputStream decompressed = CompressedObjInput.open(path, entryName, file)) {
+			new ObjParser(Channels.newChannel(decompressed)).parseInBatches(batchSize, listener, file::getCount, Files.size(path));
 		}
+	}
 
+	private static Model read(ReadableByteChannel channel, ObjAttributes attributes) throws IOException {
+		Model result = new Model();
+		new ObjParser(channel, attributes).parse(result);
 		return result;
 	}
 
+	// Методы ниже разбирают уже разбитые на слова строки.
+	// Основной путь чтения (ObjParser) работает с байтами напрямую, но с теми же правилами и сообщениями.
+
 	protected static Vector3f parseVertex(final ArrayList<String> wordsInLineWithoutToken, int lineInd) {
 		try {
 			return new Vector3f(
@@ -95,89 +188,43 @@ public class ObjReader {
 			throw new ObjReaderException("Polygon must have at least 3 vertices.", lineInd);
 		}
 
-		// Создаем полигон с известным размером
-		Polygon polygon = new Polygon(vertexCount);
-
-		// Подготовим массивы
 		int[] vertexIndices = new int[vertexCount];
-		int[] textureIndices = new int[vertexCount];
-		int[] normalIndices = new int[vertexCount];
-
-		// Флаги наличия данных
-		boolean hasTextures = false;
-		boolean hasNormals = false;
+		// Массивы текстур и нормалей создаются, только пока атрибут есть у всех вершин:
+		// если он пропущен хотя бы у одной, полигон остается без него
+		int[] textureIndices = null;
+		int[] normalIndices = null;
+		boolean allHaveTextures = true;
+		boolean allHaveNormals = true;
 
-		// Парсим каждое слово
 		for (int i = 0; i < vertexCount; i++) {
-			String word = wordsInLineWithoutToken.get(i);
-			int[] indices = parseFaceWord(word, lineInd);
-
-			// Вершина всегда должна быть
+			int[] indices = parseFaceWord(wordsInLineWithoutToken.get(i), lineInd);
 			vertexIndices[i] = indices[0];
 
-			// Текстурные координаты (могут отсутствовать)
-			if (indices[1] != -1) {
-				textureIndices[i] = indices[1];
-				hasTextures = true;
-			} else {
-				textureIndices[i] = -1; // маркер отсутствия
-			}
-
-			// Нормали (могут отсутствовать)
-			if (indices[2] != -1) {
-				normalIndices[i] = indices[2];
-				hasNormals = true;
-			} else {
-				normalIndices[i] = -1; // маркер отсутствия
-			}
-		}
-
-		// Устанавливаем индексы вершин (всегда есть)
-		polygon.setVertexIndices(vertexIndices);
-
-		// Устанавливаем текстурные координаты (если есть)
-		if (hasTextures) {
-			// Проверяем, что все вершины имеют текстурные координаты
-			boolean allHaveTextures = true;
-			for (int i = 0; i < vertexCount; i++) {
-				if (textureIndices[i] == -1) {
+			if (allHaveTextures) {
+				if (indices[1] == -1) {
 					allHaveTextures = false;
-					break;
+				} else {
+					if (textureIndices == null) {
+						textureIndices = new int[vertexCount];
+					}
+					textureIndices[i] = indices[1];
 				}
 			}
-
-			if (allHaveTextures) {
-				polygon.setTextureVertexIndices(textureIndices);
-			} else {
-				// Если не все вершины имеют текстурные координаты, создаем пустой массив
-				polygon.setTextureVertexIndices(new int[0]);
-			}
-		} else {
-			polygon.setTextureVertexIndices(new int[0]);
-		}
-
-		// Устанавливаем нормали (если есть)
-		if (hasNormals) {
-			// Проверяем, что все вершины имеют нормали
-			boolean allHaveNormals = true;
-			for (int i = 0; i < vertexCount; i++) {
-				if (normalIndices[i] == -1) {
+			if (allHaveNormals) {
+				if (indices[2] == -1) {
 					allHaveNormals = false;
-					break;
+				} else {
+					if (normalIndices == null) {
+						normalIndices = new int[vertexCount];
+					}
+					normalIndices[i] = indices[2];
 				}
 			}
-
-			if (allHaveNormals) {
-				polygon.setNormalIndices(normalIndices);
-			} else {
-				// Если не все вершины имеют нормали, создаем пустой массив
-				polygon.setNormalIndices(new int[0]);
-			}
-		} else {
-			polygon.setNormalIndices(new int[0]);
 		}
 
-		return polygon;
+		return new Polygon(vertexIndices,
+				allHaveTextures ? textureIndices : NO_INDICES,
+				allHaveNormals ? normalIndices : NO_INDICES);
 	}
 
 	// Возвращает массив из 3 элементов: [vertexIndex, textureIndex, normalIndex]
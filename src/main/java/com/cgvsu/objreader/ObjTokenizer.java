@@ -0,0 +1,365 @@
+package com.cgvsu.objreader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Побайтовый курсор по строкам и словам OBJ-файла.
+ * Данные читаются из канала в один переиспользуемый буфер, поэтому на строку
+ * не создается ни одного объекта (ни String, ни массивов слов).
+ * Пробельные символы совпадают с регулярным выражением \s: ' ', \t, \n, \u000B, \f, \r.
+ */
+final class ObjTokenizer {
+
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	// Степени десяти, точно представимые в double
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	// Мантисса до 2^53 точно представима в double
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final int MAX_MANTISSA_DIGITS = 18;
+	// Младшие 29 бит дробной части double, которых нет у float, и их значение в середине между двумя float
+	private static final long FLOAT_DROPPED_BITS = (1L << 29) - 1;
+	private static final long FLOAT_HALFWAY_BITS = 1L << 28;
+
+	private final ReadableByteChannel channel;
+	private byte[] buffer;
+	private ByteBuffer wrapper;
+	private int limit;
+	private boolean endOfInput;
+	// Сколько байт ушло из начала буфера при сдвигах
+	private long discarded;
+
+	private int lineStart;
+	private int lineEnd;
+	private int nextLineStart;
+
+	private int cursor;
+	private int tokenStart;
+	private int tokenEnd;
+
+	ObjTokenizer(ReadableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	ObjTokenizer(ReadableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = new byte[bufferSize];
+		this.wrapper = ByteBuffer.wrap(buffer);
+	}
+
+	static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
+	/**
+	 * Переходит к следующей строке. Возвращает false, если строки закончились.
+	 * Разделители строк: \n, \r\n и одиночный \r.
+	 */
+	boolean nextLine() throws IOException {
+		int start = nextLineStart;
+		int scan = start;
+		while (true) {
+			while (scan < limit) {
+				byte b = buffer[scan];
+				if (b == '\n') {
+					setLine(start, scan, scan + 1);
+					return true;
+				}
+				if (b == '\r') {
+					if (scan + 1 < limit) {
+						setLine(start, scan, buffer[scan + 1] == '\n' ? scan + 2 : scan + 1);
+						return true;
+					}
+					if (endOfInput) {
+						setLine(start, scan, scan + 1);
+						return true;
+					}
+					// Нужно увидеть следующий байт, чтобы отличить \r\n от \r
+					break;
+				}
+				scan++;
+			}
+
+			if (endOfInput) {
+				if (start == limit) {
+					return false;
+				}
+				setLine(start, limit, limit);
+				return true;
+			}
+
+			int consumed = start;
+			fill(start);
+			start -= consumed;
+			scan -= consumed;
+		}
+	}
+
+	private void setLine(int start, int end, int next) {
+		lineStart = start;
+		lineEnd = end;
+		nextLineStart = next;
+		cursor = start;
+		tokenStart = start;
+		tokenEnd = start;
+	}
+
+	// Сдвигает незаконченную строку в начало буфера и дочитывает данные из канала
+	private void fill(int keepFrom) throws IOException {
+		int remaining = limit - keepFrom;
+		if (keepFrom > 0) {
+			System.arraycopy(buffer, keepFrom, buffer, 0, remaining);
+		} else if (remaining == buffer.length) {
+			byte[] grown = new byte[buffer.length * 2];
+			System.arraycopy(buffer, 0, grown, 0, remaining);
+			buffer = grown;
+			wrapper = ByteBuffer.wrap(buffer);
+		}
+		limit = remaining;
+		nextLineStart -= keepFrom;
+		discarded += keepFrom;
+
+		wrapper.clear().position(limit);
+		int read = channel.read(wrapper);
+		if (read < 0) {
+			endOfInput = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	/**
+	 * Сколько байт входа уже пройдено (до начала следующей строки).
+	 */
+	long position() {
+		return discarded + nextLineStart;
+	}
+
+	boolean isEmptyLine() {
+		return lineStart == lineEnd;
+	}
+
+	/**
+	 * Строка не пустая, но состоит только из пробельных символов.
+	 */
+	boolean isBlankLine() {
+		if (lineStart == lineEnd) {
+			return false;
+		}
+		for (int i = lineStart; i < lineEnd; i++) {
+			if (!isWhitespace(buffer[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Первое слово строки начинается прямо с ее начала (без отступа).
+	 */
+	boolean startsWithToken() {
+		return lineStart < lineEnd && !isWhitespace(buffer[lineStart]);
+	}
+
+	/**
+	 * Переходит к следующему слову текущей строки. Возвращает false, если слов больше нет.
+	 */
+	boolean nextToken() {
+		int i = cursor;
+		while (i < lineEnd && isWhitespace(buffer[i])) {
+			i++;
+		}
+		if (i == lineEnd) {
+			cursor = i;
+			return false;
+		}
+		tokenStart = i;
+		while (i < lineEnd && !isWhitespace(buffer[i])) {
+			i++;
+		}
+		tokenEnd = i;
+		cursor = i;
+		return true;
+	}
+
+	/**
+	 * Количество слов от курсора до конца строки. Курсор не сдвигается.
+	 */
+	int countRemainingTokens() {
+		int count = 0;
+		boolean inToken = false;
+		for (int i = cursor; i < lineEnd; i++) {
+			boolean whitespace = isWhitespace(buffer[i]);
+			if (!whitespace && !inToken) {
+				count++;
+			}
+			inToken = !whitespace;
+		}
+		return count;
+	}
+
+	boolean tokenIs(char c) {
+		return tokenEnd - tokenStart == 1 && buffer[tokenStart] == c;
+	}
+
+	boolean tokenIs(char c1, char c2) {
+		return tokenEnd - tokenStart == 2 && buffer[tokenStart] == c1 && buffer[tokenStart + 1] == c2;
+	}
+
+	int tokenStart() {
+		return tokenStart;
+	}
+
+	int tokenEnd() {
+		return tokenEnd;
+	}
+
+	byte byteAt(int index) {
+		return buffer[index];
+	}
+
+	float parseTokenFloat() {
+		return parseFloat(tokenStart, tokenEnd);
+	}
+
+	/**
+	 * Разбор числа с плавающей точкой без создания строк.
+	 * Быстрый путь: мантисса до 2^53 и порядок до 22 — одно деление/умножение в double
+	 * дает правильно округленный double. Его округление до float совпадает с Float.parseFloat,
+	 * кроме случая, когда double попал ровно в середину между двумя float (двойное округление):
+	 * такие числа, как и все остальное (NaN, Infinity, hex, длинные мантиссы), отдаются Float.parseFloat.
+	 */
+	float parseFloat(int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int mantissaDigits = 0;
+		int exponent = 0;
+		boolean anyDigit = false;
+
+		while (i < to && isDigit(buffer[i])) {
+			anyDigit = true;
+			if (mantissaDigits == MAX_MANTISSA_DIGITS) {
+				return parseFloatSlow(from, to);
+			}
+			mantissa = mantissa * 10 + (buffer[i] - '0');
+			if (mantissa != 0) {
+				mantissaDigits++;
+			}
+			i++;
+		}
+		if (i < to && buffer[i] == '.') {
+			i++;
+			while (i < to && isDigit(buffer[i])) {
+				anyDigit = true;
+				if (mantissaDigits == MAX_MANTISSA_DIGITS) {
+					return parseFloatSlow(from, to);
+				}
+				mantissa = mantissa * 10 + (buffer[i] - '0');
+				if (mantissa != 0) {
+					mantissaDigits++;
+				}
+				exponent--;
+				i++;
+			}
+		}
+		if (!anyDigit) {
+			return parseFloatSlow(from, to);
+		}
+		if (i < to && (buffer[i] == 'e' || buffer[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < to && (buffer[i] == '-' || buffer[i] == '+')) {
+				negativeExponent = buffer[i] == '-';
+				i++;
+			}
+			int exponentStart = i;
+			int explicitExponent = 0;
+			while (i < to && isDigit(buffer[i]) && i - exponentStart < 4) {
+				explicitExponent = explicitExponent * 10 + (buffer[i] - '0');
+				i++;
+			}
+			if (i == exponentStart) {
+				return parseFloatSlow(from, to);
+			}
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		if (i != to) {
+			return parseFloatSlow(from, to);
+		}
+
+		if (mantissa == 0) {
+			return negative ? -0.0f : 0.0f;
+		}
+		if (mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+			return parseFloatSlow(from, to);
+		}
+
+		double value = exponent < 0
+				? mantissa / POWERS_OF_TEN[-exponent]
+				: mantissa * POWERS_OF_TEN[exponent];
+		// Значения здесь от 1e-22 до 1e38, то есть нормальные float; середина проверяется с запасом в 1 ulp double
+		long dropped = Double.doubleToRawLongBits(value) & FLOAT_DROPPED_BITS;
+		if (Math.abs(dropped - FLOAT_HALFWAY_BITS) <= 1) {
+			return parseFloatSlow(from, to);
+		}
+		return (float) (negative ? -value : value);
+	}
+
+	private float parseFloatSlow(int from, int to) {
+		return Float.parseFloat(new String(buffer, from, to - from, StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Разбор целого числа с теми же правилами, что и Integer.parseInt.
+	 */
+	int parseInt(int from, int to) {
+		if (from == to) {
+			throw new NumberFormatException("Empty int value");
+		}
+		int i = from;
+		boolean negative = false;
+		if (buffer[i] == '-' || buffer[i] == '+') {
+			negative = buffer[i] == '-';
+			i++;
+			if (i == to) {
+				throw new NumberFormatException("Lone sign");
+			}
+		}
+		// Накапливаем в отрицательную сторону, чтобы корректно принять Integer.MIN_VALUE
+		int limitValue = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int result = 0;
+		while (i < to) {
+			byte b = buffer[i++];
+			if (!isDigit(b)) {
+				throw new NumberFormatException("Not a digit");
+			}
+			int digit = b - '0';
+			if (result < limitValue / 10) {
+				throw new NumberFormatException("Int overflow");
+			}
+			result *= 10;
+			if (result < limitValue + digit) {
+				throw new NumberFormatException("Int overflow");
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+}
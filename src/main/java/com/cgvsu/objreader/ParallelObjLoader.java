@@ -0,0 +1,194 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Параллельная загрузка OBJ: файл отображается в память и делится на куски по границам строк.
+ * Каждый кусок разбирается в свою локальную модель на ForkJoinPool, затем куски
+ * склеиваются по порядку. Индексы в OBJ абсолютные, поэтому полигоны переносятся
+ * без пересчета, а номера строк в ошибках сдвигаются на число строк предыдущих кусков.
+ */
+final class ParallelObjLoader {
+
+	static final long DEFAULT_MIN_CHUNK_SIZE = 4L << 20;
+
+	// Один MappedByteBuffer не может быть больше 2 ГБ
+	private static final long MAX_CHUNK_SIZE = 256L << 20;
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int BOUNDARY_SCAN_SIZE = 1 << 16;
+
+	private ParallelObjLoader() {
+	}
+
+	static Model read(Path path, long minChunkSize) throws IOException {
+		return read(path, minChunkSize, ObjAttributes.ALL);
+	}
+
+	static Model read(Path path, long minChunkSize, ObjAttributes attributes) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			List<long[]> ranges = splitAtLines(channel, size, minChunkSize);
+
+			if (ranges.size() == 1) {
+				Model result = new Model();
+				new ObjParser(channel, attributes).parse(result);
+				return result;
+			}
+
+			List<ChunkTask> tasks = new ArrayList<>(ranges.size());
+			for (long[] range : ranges) {
+				tasks.add(new ChunkTask(channel, range[0], range[1] - range[0], attributes));
+			}
+			ForkJoinTask.invokeAll(tasks);
+
+			return merge(tasks);
+		}
+	}
+
+	// Делит файл на куски примерно равного размера; каждая граница сдвигается за ближайший '\n'
+	private static List<long[]> splitAtLines(FileChannel channel, long size, long minChunkSize) throws IOException {
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		long chunkSize = Math.max(minChunkSize, size / ((long) parallelism * CHUNKS_PER_THREAD));
+		chunkSize = Math.min(chunkSize, MAX_CHUNK_SIZE);
+
+		List<long[]> ranges = new ArrayList<>();
+		ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+		long start = 0;
+		while (start < size) {
+			long end = start + chunkSize >= size ? size : findLineEnd(channel, start + chunkSize, size, scan);
+			ranges.add(new long[]{start, end});
+			start = end;
+		}
+		if (ranges.isEmpty()) {
+			ranges.add(new long[]{0, 0});
+		}
+		return ranges;
+	}
+
+	private static long findLineEnd(FileChannel channel, long from, long size, ByteBuffer scan) throws IOException {
+		long position = from;
+		while (position < size) {
+			scan.clear();
+			int read = channel.read(scan, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (scan.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	private static Model merge(List<ChunkTask> tasks) throws IOException {
+		int vertexCount = 0, textureCount = 0, normalCount = 0, polygonCount = 0;
+		int linesBefore = 0;
+		for (ChunkTask task : tasks) {
+			if (task.error != null) {
+				throw new ObjReaderException(task.error.getErrorMessage(), task.error.getLineInd() + linesBefore);
+			}
+			if (task.ioError != null) {
+				throw task.ioError;
+			}
+			linesBefore += task.lineCount;
+			vertexCount += task.result.getVertices().size();
+			textureCount += task.result.getTextureVertices().size();
+			normalCount += task.result.getNormals().size();
+			polygonCount += task.result.getPolygons().size();
+		}
+
+		Model result = new Model();
+		result.getVerticesInternal().ensureCapacity(vertexCount);
+		result.getTextureVerticesInternal().ensureCapacity(textureCount);
+		result.getNormalsInternal().ensureCapacity(normalCount);
+		result.getPolygonsInternal().ensureCapacity(polygonCount);
+		for (ChunkTask task : tasks) {
+			result.getVerticesInternal().addAll(task.result.getVertices());
+			result.getTextureVerticesInternal().addAll(task.result.getTextureVertices());
+			result.getNormalsInternal().addAll(task.result.getNormals());
+			result.getPolygonsInternal().addAll(task.result.getPolygons());
+		}
+		return result;
+	}
+
+	private static final class ChunkTask extends RecursiveAction {
+		private final FileChannel channel;
+		private final long offset;
+		private final long length;
+		private final ObjAttributes attributes;
+
+		private Model result;
+		private int lineCount;
+		private ObjReaderException error;
+		private IOException ioError;
+
+		ChunkTask(FileChannel channel, long offset, long length, ObjAttributes attributes) {
+			this.channel = channel;
+			this.offset = offset;
+			this.length = length;
+			this.attributes = attributes;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+				ObjParser parser = new ObjParser(new ByteBufferChannel(mapped), attributes);
+				result = new Model();
+				parser.parse(result);
+				lineCount = parser.getLineCount();
+			} catch (ObjReaderException e) {
+				// Номер строки локальный; он будет пересчитан при склейке
+				error = e;
+			} catch (IOException e) {
+				ioError = e;
+			}
+		}
+	}
+
+	// Канал поверх отображенного участка файла: отдает байты в буфер ObjTokenizer
+	private static final class ByteBufferChannel implements ReadableByteChannel {
+		private final ByteBuffer source;
+
+		ByteBufferChannel(ByteBuffer source) {
+			this.source = source;
+		}
+
+		@Override
+		public int read(ByteBuffer destination) {
+			if (!source.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(source.remaining(), destination.remaining());
+			destination.put(destination.position(), source, source.position(), count);
+			destination.position(destination.position() + count);
+			source.position(source.position() + count);
+			return count;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
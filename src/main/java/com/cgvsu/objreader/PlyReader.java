@@ -0,0 +1,433 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PolygonList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Чтение бинарного PLY (binary_little_endian и binary_big_endian). Файл отображается в память.
+ * Записи вершин имеют фиксированный размер и декодируются параллельно прямо по смещению.
+ * Записи граней переменной длины: один последовательный проход находит их начала,
+ * затем полигоны собираются параллельно. Неизвестные элементы и свойства пропускаются.
+ * <p>
+ * Атрибуты PLY принадлежат вершине, поэтому нормали (nx, ny, nz) и текстурные координаты
+ * (s/t, u/v, texture_u/texture_v) идут в модель отдельными списками той же длины,
+ * а их индексы в полигонах совпадают с индексами вершин.
+ */
+public final class PlyReader {
+
+	private static final String END_HEADER = "end_header";
+	private static final int[] NO_INDICES = new int[0];
+
+	private PlyReader() {
+	}
+
+	public static Model read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new BinaryModelException("PLY file is too large: " + size + " bytes");
+			}
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			try {
+				return new Decoder(data).decode();
+			} catch (IndexOutOfBoundsException e) {
+				throw new BinaryModelException("Unexpected end of PLY data");
+			}
+		}
+	}
+
+	/**
+	 * Скалярные типы PLY и их синонимы из PLY 1.0 (int8, uint8, ..., float64).
+	 */
+	private enum Type {
+		CHAR(1), UCHAR(1), SHORT(2), USHORT(2), INT(4), UINT(4), FLOAT(4), DOUBLE(8);
+
+		final int size;
+
+		Type(int size) {
+			this.size = size;
+		}
+
+		static Type parse(String name) {
+			return switch (name) {
+				case "char", "int8" -> CHAR;
+				case "uchar", "uint8" -> UCHAR;
+				case "short", "int16" -> SHORT;
+				case "ushort", "uint16" -> USHORT;
+				case "int", "int32" -> INT;
+				case "uint", "uint32" -> UINT;
+				case "float", "float32" -> FLOAT;
+				case "double", "float64" -> DOUBLE;
+				default -> throw new BinaryModelException("Unknown PLY property type: " + name);
+			};
+		}
+
+		float readFloat(ByteBuffer data, int offset) {
+			return switch (this) {
+				case FLOAT -> data.getFloat(offset);
+				case DOUBLE -> (float) data.getDouble(offset);
+				default -> readLong(data, offset);
+			};
+		}
+
+		long readLong(ByteBuffer data, int offset) {
+			return switch (this) {
+				case CHAR -> data.get(offset);
+				case UCHAR -> data.get(offset) & 0xFF;
+				case SHORT -> data.getShort(offset);
+				case USHORT -> data.getShort(offset) & 0xFFFF;
+				case INT -> data.getInt(offset);
+				case UINT -> Integer.toUnsignedLong(data.getInt(offset));
+				case FLOAT -> (long) data.getFloat(offset);
+				case DOUBLE -> (long) data.getDouble(offset);
+			};
+		}
+	}
+
+	private static final class Property {
+		final String name;
+		final Type type;
+		// Для списков: тип длины; у скалярных свойств null
+		final Type countType;
+
+		Property(String name, Type type, Type countType) {
+			this.name = name;
+			this.type = type;
+			this.countType = countType;
+		}
+
+		boolean isList() {
+			return countType != null;
+		}
+	}
+
+	private static final class Element {
+		final String name;
+		final int count;
+		final List<Property> properties = new ArrayList<>();
+
+		Element(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+
+		boolean isFixedSize() {
+			for (Property property : properties) {
+				if (property.isList()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		int recordSize() {
+			int size = 0;
+			for (Property property : properties) {
+				size += property.type.size;
+			}
+			return size;
+		}
+
+		// Смещение скалярного свойства в записи или -1, если свойства нет
+		int offsetOf(String... names) {
+			int offset = 0;
+			for (Property property : properties) {
+				for (String name : names) {
+					if (property.name.equals(name)) {
+						return offset;
+					}
+				}
+				offset += property.type.size;
+			}
+			return -1;
+		}
+
+		Property find(String... names) {
+			for (Property property : properties) {
+				for (String name : names) {
+					if (property.name.equals(name)) {
+						return property;
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	private static final class Decoder {
+		private final ByteBuffer data;
+		private final List<Element> elements = new ArrayList<>();
+		private int position;
+
+		// Координаты подряд: x, y, z (s, t для текстур)
+		private int vertexCount;
+		private float[] vertices = new float[0];
+		private float[] normals;
+		private float[] textures;
+		private PolygonList polygons = new PolygonList();
+
+		Decoder(ByteBuffer data) {
+			this.data = data;
+		}
+
+		Model decode() {
+			readHeader();
+			for (Element element : elements) {
+				if (element.name.equals("vertex")) {
+					readVertices(element);
+				} else if (element.name.equals("face")) {
+					readFaces(element);
+				} else {
+					skip(element);
+				}
+			}
+
+			Model result = new Model();
+			result.getVerticesInternal().addAll(vertices, 0, vertexCount);
+			if (textures != null) {
+				result.getTextureVerticesInternal().addAll(textures, 0, vertexCount);
+			}
+			if (normals != null) {
+				result.getNormalsInternal().addAll(normals, 0, vertexCount);
+			}
+			result.getPolygonsInternal().addAll(polygons);
+			return result;
+		}
+
+		private void readHeader() {
+			if (!"ply".equals(nextHeaderLine())) {
+				throw new BinaryModelException("Not a PLY file");
+			}
+			Element current = null;
+			boolean hasFormat = false;
+			while (true) {
+				String line = nextHeaderLine();
+				if (line == null) {
+					throw new BinaryModelException("PLY header has no end_header");
+				}
+				String[] words = line.trim().split("\\s+");
+				switch (words[0]) {
+					case END_HEADER -> {
+						if (!hasFormat) {
+							throw new BinaryModelException("PLY header has no format");
+						}
+						return;
+					}
+					case "format" -> {
+						data.order(parseFormat(words));
+						hasFormat = true;
+					}
+					case "element" -> {
+						if (words.length != 3) {
+							throw new BinaryModelException("Invalid PLY element: " + line);
+						}
+						current = new Element(words[1], parseCount(words[2]));
+						elements.add(current);
+					}
+					case "property" -> {
+						if (current == null) {
+							throw new BinaryModelException("PLY property outside of an element: " + line);
+						}
+						current.properties.add(parseProperty(words, line));
+					}
+					default -> {
+						// comment, obj_info и пустые строки
+					}
+				}
+			}
+		}
+
+		private static ByteOrder parseFormat(String[] words) {
+			String format = words.length > 1 ? words[1] : "";
+			return switch (format) {
+				case "binary_little_endian" -> ByteOrder.LITTLE_ENDIAN;
+				case "binary_big_endian" -> ByteOrder.BIG_ENDIAN;
+				case "ascii" -> throw new BinaryModelException("ASCII PLY is not supported");
+				default -> throw new BinaryModelException("Unknown PLY format: " + format);
+			};
+		}
+
+		private static int parseCount(String word) {
+			try {
+				int count = Integer.parseInt(word);
+				if (count < 0) {
+					throw new NumberFormatException(word);
+				}
+				return count;
+			} catch (NumberFormatException e) {
+				throw new BinaryModelException("Invalid PLY element count: " + word);
+			}
+		}
+
+		private static Property parseProperty(String[] words, String line) {
+			if (words.length == 3) {
+				return new Property(words[2], Type.parse(words[1]), null);
+			}
+			if (words.length == 5 && words[1].equals("list")) {
+				return new Property(words[4], Type.parse(words[3]), Type.parse(words[2]));
+			}
+			throw new BinaryModelException("Invalid PLY property: " + line);
+		}
+
+		// Строка заголовка без перевода строки; null, если данные закончились
+		private String nextHeaderLine() {
+			int start = position;
+			while (position < data.limit()) {
+				if (data.get(position++) == '\n') {
+					int end = position - 1;
+					if (end > start && data.get(end - 1) == '\r') {
+						end--;
+					}
+					byte[] bytes = new byte[end - start];
+					data.get(start, bytes);
+					return new String(bytes, StandardCharsets.US_ASCII);
+				}
+			}
+			return null;
+		}
+
+		private void readVertices(Element element) {
+			if (!element.isFixedSize()) {
+				throw new BinaryModelException("List properties in PLY vertices are not supported");
+			}
+			int stride = element.recordSize();
+			checkAvailable((long) element.count * stride);
+			Property px = require(element, "x"), py = require(element, "y"), pz = require(element, "z");
+			int ox = element.offsetOf("x"), oy = element.offsetOf("y"), oz = element.offsetOf("z");
+
+			Property pnx = element.find("nx"), pny = element.find("ny"), pnz = element.find("nz");
+			boolean hasNormals = pnx != null && pny != null && pnz != null;
+			int onx = element.offsetOf("nx"), ony = element.offsetOf("ny"), onz = element.offsetOf("nz");
+
+			String[] uNames = {"s", "u", "texture_u", "texture_s"};
+			String[] vNames = {"t", "v", "texture_v", "texture_t"};
+			Property pu = element.find(uNames), pv = element.find(vNames);
+			boolean hasTextures = pu != null && pv != null;
+			int ou = element.offsetOf(uNames), ov = element.offsetOf(vNames);
+
+			int base = position;
+			vertexCount = element.count;
+			vertices = new float[element.count * 3];
+			normals = hasNormals ? new float[element.count * 3] : null;
+			textures = hasTextures ? new float[element.count * 2] : null;
+			IntStream.range(0, element.count).parallel().forEach(i -> {
+				int record = base + i * stride;
+				vertices[i * 3] = px.type.readFloat(data, record + ox);
+				vertices[i * 3 + 1] = py.type.readFloat(data, record + oy);
+				vertices[i * 3 + 2] = pz.type.readFloat(data, record + oz);
+				if (hasNormals) {
+					normals[i * 3] = pnx.type.readFloat(data, record + onx);
+					normals[i * 3 + 1] = pny.type.readFloat(data, record + ony);
+					normals[i * 3 + 2] = pnz.type.readFloat(data, record + onz);
+				}
+				if (hasTextures) {
+					textures[i * 2] = pu.type.readFloat(data, record + ou);
+					textures[i * 2 + 1] = pv.type.readFloat(data, record + ov);
+				}
+			});
+			position += element.count * stride;
+		}
+
+		private void readFaces(Element element) {
+			Property indicesProperty = element.find("vertex_indices", "vertex_index");
+			if (indicesProperty == null || !indicesProperty.isList()) {
+				throw new BinaryModelException("PLY faces have no vertex_indices list");
+			}
+
+			// Последовательно находим начало списка индексов в каждой записи и смещения полигонов
+			Type countType = indicesProperty.countType;
+			Type indexType = indicesProperty.type;
+			// Каждая запись занимает хотя бы длину списка: число из заголовка проверяется до выделения массивов
+			checkAvailable((long) element.count * countType.size);
+			int[] listStarts = new int[element.count];
+			int[] offsets = new int[element.count + 1];
+			for (int i = 0; i < element.count; i++) {
+				for (Property property : element.properties) {
+					if (property == indicesProperty) {
+						listStarts[i] = position;
+						long size = countType.readLong(data, position);
+						if (size < 3) {
+							throw new BinaryModelException("PLY face " + i + " has less than 3 vertices");
+						}
+						if (offsets[i] + size > Integer.MAX_VALUE) {
+							throw new BinaryModelException("PLY faces have too many vertex indices");
+						}
+						offsets[i + 1] = (int) (offsets[i] + size);
+					}
+					position += propertySize(property, position);
+				}
+			}
+			checkAvailable(0);
+
+			// Индексы полигонов декодируются параллельно в один общий массив
+			int[] corners = new int[offsets[element.count]];
+			IntStream.range(0, element.count).parallel().forEach(i -> {
+				int offset = listStarts[i] + countType.size;
+				for (int j = offsets[i]; j < offsets[i + 1]; j++, offset += indexType.size) {
+					long index = indexType.readLong(data, offset);
+					if (index < 0 || index >= vertexCount) {
+						throw new BinaryModelException("PLY face " + i + " references invalid vertex index " + index);
+					}
+					corners[j] = (int) index;
+				}
+			});
+			// Текстуры и нормали лежат в вершинах PLY, поэтому их индексы совпадают с индексами вершин
+			int[] noOffsets = new int[element.count + 1];
+			polygons = PolygonList.wrap(element.count, offsets, corners,
+					textures != null ? offsets : noOffsets, textures != null ? corners : NO_INDICES,
+					normals != null ? offsets : noOffsets, normals != null ? corners : NO_INDICES);
+		}
+
+		private void skip(Element element) {
+			if (element.isFixedSize()) {
+				long bytes = (long) element.count * element.recordSize();
+				checkAvailable(bytes);
+				position += (int) bytes;
+				return;
+			}
+			for (int i = 0; i < element.count; i++) {
+				for (Property property : element.properties) {
+					position += propertySize(property, position);
+				}
+			}
+			checkAvailable(0);
+		}
+
+		private int propertySize(Property property, int offset) {
+			if (!property.isList()) {
+				return property.type.size;
+			}
+			long count = property.countType.readLong(data, offset);
+			if (count < 0 || count > data.limit()) {
+				throw new BinaryModelException("Invalid PLY list length: " + count);
+			}
+			return property.countType.size + (int) count * property.type.size;
+		}
+
+		private void checkAvailable(long bytes) {
+			if (position + bytes > data.limit()) {
+				throw new BinaryModelException("Unexpected end of PLY data");
+			}
+		}
+
+		private static Property require(Element element, String name) {
+			Property property = element.find(name);
+			if (property == null || property.isList()) {
+				throw new BinaryModelException("PLY vertices have no '" + name + "' property");
+			}
+			return property;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PolygonList;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Чтение бинарного STL. Файл отображается в память, записи треугольников фиксированного
+ * размера декодируются напрямую по смещению, без разбора текста; без слияния — параллельно.
+ * Нормали треугольников из файла не читаются (их можно пересчитать по модели).
+ * <p>
+ * В STL у каждого треугольника свои три вершины. При слиянии побитово равные вершины
+ * (0.0 и -0.0 считаются равными) становятся одной, и индексы полигонов ссылаются на нее.
+ * Слияние с допуском — {@link com.cgvsu.model.ModelProcessor#weldVertices}.
+ */
+public final class StlReader {
+
+	private static final int HEADER_SIZE = 80;
+	private static final int TRIANGLE_SIZE = 50;
+	// Смещение первой вершины в записи треугольника (после нормали)
+	private static final int VERTICES_OFFSET = 12;
+	private static final int[] NO_INDICES = new int[0];
+
+	private StlReader() {
+	}
+
+	public static Model read(Path path) throws IOException {
+		return read(path, false);
+	}
+
+	/**
+	 * @param mergeDuplicates сливать совпадающие вершины соседних треугольников
+	 */
+	public static Model read(Path path, boolean mergeDuplicates) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE + 4) {
+				throw new BinaryModelException("File is too short for binary STL");
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new BinaryModelException("STL file is too large: " + size + " bytes");
+			}
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			data.order(ByteOrder.LITTLE_ENDIAN);
+
+			long triangleCount = Integer.toUnsignedLong(data.getInt(HEADER_SIZE));
+			if (HEADER_SIZE + 4 + triangleCount * TRIANGLE_SIZE != size) {
+				// Текстовый STL начинается с "solid" и не совпадает по размеру с объявленным числом треугольников
+				throw new BinaryModelException("Not a binary STL file: size does not match "
+						+ triangleCount + " triangles (ASCII STL is not supported)");
+			}
+			return mergeDuplicates
+					? readMerged(data, (int) triangleCount)
+					: readSeparate(data, (int) triangleCount);
+		}
+	}
+
+	private static int vertexOffset(int triangle, int corner) {
+		return HEADER_SIZE + 4 + triangle * TRIANGLE_SIZE + VERTICES_OFFSET + corner * 12;
+	}
+
+	// Каждый угол — своя вершина; треугольники независимы и декодируются параллельно
+	private static Model readSeparate(MappedByteBuffer data, int triangleCount) {
+		float[] vertices = new float[triangleCount * 9];
+		IntStream.range(0, triangleCount).parallel().forEach(t -> {
+			for (int corner = 0; corner < 3; corner++) {
+				int offset = vertexOffset(t, corner);
+				int target = (t * 3 + corner) * 3;
+				vertices[target] = data.getFloat(offset);
+				vertices[target + 1] = data.getFloat(offset + 4);
+				vertices[target + 2] = data.getFloat(offset + 8);
+			}
+		});
+		// Углы треугольников идут подряд: индекс угла совпадает с номером вершины
+		int[] indices = new int[triangleCount * 3];
+		Arrays.setAll(indices, i -> i);
+
+		Model result = new Model();
+		result.getVerticesInternal().addAll(vertices, 0, triangleCount * 3);
+		result.getPolygonsInternal().addAll(triangles(triangleCount, indices));
+		return result;
+	}
+
+	// Вершины нумеруются в порядке первого появления; таблица с открытой адресацией хранит номер вершины + 1
+	private static Model readMerged(MappedByteBuffer data, int triangleCount) {
+		int cornerCount = triangleCount * 3;
+		// Заполнение таблицы не больше половины
+		int capacity = Integer.highestOneBit(Math.max(cornerCount, 8)) * 4;
+		int[] table = new int[capacity];
+		int mask = capacity - 1;
+		float[] vertices = new float[Math.max(cornerCount, 1) * 3];
+		int vertexCount = 0;
+
+		Model result = new Model();
+		int[] indices = new int[cornerCount];
+		for (int t = 0; t < triangleCount; t++) {
+			for (int corner = 0; corner < 3; corner++) {
+				int offset = vertexOffset(t, corner);
+				// +0.0f превращает -0.0 в 0.0
+				int x = Float.floatToRawIntBits(data.getFloat(offset) + 0.0f);
+				int y = Float.floatToRawIntBits(data.getFloat(offset + 4) + 0.0f);
+				int z = Float.floatToRawIntBits(data.getFloat(offset + 8) + 0.0f);
+
+				int slot = hash(x, y, z) & mask;
+				int index;
+				while (true) {
+					int entry = table[slot];
+					if (entry == 0) {
+						index = vertexCount++;
+						table[slot] = index + 1;
+						vertices[index * 3] = Float.intBitsToFloat(x);
+						vertices[index * 3 + 1] = Float.intBitsToFloat(y);
+						vertices[index * 3 + 2] = Float.intBitsToFloat(z);
+						break;
+					}
+					int candidate = entry - 1;
+					if (Float.floatToRawIntBits(vertices[candidate * 3]) == x
+							&& Float.floatToRawIntBits(vertices[candidate * 3 + 1]) == y
+							&& Float.floatToRawIntBits(vertices[candidate * 3 + 2]) == z) {
+						index = candidate;
+						break;
+					}
+					slot = (slot + 1) & mask;
+				}
+				indices[t * 3 + corner] = index;
+			}
+		}
+
+		result.getVerticesInternal().addAll(vertices, 0, vertexCount);
+		result.getPolygonsInternal().addAll(triangles(triangleCount, indices));
+		return result;
+	}
+
+	// Треугольники без текстур и нормалей поверх готового массива индексов
+	private static PolygonList triangles(int triangleCount, int[] indices) {
+		int[] offsets = new int[triangleCount + 1];
+		Arrays.setAll(offsets, i -> i * 3);
+		int[] noOffsets = new int[triangleCount + 1];
+		return PolygonList.wrap(triangleCount, offsets, indices, noOffsets, NO_INDICES, noOffsets, NO_INDICES);
+	}
+
+	private static int hash(int x, int y, int z) {
+		int h = x * 0x9E3779B1 + y * 0x85EBCA77 + z * 0xC2B2AE3D;
+		return h ^ (h >>> 15);
+	}
+}
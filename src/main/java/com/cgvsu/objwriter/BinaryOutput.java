@@ -0,0 +1,72 @@
+package com.cgvsu.objwriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Direct-буфер фиксированного размера перед FileChannel, порядок байт little-endian.
+ * Данные уходят в канал целыми блоками, без промежуточных массивов в куче.
+ */
+final class BinaryOutput {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    BinaryOutput(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Гарантирует место под запись из bytes байт (не больше размера буфера).
+     */
+    BinaryOutput ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+        return this;
+    }
+
+    BinaryOutput putByte(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+        return this;
+    }
+
+    BinaryOutput putShort(int value) throws IOException {
+        ensure(2);
+        buffer.putShort((short) value);
+        return this;
+    }
+
+    BinaryOutput putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    BinaryOutput putFloat(float value) throws IOException {
+        ensure(4);
+        buffer.putFloat(value);
+        return this;
+    }
+
+    BinaryOutput putAscii(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        ensure(bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
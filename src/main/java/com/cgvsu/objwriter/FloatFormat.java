@@ -0,0 +1,15 @@
+package com.cgvsu.objwriter;
+
+/**
+ * Запись координат в OBJ.
+ */
+public enum FloatFormat {
+    /**
+     * Шесть знаков после точки без нулей в конце ("1.5", "-0.333333") — формат по умолчанию.
+     */
+    FIXED_6,
+    /**
+     * Кратчайшая запись, которая читается обратно в тот же float: файл переимпортируется без потерь.
+     */
+    SHORTEST
+}
@@ -0,0 +1,158 @@
+package com.cgvsu.objwriter;
+
+/**
+ * Запись float в десятичном виде прямо в массив символов, без промежуточных строк.
+ * Методы возвращают новую позицию в буфере или -1, если значение вне быстрого пути
+ * (тогда вызывающий форматирует его строкой). В буфере должно быть {@link #MAX_LENGTH} свободных символов.
+ */
+final class FloatFormatter {
+
+    static final int MAX_LENGTH = 32;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Все float ниже 2^53 — целые или с не более чем 43 двоичными знаками после точки,
+    // если не меньше 2^-20; такие дроби точно переводятся в миллионные доли в long
+    private static final double FIXED_MAX = 0x1p53;
+    private static final double FIXED_MIN = 0x1p-20;
+    private static final double FIXED_ROUNDS_TO_ZERO = 4e-7;
+    private static final int FRACTION_BITS = 43;
+    private static final double FRACTION_SCALE = 0x1p43;
+    private static final long FRACTION_MASK = (1L << FRACTION_BITS) - 1;
+    private static final long FRACTION_HALF = 1L << (FRACTION_BITS - 1);
+    private static final int FIXED_DIGITS = 6;
+    private static final long FIXED_UNIT = 1_000_000L;
+
+    private static final double SHORTEST_MIN = 1e-5;
+    private static final double SHORTEST_MAX = 1e9;
+    private static final int FLOAT_MAX_DIGITS = 9;
+
+    private FloatFormatter() {
+    }
+
+    /**
+     * То же, что String.format(Locale.ROOT, "%.6f", value) с отброшенными нулями в конце дробной части
+     * (и точкой, если дробная часть пуста). Formatter округляет вверх от половины кратчайшее
+     * десятичное представление числа; для быстрого диапазона это совпадает с точным округлением
+     * самого float, поэтому здесь считается точное значение в целых числах.
+     */
+    static int formatFixed(float value, char[] buffer, int position) {
+        double magnitude = Math.abs((double) value);
+        if (magnitude >= FIXED_MAX || (magnitude >= FIXED_ROUNDS_TO_ZERO && magnitude < FIXED_MIN)) {
+            return -1;
+        }
+        // Formatter пишет минус и у отрицательных чисел, округленных до нуля, и у -0.0
+        if (Double.compare(value, 0.0) < 0) {
+            buffer[position++] = '-';
+        }
+        if (magnitude < FIXED_ROUNDS_TO_ZERO) {
+            buffer[position++] = '0';
+            return position;
+        }
+
+        long integer = (long) magnitude;
+        long fraction = (long) ((magnitude - integer) * FRACTION_SCALE);
+        long scaled = fraction * FIXED_UNIT;
+        long millionths = scaled >>> FRACTION_BITS;
+        if ((scaled & FRACTION_MASK) >= FRACTION_HALF) {
+            millionths++;
+        }
+        if (millionths == FIXED_UNIT) {
+            integer++;
+            millionths = 0;
+        }
+
+        position = writeLong(integer, buffer, position);
+        return writeFraction(millionths, FIXED_DIGITS, buffer, position);
+    }
+
+    /**
+     * Самая короткая запись (не больше 9 значащих цифр), которая читается обратно в тот же float.
+     * Кандидат проверяется одним умножением или делением в double с точной степенью десяти —
+     * так же разбирает числа ObjReader, и результат совпадает с Float.parseFloat.
+     */
+    static int formatShortest(float value, char[] buffer, int position) {
+        if (value == 0) {
+            if (Float.floatToRawIntBits(value) != 0) {
+                buffer[position++] = '-';
+            }
+            buffer[position++] = '0';
+            return position;
+        }
+        float target = Math.abs(value);
+        double magnitude = target;
+        if (magnitude < SHORTEST_MIN || magnitude >= SHORTEST_MAX) {
+            return -1;
+        }
+
+        // log10 может ошибиться на единицу рядом со степенями десяти
+        int exponent = (int) Math.floor(Math.log10(magnitude));
+        if (magnitude < powerOfTen(exponent)) {
+            exponent--;
+        } else if (magnitude >= powerOfTen(exponent + 1)) {
+            exponent++;
+        }
+
+        for (int digits = 1; digits <= FLOAT_MAX_DIGITS; digits++) {
+            // Число цифр после точки; от -8 до 13 в этом диапазоне значений
+            int scale = digits - 1 - exponent;
+            long candidate = Math.round(scale >= 0 ? magnitude * POWERS_OF_TEN[scale] : magnitude / POWERS_OF_TEN[-scale]);
+            float parsed = (float) (scale >= 0 ? candidate / POWERS_OF_TEN[scale] : candidate * POWERS_OF_TEN[-scale]);
+            if (parsed != target) {
+                continue;
+            }
+            if (value < 0) {
+                buffer[position++] = '-';
+            }
+            if (scale <= 0) {
+                position = writeLong(candidate, buffer, position);
+                for (int i = 0; i < -scale; i++) {
+                    buffer[position++] = '0';
+                }
+                return position;
+            }
+            long unit = (long) POWERS_OF_TEN[scale];
+            position = writeLong(candidate / unit, buffer, position);
+            return writeFraction(candidate % unit, scale, buffer, position);
+        }
+        return -1;
+    }
+
+    private static double powerOfTen(int exponent) {
+        return exponent >= 0 ? POWERS_OF_TEN[exponent] : 1 / POWERS_OF_TEN[-exponent];
+    }
+
+    // Дробная часть из width цифр без нулей в конце; ничего, если она нулевая
+    private static int writeFraction(long fraction, int width, char[] buffer, int position) {
+        if (fraction == 0) {
+            return position;
+        }
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            width--;
+        }
+        buffer[position++] = '.';
+        int end = position + width;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return end;
+    }
+
+    static int writeLong(long value, char[] buffer, int position) {
+        int length = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+        int end = position + length;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
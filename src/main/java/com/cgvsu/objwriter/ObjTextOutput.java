@@ -0,0 +1,114 @@
+package com.cgvsu.objwriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Буфер фиксированного размера перед Writer. Целые числа записываются
+ * прямо в буфер, без промежуточных строк, поэтому память не зависит от размера модели.
+ */
+final class ObjTextOutput {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Самое длинное int: знак и 10 цифр
+    private static final int MAX_INT_LENGTH = 11;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int size;
+
+    ObjTextOutput(Writer out) {
+        this.out = out;
+    }
+
+    ObjTextOutput append(char c) throws IOException {
+        if (size == buffer.length) {
+            flushBuffer();
+        }
+        buffer[size++] = c;
+        return this;
+    }
+
+    ObjTextOutput append(String s) throws IOException {
+        int length = s.length();
+        if (length > buffer.length - size) {
+            flushBuffer();
+            if (length > buffer.length) {
+                out.write(s);
+                return this;
+            }
+        }
+        s.getChars(0, length, buffer, size);
+        size += length;
+        return this;
+    }
+
+    ObjTextOutput append(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            return append(Integer.toString(value));
+        }
+        if (buffer.length - size < MAX_INT_LENGTH) {
+            flushBuffer();
+        }
+        if (value < 0) {
+            buffer[size++] = '-';
+            value = -value;
+        }
+        int end = size + digitCount(value);
+        int position = end;
+        do {
+            buffer[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        size = end;
+        return this;
+    }
+
+    /**
+     * Число в формате {@link FloatFormat}; NaN и бесконечности должны быть отсеяны заранее.
+     */
+    ObjTextOutput append(float value, FloatFormat format) throws IOException {
+        if (buffer.length - size < FloatFormatter.MAX_LENGTH) {
+            flushBuffer();
+        }
+        int end = format == FloatFormat.SHORTEST
+                ? FloatFormatter.formatShortest(value, buffer, size)
+                : FloatFormatter.formatFixed(value, buffer, size);
+        if (end < 0) {
+            return append(format == FloatFormat.SHORTEST ? Float.toString(value) : formatFixedSlow(value));
+        }
+        size = end;
+        return this;
+    }
+
+    // Редкие значения (очень большие и очень маленькие) — через Formatter, как раньше
+    static String formatFixedSlow(float value) {
+        String result = String.format(Locale.ROOT, "%.6f", value);
+        int end = result.length();
+        while (result.charAt(end - 1) == '0') {
+            end--;
+        }
+        if (result.charAt(end - 1) == '.') {
+            end--;
+        }
+        return result.substring(0, end);
+    }
+
+    /**
+     * Сбрасывает буфер в Writer (сам Writer не сбрасывается и не закрывается).
+     */
+    void flushBuffer() throws IOException {
+        out.write(buffer, 0, size);
+        size = 0;
+    }
+
+    private static int digitCount(int value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,16 @@
+package com.cgvsu.objwriter;
+
+/**
+ * Прогресс записи OBJ. Вызывается из потока, который пишет файл.
+ */
+public interface ObjWriteListener {
+
+    ObjWriteListener NONE = (written, total) -> {
+    };
+
+    /**
+     * @param written сколько элементов (вершин, текстурных вершин, нормалей и полигонов) уже записано
+     * @param total   сколько всего элементов в модели
+     */
+    void onProgress(long written, long total);
+}
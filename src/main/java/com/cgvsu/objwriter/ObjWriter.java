@@ -4,138 +4,332 @@ import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.Polygon;
+import com.cgvsu.model.PolygonList;
+import com.cgvsu.model.Vector2fList;
+import com.cgvsu.model.Vector3fList;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class ObjWriter {
 
+    static final String DEFAULT_COMMENT = "Exported by Lapin Nikita ObjWriter";
+    // Через сколько элементов сообщать о прогрессе
+    static final int PROGRESS_STEP = 1 << 15;
+
     public static void write(Model model, String filePath) throws IOException {
-        String content = modelToString(model);
-        Files.writeString(Path.of(filePath), content);
+        write(model, Path.of(filePath));
+    }
+
+    /**
+     * Потоковая запись в файл через буфер фиксированного размера: текст модели целиком
+     * в памяти не собирается. Файл пишется во временный рядом с целевым и подменяет его
+     * только после успешной записи, поэтому при ошибке проверки модели старый файл не портится.
+     */
+    public static void write(Model model, Path path) throws IOException {
+        write(model, path, FloatFormat.FIXED_6);
+    }
+
+    public static void write(Model model, Path path, FloatFormat format) throws IOException {
+        write(model, path, format, ObjWriteListener.NONE);
+    }
+
+    /**
+     * Запись с отчетом о прогрессе. Прерывание потока отменяет запись (InterruptedIOException):
+     * временный файл удаляется, а целевой остается прежним.
+     */
+    public static void write(Model model, Path path, FloatFormat format, ObjWriteListener listener) throws IOException {
+        writeReplacing(path, temp -> {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                write(model, DEFAULT_COMMENT, writer, format, listener);
+            }
+        });
+    }
+
+    /**
+     * Содержимое, которое пишется во временный файл.
+     */
+    interface FileContent {
+        void writeTo(Path temp) throws IOException;
+    }
+
+    /**
+     * Пишет content во временный файл рядом с path и атомарно подменяет им path.
+     * При любой ошибке временный файл удаляется, а path остается прежним.
+     * Права у результата те же, что при записи напрямую: у нового файла — права по умолчанию (umask),
+     * у перезаписанного — прежние.
+     */
+    static void writeReplacing(Path path, FileContent content) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temp = createSiblingFile(absolute);
+        try {
+            copyPermissions(absolute, temp);
+            content.writeTo(temp);
+            try {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Files.createTempFile создал бы файл с правами только для владельца, и move перенес бы их на результат
+    private static Path createSiblingFile(Path path) throws IOException {
+        while (true) {
+            Path temp = path.resolveSibling(path.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                return Files.createFile(temp);
+            } catch (FileAlreadyExistsException e) {
+                // Имя занято: пробуем другое
+            }
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        if (sourceView == null || !Files.exists(source)) return;
+        Files.getFileAttributeView(target, PosixFileAttributeView.class)
+                .setPermissions(sourceView.readAttributes().permissions());
     }
 
     public static String modelToString(Model model) {
-        return modelToString(model, "Exported by Lapin Nikita ObjWriter");
+        return modelToString(model, DEFAULT_COMMENT);
     }
 
     public static String modelToString(Model model, String comment) {
+        StringWriter writer = new StringWriter();
+        try {
+            write(model, comment, writer, FloatFormat.FIXED_6);
+        } catch (IOException e) {
+            // StringWriter не бросает IOException
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Потоковая запись модели в writer; с FIXED_6 результат совпадает с {@link #modelToString(Model, String)}.
+     * Каждый элемент проверяется и сразу записывается. Большие модели форматируются
+     * параллельно ({@link ParallelObjExporter}) с тем же результатом. Writer не закрывается.
+     */
+    public static void write(Model model, String comment, Writer writer, FloatFormat format) throws IOException {
+        write(model, comment, writer, format, ObjWriteListener.NONE);
+    }
+
+    public static void write(Model model, String comment, Writer writer, FloatFormat format, ObjWriteListener listener)
+            throws IOException {
         if (model == null) {
             throw new ObjWriterException("Model cannot be null");
         }
+        if (ParallelObjExporter.isWorthParallel(model)) {
+            ParallelObjExporter.write(model, comment, writer, format, ParallelObjExporter.DEFAULT_CHUNK_SIZE, listener);
+            return;
+        }
 
-        StringBuilder sb = new StringBuilder();
+        ObjTextOutput out = new ObjTextOutput(writer);
+        writeComment(out, comment);
+        long total = elementCount(model);
+        long written = 0;
+        for (Section section : Section.values()) {
+            if (hasBlankLineBefore(model, section)) {
+                out.append("\n");
+            }
+            int size = sectionSize(model, section);
+            for (int from = 0; from < size; from += PROGRESS_STEP) {
+                int to = Math.min(size, from + PROGRESS_STEP);
+                writeRange(model, section, from, to, out, format);
+                written += to - from;
+                reportProgress(listener, written, total);
+            }
+        }
+        out.flushBuffer();
+    }
 
-        if (comment != null && !comment.isEmpty()) {
-            sb.append("# ").append(comment).append("\n");
+    static long elementCount(Model model) {
+        long count = 0;
+        for (Section section : Section.values()) {
+            count += sectionSize(model, section);
         }
+        return count;
+    }
 
-        try {
-            List<Vector3f> vertices = model.getVertices();
-            for (int i = 0; i < vertices.size(); i++) {
-                Vector3f vertex = vertices.get(i);
-                validateVertex(vertex, i);
-                sb.append("v ")
-                        .append(formatFloatCompact(vertex.getX()))
-                        .append(" ")
-                        .append(formatFloatCompact(vertex.getY()))
-                        .append(" ")
-                        .append(formatFloatCompact(vertex.getZ()))
-                        .append("\n");
-            }
+    // Заодно точка отмены: между порциями проверяется прерывание потока
+    static void reportProgress(ObjWriteListener listener, long written, long total) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Export cancelled");
+        }
+        listener.onProgress(written, total);
+    }
 
-            if (!vertices.isEmpty() &&
-                    ((model.getTextureVertices() != null && !model.getTextureVertices().isEmpty()) ||
-                            (model.getNormals() != null && !model.getNormals().isEmpty()))) {
-                sb.append("\n");
-            }
+    /**
+     * Разделы файла в порядке записи.
+     */
+    enum Section {
+        VERTICES, TEXTURE_VERTICES, NORMALS, POLYGONS
+    }
 
-            List<Vector2f> textureVertices = model.getTextureVertices();
-            if (textureVertices != null) {
-                for (int i = 0; i < textureVertices.size(); i++) {
-                    Vector2f textureVertex = textureVertices.get(i);
-                    validateTextureVertex(textureVertex, i);
-                    sb.append("vt ")
-                            .append(formatFloatCompact(textureVertex.getX()))
-                            .append(" ")
-                            .append(formatFloatCompact(textureVertex.getY()))
-                            .append("\n");
-                }
-            }
+    static void writeComment(ObjTextOutput out, String comment) throws IOException {
+        if (comment != null && !comment.isEmpty()) {
+            out.append("# ").append(comment).append("\n");
+        }
+    }
 
-            if (textureVertices != null && !textureVertices.isEmpty() &&
-                    model.getNormals() != null && !model.getNormals().isEmpty()) {
-                sb.append("\n");
-            }
+    static int sectionSize(Model model, Section section) {
+        return switch (section) {
+            case VERTICES -> model.getVertices().size();
+            case TEXTURE_VERTICES -> sizeOf(model.getTextureVertices());
+            case NORMALS -> sizeOf(model.getNormals());
+            case POLYGONS -> model.getPolygons().size();
+        };
+    }
 
-            List<Vector3f> normals = model.getNormals();
-            if (normals != null) {
-                for (int i = 0; i < normals.size(); i++) {
-                    Vector3f normal = normals.get(i);
-                    validateNormal(normal, i);
-                    sb.append("vn ")
-                            .append(formatFloatCompact(normal.getX()))
-                            .append(" ")
-                            .append(formatFloatCompact(normal.getY()))
-                            .append(" ")
-                            .append(formatFloatCompact(normal.getZ()))
-                            .append("\n");
-                }
-            }
+    // Пустые строки между разделами
+    static boolean hasBlankLineBefore(Model model, Section section) {
+        int vertexCount = model.getVertices().size();
+        int textureVertexCount = sizeOf(model.getTextureVertices());
+        int normalCount = sizeOf(model.getNormals());
+        return switch (section) {
+            case VERTICES -> false;
+            case TEXTURE_VERTICES -> vertexCount != 0 && (textureVertexCount != 0 || normalCount != 0);
+            case NORMALS -> textureVertexCount != 0 && normalCount != 0;
+            case POLYGONS -> (vertexCount != 0 || textureVertexCount != 0 || normalCount != 0)
+                    && !model.getPolygons().isEmpty();
+        };
+    }
 
-            if ((!vertices.isEmpty() ||
-                    (textureVertices != null && !textureVertices.isEmpty()) ||
-                    (normals != null && !normals.isEmpty())) &&
-                    !model.getPolygons().isEmpty()) {
-                sb.append("\n");
-            }
+    static int sizeOf(List<?> list) {
+        return list != null ? list.size() : 0;
+    }
 
-            List<Polygon> polygons = model.getPolygons();
-            for (int i = 0; i < polygons.size(); i++) {
-                Polygon polygon = polygons.get(i);
-                validatePolygon(polygon, i,
-                        vertices.size(),
-                        textureVertices != null ? textureVertices.size() : 0,
-                        normals != null ? normals.size() : 0);
-
-                sb.append("f");
-                int[] vertexIndices = polygon.getVertexIndices();
-                int[] textureVertexIndices = polygon.getTextureVertexIndices();
-                int[] normalIndices = polygon.getNormalIndices();
-
-                boolean hasTextures = textureVertexIndices != null && textureVertexIndices.length > 0;
-                boolean hasNormals = normalIndices != null && normalIndices.length > 0;
-
-                for (int j = 0; j < vertexIndices.length; j++) {
-                    sb.append(" ");
-                    sb.append(vertexIndices[j] + 1);
-
-                    if (hasTextures || hasNormals) {
-                        sb.append("/");
-
-                        if (hasTextures) {
-                            sb.append(textureVertexIndices[j] + 1);
-                        }
-
-                        if (hasNormals) {
-                            sb.append("/").append(normalIndices[j] + 1);
-                            ;
-                        }
-                    }
-                }
-                sb.append("\n");
+    /**
+     * Проверяет и записывает элементы раздела с индексами [from, to).
+     */
+    static void writeRange(Model model, Section section, int from, int to, ObjTextOutput out, FloatFormat format)
+            throws IOException {
+        try {
+            switch (section) {
+                case VERTICES -> writeVertices(model.getVerticesInternal(), from, to, out, format);
+                case TEXTURE_VERTICES -> writeTextureVertices(model.getTextureVerticesInternal(), from, to, out, format);
+                case NORMALS -> writeNormals(model.getNormalsInternal(), from, to, out, format);
+                case POLYGONS -> writePolygons(model, from, to, out);
             }
-
         } catch (IndexOutOfBoundsException e) {
             throw new ObjWriterException("Invalid model data structure", e);
         } catch (NullPointerException e) {
             throw new ObjWriterException("Model contains null elements", e);
         }
+    }
+
+    // Координаты читаются из буферов модели (в куче или вне ее) напрямую, без создания векторов
+    private static void writeVertices(Vector3fList vertices, int from, int to, ObjTextOutput out, FloatFormat format)
+            throws IOException {
+        Objects.checkFromToIndex(from, to, vertices.size());
+        FloatBuffer xyz = vertices.buffer();
+        for (int i = from; i < to; i++) {
+            float x = xyz.get(i * 3), y = xyz.get(i * 3 + 1), z = xyz.get(i * 3 + 2);
+            validateVertex(x, y, z, i);
+            out.append("v ")
+                    .append(x, format)
+                    .append(" ")
+                    .append(y, format)
+                    .append(" ")
+                    .append(z, format)
+                    .append("\n");
+        }
+    }
+
+    private static void writeTextureVertices(Vector2fList textureVertices, int from, int to, ObjTextOutput out,
+                                             FloatFormat format) throws IOException {
+        Objects.checkFromToIndex(from, to, textureVertices.size());
+        FloatBuffer xy = textureVertices.buffer();
+        for (int i = from; i < to; i++) {
+            float x = xy.get(i * 2), y = xy.get(i * 2 + 1);
+            validateTextureVertex(x, y, i);
+            out.append("vt ")
+                    .append(x, format)
+                    .append(" ")
+                    .append(y, format)
+                    .append("\n");
+        }
+    }
+
+    private static void writeNormals(Vector3fList normals, int from, int to, ObjTextOutput out, FloatFormat format)
+            throws IOException {
+        Objects.checkFromToIndex(from, to, normals.size());
+        FloatBuffer xyz = normals.buffer();
+        for (int i = from; i < to; i++) {
+            float x = xyz.get(i * 3), y = xyz.get(i * 3 + 1), z = xyz.get(i * 3 + 2);
+            validateNormal(x, y, z, i);
+            out.append("vn ")
+                    .append(x, format)
+                    .append(" ")
+                    .append(y, format)
+                    .append(" ")
+                    .append(z, format)
+                    .append("\n");
+        }
+    }
+
+    private static void writePolygons(Model model, int from, int to, ObjTextOutput out) throws IOException {
+        PolygonList polygons = model.getPolygonsInternal();
+        Objects.checkFromToIndex(from, to, polygons.size());
+        int vertexCount = model.getVertices().size();
+        int textureVertexCount = sizeOf(model.getTextureVertices());
+        int normalCount = sizeOf(model.getNormals());
+        IntBuffer vertexOffsets = polygons.vertexOffsetBuffer();
+        IntBuffer vertexIndices = polygons.vertexIndexBuffer();
+        IntBuffer textureOffsets = polygons.textureOffsetBuffer();
+        IntBuffer textureVertexIndices = polygons.textureIndexBuffer();
+        IntBuffer normalOffsets = polygons.normalOffsetBuffer();
+        IntBuffer normalIndices = polygons.normalIndexBuffer();
+        for (int i = from; i < to; i++) {
+            validatePolygon(polygons, i, vertexCount, textureVertexCount, normalCount);
+
+            out.append("f");
+            int start = vertexOffsets.get(i);
+            int size = vertexOffsets.get(i + 1) - start;
+            int textureStart = textureOffsets.get(i);
+            int normalStart = normalOffsets.get(i);
+
+            boolean hasTextures = textureOffsets.get(i + 1) > textureStart;
+            boolean hasNormals = normalOffsets.get(i + 1) > normalStart;
+
+            for (int j = 0; j < size; j++) {
+                out.append(" ");
+                out.append(vertexIndices.get(start + j) + 1);
+
+                if (hasTextures || hasNormals) {
+                    out.append("/");
+
+                    if (hasTextures) {
+                        out.append(textureVertexIndices.get(textureStart + j) + 1);
+                    }
 
-        return sb.toString();
+                    if (hasNormals) {
+                        out.append("/").append(normalIndices.get(normalStart + j) + 1);
+                    }
+                }
+            }
+            out.append("\n");
+        }
     }
 
     //компактное форматирование чисел как в оригинальном файле
@@ -147,16 +341,9 @@ public class ObjWriter {
             throw new ObjWriterException("Cannot format infinite value");
         }
 
-        String result = String.format(Locale.ROOT, "%.6f", value);
-
-        if (result.contains(".")) {
-            result = result.replaceAll("0*$", "");
-            if (result.endsWith(".")) {
-                result = result.substring(0, result.length() - 1);
-            }
-        }
-
-        return result;
+        char[] buffer = new char[FloatFormatter.MAX_LENGTH];
+        int end = FloatFormatter.formatFixed(value, buffer, 0);
+        return end < 0 ? ObjTextOutput.formatFixedSlow(value) : new String(buffer, 0, end);
     }
 
     // Обычные валидаторы
@@ -165,10 +352,14 @@ public class ObjWriter {
         if (vertex == null) {
             throw new ObjWriterException("Vertex at index " + index + " is null");
         }
-        if (Float.isNaN(vertex.getX()) || Float.isNaN(vertex.getY()) || Float.isNaN(vertex.getZ())) {
+        validateVertex(vertex.getX(), vertex.getY(), vertex.getZ(), index);
+    }
+
+    protected static void validateVertex(float x, float y, float z, int index) {
+        if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(z)) {
             throw new ObjWriterException("Vertex at index " + index + " contains NaN values");
         }
-        if (Float.isInfinite(vertex.getX()) || Float.isInfinite(vertex.getY()) || Float.isInfinite(vertex.getZ())) {
+        if (Float.isInfinite(x) || Float.isInfinite(y) || Float.isInfinite(z)) {
             throw new ObjWriterException("Vertex at index " + index + " contains infinite values");
         }
     }
@@ -177,10 +368,14 @@ public class ObjWriter {
         if (textureVertex == null) {
             throw new ObjWriterException("Texture vertex at index " + index + " is null");
         }
-        if (Float.isNaN(textureVertex.getX()) || Float.isNaN(textureVertex.getY())) {
+        validateTextureVertex(textureVertex.getX(), textureVertex.getY(), index);
+    }
+
+    protected static void validateTextureVertex(float x, float y, int index) {
+        if (Float.isNaN(x) || Float.isNaN(y)) {
             throw new ObjWriterException("Texture vertex at index " + index + " contains NaN values");
         }
-        if (Float.isInfinite(textureVertex.getX()) || Float.isInfinite(textureVertex.getY())) {
+        if (Float.isInfinite(x) || Float.isInfinite(y)) {
             throw new ObjWriterException("Texture vertex at index " + index + " contains infinite values");
         }
     }
@@ -189,10 +384,14 @@ public class ObjWriter {
         if (normal == null) {
             throw new ObjWriterException("Normal at index " + index + " is null");
         }
-        if (Float.isNaN(normal.getX()) || Float.isNaN(normal.getY()) || Float.isNaN(normal.getZ())) {
+        validateNormal(normal.getX(), normal.getY(), normal.getZ(), index);
+    }
+
+    protected static void validateNormal(float x, float y, float z, int index) {
+        if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(z)) {
             throw new ObjWriterException("Normal at index " + index + " contains NaN values");
         }
-        if (Float.isInfinite(normal.getX()) || Float.isInfinite(normal.getY()) || Float.isInfinite(normal.getZ())) {
+        if (Float.isInfinite(x) || Float.isInfinite(y) || Float.isInfinite(z)) {
             throw new ObjWriterException("Normal at index " + index + " contains infinite values");
         }
     }
@@ -211,15 +410,51 @@ public class ObjWriter {
             throw new ObjWriterException("Polygon at index " + polyIndex + " has null vertex indices");
         }
 
-        if (vertexIndices.length == 0) {
+        validatePolygonIndices(polyIndex,
+                IntBuffer.wrap(vertexIndices), 0, vertexIndices.length, vertexCount,
+                wrap(textureVertexIndices), 0, textureVertexIndices != null ? textureVertexIndices.length : 0,
+                textureVertexCount,
+                wrap(normalIndices), 0, normalIndices != null ? normalIndices.length : 0, normalCount);
+    }
+
+    /**
+     * Проверка полигона из списка модели прямо по буферам индексов, без создания объекта Polygon.
+     */
+    protected static void validatePolygon(PolygonList polygons, int polyIndex, int vertexCount,
+                                          int textureVertexCount, int normalCount) {
+        IntBuffer vertexOffsets = polygons.vertexOffsetBuffer();
+        IntBuffer textureOffsets = polygons.textureOffsetBuffer();
+        IntBuffer normalOffsets = polygons.normalOffsetBuffer();
+        validatePolygonIndices(polyIndex,
+                polygons.vertexIndexBuffer(), vertexOffsets.get(polyIndex), vertexOffsets.get(polyIndex + 1),
+                vertexCount,
+                polygons.textureIndexBuffer(), textureOffsets.get(polyIndex), textureOffsets.get(polyIndex + 1),
+                textureVertexCount,
+                polygons.normalIndexBuffer(), normalOffsets.get(polyIndex), normalOffsets.get(polyIndex + 1),
+                normalCount);
+    }
+
+    private static IntBuffer wrap(int[] indices) {
+        return indices != null ? IntBuffer.wrap(indices) : null;
+    }
+
+    // Индексы полигона — диапазоны [from, to) в буферах
+    private static void validatePolygonIndices(int polyIndex,
+                                               IntBuffer vertexIndices, int vertexFrom, int vertexTo, int vertexCount,
+                                               IntBuffer textureVertexIndices, int textureFrom, int textureTo,
+                                               int textureVertexCount,
+                                               IntBuffer normalIndices, int normalFrom, int normalTo, int normalCount) {
+        int size = vertexTo - vertexFrom;
+        if (size == 0) {
             throw new ObjWriterException("Polygon at index " + polyIndex + " has no vertices");
         }
 
-        if (vertexIndices.length < 3) {
+        if (size < 3) {
             throw new ObjWriterException("Polygon at index " + polyIndex + " has less than 3 vertices");
         }
 
-        for (int vertexIndex : vertexIndices) {
+        for (int k = vertexFrom; k < vertexTo; k++) {
+            int vertexIndex = vertexIndices.get(k);
             if (vertexIndex < 0 || vertexIndex >= vertexCount) {
                 throw new ObjWriterException(
                         "Polygon at index " + polyIndex + " references invalid vertex index " +
@@ -228,14 +463,15 @@ public class ObjWriter {
             }
         }
 
-        if (textureVertexIndices != null && textureVertexIndices.length > 0) {
-            if (textureVertexIndices.length != vertexIndices.length) {
+        if (textureTo > textureFrom) {
+            if (textureTo - textureFrom != size) {
                 throw new ObjWriterException(
                         "Polygon at index " + polyIndex + " has mismatched vertex and texture vertex counts"
                 );
             }
 
-            for (int texIndex : textureVertexIndices) {
+            for (int k = textureFrom; k < textureTo; k++) {
+                int texIndex = textureVertexIndices.get(k);
                 if (texIndex < 0 || texIndex >= textureVertexCount) {
                     throw new ObjWriterException(
                             "Polygon at index " + polyIndex + " references invalid texture vertex index " +
@@ -245,14 +481,15 @@ public class ObjWriter {
             }
         }
 
-        if (normalIndices != null && normalIndices.length > 0) {
-            if (normalIndices.length != vertexIndices.length) {
+        if (normalTo > normalFrom) {
+            if (normalTo - normalFrom != size) {
                 throw new ObjWriterException(
                         "Polygon at index " + polyIndex + " has mismatched vertex and normal counts"
                 );
             }
 
-            for (int normalIndex : normalIndices) {
+            for (int k = normalFrom; k < normalTo; k++) {
+                int normalIndex = normalIndices.get(k);
                 if (normalIndex < 0 || normalIndex >= normalCount) {
                     throw new ObjWriterException(
                             "Polygon at index " + polyIndex + " references invalid normal index " +
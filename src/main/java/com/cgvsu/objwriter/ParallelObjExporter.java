@@ -0,0 +1,156 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.model.Model;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Параллельный экспорт OBJ. Разделы модели делятся на куски по chunkSize элементов,
+ * куски форматируются на ForkJoinPool в переиспользуемые буферы, а вызывающий поток
+ * пишет готовые буферы в writer строго по порядку. Одновременно в работе не больше
+ * нескольких кусков на поток, поэтому память не зависит от размера модели,
+ * а результат побайтно совпадает с последовательной записью (включая первую ошибку проверки).
+ */
+final class ParallelObjExporter {
+
+    static final int DEFAULT_CHUNK_SIZE = 1 << 15;
+
+    // Меньшие модели быстрее записать в одном потоке
+    private static final int MIN_PARALLEL_ELEMENTS = 1 << 17;
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    private ParallelObjExporter() {
+    }
+
+    static boolean isWorthParallel(Model model) {
+        if (ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return false;
+        }
+        return ObjWriter.elementCount(model) >= MIN_PARALLEL_ELEMENTS;
+    }
+
+    static void write(Model model, String comment, Writer writer, FloatFormat format, int chunkSize) throws IOException {
+        write(model, comment, writer, format, chunkSize, ObjWriteListener.NONE);
+    }
+
+    static void write(Model model, String comment, Writer writer, FloatFormat format, int chunkSize,
+                      ObjWriteListener listener) throws IOException {
+        List<Chunk> chunks = split(model, chunkSize);
+        long total = ObjWriter.elementCount(model);
+        long written = 0;
+        int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD);
+
+        ArrayDeque<ChunkBuffer> pool = new ArrayDeque<>(window);
+        for (int i = 0; i < window; i++) {
+            pool.add(new ChunkBuffer());
+        }
+        List<CompletableFuture<ChunkBuffer>> pending = new ArrayList<>(chunks.size());
+
+        ObjTextOutput header = new ObjTextOutput(writer);
+        ObjWriter.writeComment(header, comment);
+        header.flushBuffer();
+
+        try {
+            int submitted = 0;
+            for (int next = 0; next < chunks.size(); next++) {
+                // Новый кусок берет буфер, освобожденный уже записанным куском
+                while (submitted < chunks.size() && !pool.isEmpty()) {
+                    pending.add(format(model, chunks.get(submitted), pool.poll(), format));
+                    submitted++;
+                }
+                ChunkBuffer buffer = await(pending.get(next));
+                pending.set(next, null);
+                buffer.text.writeTo(writer);
+                buffer.text.reset();
+                pool.add(buffer);
+                Chunk chunk = chunks.get(next);
+                written += chunk.to - chunk.from;
+                ObjWriter.reportProgress(listener, written, total);
+            }
+        } finally {
+            // При ошибке дожидаться оставшихся кусков незачем
+            for (CompletableFuture<ChunkBuffer> future : pending) {
+                if (future != null) {
+                    future.cancel(false);
+                }
+            }
+        }
+    }
+
+    private static CompletableFuture<ChunkBuffer> format(Model model, Chunk chunk, ChunkBuffer buffer, FloatFormat format) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (chunk.blankLineBefore) {
+                    buffer.out.append("\n");
+                }
+                ObjWriter.writeRange(model, chunk.section, chunk.from, chunk.to, buffer.out, format);
+                buffer.out.flushBuffer();
+                return buffer;
+            } catch (IOException e) {
+                // CharArrayWriter не бросает IOException
+                throw new UncheckedIOException(e);
+            }
+        }, ForkJoinPool.commonPool());
+    }
+
+    private static ChunkBuffer await(CompletableFuture<ChunkBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("OBJ export interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // Пустая строка перед разделом уходит в его первый кусок
+    private static List<Chunk> split(Model model, int chunkSize) {
+        List<Chunk> chunks = new ArrayList<>();
+        for (ObjWriter.Section section : ObjWriter.Section.values()) {
+            boolean blankLine = ObjWriter.hasBlankLineBefore(model, section);
+            int size = ObjWriter.sectionSize(model, section);
+            for (int from = 0; from < size || blankLine; from += chunkSize) {
+                chunks.add(new Chunk(section, from, Math.min(size, from + chunkSize), blankLine));
+                blankLine = false;
+            }
+        }
+        return chunks;
+    }
+
+    private static final class Chunk {
+        final ObjWriter.Section section;
+        final int from;
+        final int to;
+        final boolean blankLineBefore;
+
+        Chunk(ObjWriter.Section section, int from, int to, boolean blankLineBefore) {
+            this.section = section;
+            this.from = from;
+            this.to = to;
+            this.blankLineBefore = blankLineBefore;
+        }
+    }
+
+    private static final class ChunkBuffer {
+        final CharArrayWriter text = new CharArrayWriter(1 << 16);
+        final ObjTextOutput out = new ObjTextOutput(text);
+    }
+}
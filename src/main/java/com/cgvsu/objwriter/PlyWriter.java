@@ -0,0 +1,255 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PolygonList;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Экспорт в бинарный PLY (binary_little_endian): позиции, нормали, текстурные координаты
+ * и многоугольники любого размера. Модель проверяется по тем же правилам, что и в {@link ObjWriter}.
+ * <p>
+ * В PLY атрибуты принадлежат вершине, а в OBJ — углу полигона. Если одна вершина OBJ
+ * встречается с разными парами (vt, vn), для каждой следующей пары заводится копия вершины
+ * в конце списка. Вершины без разделения сохраняют свои номера из OBJ.
+ */
+public class PlyWriter {
+
+    // Атрибут угла еще не назначен
+    private static final int UNASSIGNED = Integer.MIN_VALUE;
+
+    private PlyWriter() {
+    }
+
+    public static void write(Model model, Path path) throws IOException {
+        write(model, path, ObjWriteListener.NONE);
+    }
+
+    /**
+     * Запись с отчетом о прогрессе (в вершинах и полигонах) и отменой через прерывание потока, как в ObjWriter.
+     */
+    public static void write(Model model, Path path, ObjWriteListener listener) throws IOException {
+        validate(model);
+        Layout layout = new Layout(model);
+        ObjWriter.writeReplacing(path, temp -> {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                BinaryOutput out = new BinaryOutput(channel);
+                writeHeader(layout, out);
+                writeBody(model, layout, out, listener);
+            }
+        });
+    }
+
+    private static void validate(Model model) {
+        if (model == null) {
+            throw new ObjWriterException("Model cannot be null");
+        }
+        FloatBuffer vertices = model.getVerticesInternal().buffer();
+        FloatBuffer textureVertices = model.getTextureVerticesInternal().buffer();
+        FloatBuffer normals = model.getNormalsInternal().buffer();
+        int vertexCount = model.getVertices().size();
+        int textureVertexCount = ObjWriter.sizeOf(model.getTextureVertices());
+        int normalCount = ObjWriter.sizeOf(model.getNormals());
+        try {
+            for (int i = 0; i < vertexCount; i++) {
+                ObjWriter.validateVertex(vertices.get(i * 3), vertices.get(i * 3 + 1), vertices.get(i * 3 + 2), i);
+            }
+            for (int i = 0; i < textureVertexCount; i++) {
+                ObjWriter.validateTextureVertex(textureVertices.get(i * 2), textureVertices.get(i * 2 + 1), i);
+            }
+            for (int i = 0; i < normalCount; i++) {
+                ObjWriter.validateNormal(normals.get(i * 3), normals.get(i * 3 + 1), normals.get(i * 3 + 2), i);
+            }
+            PolygonList polygons = model.getPolygonsInternal();
+            for (int i = 0; i < polygons.size(); i++) {
+                ObjWriter.validatePolygon(polygons, i, vertexCount, textureVertexCount, normalCount);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new ObjWriterException("Invalid model data structure", e);
+        }
+    }
+
+    private static void writeHeader(Layout layout, BinaryOutput out) throws IOException {
+        StringBuilder header = new StringBuilder()
+                .append("ply\n")
+                .append("format binary_little_endian 1.0\n")
+                .append("comment ").append(ObjWriter.DEFAULT_COMMENT).append('\n')
+                .append("element vertex ").append(layout.vertexCount).append('\n')
+                .append("property float x\nproperty float y\nproperty float z\n");
+        if (layout.hasNormals) {
+            header.append("property float nx\nproperty float ny\nproperty float nz\n");
+        }
+        if (layout.hasTextures) {
+            header.append("property float s\nproperty float t\n");
+        }
+        header.append("element face ").append(layout.faceCount).append('\n')
+                .append("property list ").append(layout.wideFaces ? "int" : "uchar").append(" int vertex_indices\n")
+                .append("end_header\n");
+        out.putAscii(header.toString());
+    }
+
+    private static void writeBody(Model model, Layout layout, BinaryOutput out, ObjWriteListener listener)
+            throws IOException {
+        FloatBuffer vertices = model.getVerticesInternal().buffer();
+        FloatBuffer textureVertices = model.getTextureVerticesInternal().buffer();
+        FloatBuffer normals = model.getNormalsInternal().buffer();
+        int faceCount = layout.faceCount;
+        long total = (long) layout.vertexCount + faceCount;
+
+        for (int i = 0; i < layout.vertexCount; i++) {
+            int position = layout.positionOf(i) * 3;
+            out.putFloat(vertices.get(position)).putFloat(vertices.get(position + 1)).putFloat(vertices.get(position + 2));
+            if (layout.hasNormals) {
+                int normal = layout.normals[i];
+                if (normal >= 0) {
+                    out.putFloat(normals.get(normal * 3)).putFloat(normals.get(normal * 3 + 1)).putFloat(normals.get(normal * 3 + 2));
+                } else {
+                    out.putFloat(0).putFloat(0).putFloat(0);
+                }
+            }
+            if (layout.hasTextures) {
+                int texture = layout.textures[i];
+                if (texture >= 0) {
+                    out.putFloat(textureVertices.get(texture * 2)).putFloat(textureVertices.get(texture * 2 + 1));
+                } else {
+                    out.putFloat(0).putFloat(0);
+                }
+            }
+            if ((i + 1) % ObjWriter.PROGRESS_STEP == 0) {
+                ObjWriter.reportProgress(listener, i + 1, total);
+            }
+        }
+
+        for (int i = 0; i < faceCount; i++) {
+            int from = layout.faceOffsets.get(i);
+            int to = layout.faceOffsets.get(i + 1);
+            if (layout.wideFaces) {
+                out.putInt(to - from);
+            } else {
+                out.putByte(to - from);
+            }
+            for (int j = from; j < to; j++) {
+                out.putInt(layout.corners.get(j));
+            }
+            if ((i + 1) % ObjWriter.PROGRESS_STEP == 0) {
+                ObjWriter.reportProgress(listener, layout.vertexCount + i + 1L, total);
+            }
+        }
+        out.flushBuffer();
+        ObjWriter.reportProgress(listener, total, total);
+    }
+
+    /**
+     * Вершины PLY и номера вершин в углах полигонов (CSR: faceOffsets и corners).
+     * Без текстур и нормалей углы совпадают с индексами вершин модели и читаются прямо из ее буферов.
+     */
+    private static final class Layout {
+        final boolean hasTextures;
+        final boolean hasNormals;
+        boolean wideFaces;
+
+        final int objVertexCount;
+        int vertexCount;
+        // Для копий вершин: исходная вершина OBJ и следующая копия той же вершины
+        int[] origins = new int[0];
+        int copyCount;
+        int[] nextCopy;
+        int[] textures;
+        int[] normals;
+
+        final int faceCount;
+        final IntBuffer faceOffsets;
+        final IntBuffer corners;
+
+        Layout(Model model) {
+            PolygonList polygons = model.getPolygonsInternal();
+            int polygonCount = polygons.size();
+            IntBuffer vertexOffsets = polygons.vertexOffsetBuffer();
+            IntBuffer vertexIndices = polygons.vertexIndexBuffer();
+            IntBuffer textureOffsets = polygons.textureOffsetBuffer();
+            IntBuffer textureIndices = polygons.textureIndexBuffer();
+            IntBuffer normalOffsets = polygons.normalOffsetBuffer();
+            IntBuffer normalIndices = polygons.normalIndexBuffer();
+            // Углы граней PLY идут в том же порядке, что и индексы вершин модели
+            faceCount = polygonCount;
+            faceOffsets = vertexOffsets;
+            for (int i = 0; i < polygonCount; i++) {
+                wideFaces |= vertexOffsets.get(i + 1) - vertexOffsets.get(i) > 255;
+            }
+            hasTextures = textureOffsets.get(polygonCount) > 0;
+            hasNormals = normalOffsets.get(polygonCount) > 0;
+
+            objVertexCount = model.getVertices().size();
+            vertexCount = objVertexCount;
+            if (!hasTextures && !hasNormals) {
+                corners = vertexIndices;
+                return;
+            }
+            corners = IntBuffer.allocate(vertexOffsets.get(polygonCount));
+
+            int capacity = Math.max(objVertexCount, 16);
+            textures = new int[capacity];
+            normals = new int[capacity];
+            nextCopy = new int[capacity];
+            // Вершины без полигонов так и остаются без атрибутов
+            Arrays.fill(textures, UNASSIGNED);
+            Arrays.fill(normals, -1);
+            Arrays.fill(nextCopy, -1);
+            for (int i = 0; i < polygonCount; i++) {
+                int textureStart = textureOffsets.get(i + 1) > textureOffsets.get(i) ? textureOffsets.get(i) : -1;
+                int normalStart = normalOffsets.get(i + 1) > normalOffsets.get(i) ? normalOffsets.get(i) : -1;
+                for (int k = vertexOffsets.get(i), j = 0; k < vertexOffsets.get(i + 1); k++, j++) {
+                    corners.put(k, vertexFor(vertexIndices.get(k),
+                            textureStart >= 0 ? textureIndices.get(textureStart + j) : -1,
+                            normalStart >= 0 ? normalIndices.get(normalStart + j) : -1));
+                }
+            }
+        }
+
+        int positionOf(int plyVertex) {
+            return plyVertex < objVertexCount ? plyVertex : origins[plyVertex - objVertexCount];
+        }
+
+        // Вершина PLY для угла (v, vt, vn): сама вершина OBJ или ее копия с такими же атрибутами
+        private int vertexFor(int vertex, int texture, int normal) {
+            int current = vertex;
+            while (true) {
+                if (textures[current] == UNASSIGNED) {
+                    textures[current] = texture;
+                    normals[current] = normal;
+                    return current;
+                }
+                if (textures[current] == texture && normals[current] == normal) {
+                    return current;
+                }
+                if (nextCopy[current] < 0) {
+                    break;
+                }
+                current = nextCopy[current];
+            }
+
+            int copy = vertexCount++;
+            if (copy == textures.length) {
+                int capacity = textures.length * 2;
+                textures = Arrays.copyOf(textures, capacity);
+                normals = Arrays.copyOf(normals, capacity);
+                nextCopy = Arrays.copyOf(nextCopy, capacity);
+                Arrays.fill(nextCopy, copy, capacity, -1);
+            }
+            if (copyCount == origins.length) {
+                origins = Arrays.copyOf(origins, Math.max(16, copyCount * 2));
+            }
+            origins[copyCount++] = vertex;
+            textures[copy] = texture;
+            normals[copy] = normal;
+            nextCopy[current] = copy;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.PolygonList;
+import com.cgvsu.model.Vector3fList;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Экспорт в бинарный STL. Многоугольники разбиваются на треугольники веером от первой вершины
+ * прямо при записи; нормаль треугольника вычисляется по его вершинам.
+ * Проверяются вершины и полигоны по тем же правилам, что и в {@link ObjWriter};
+ * текстурные координаты и нормали модели в STL не попадают.
+ */
+public class StlWriter {
+
+    private static final int HEADER_SIZE = 80;
+    // Нормаль, три вершины и двухбайтовый атрибут
+    private static final int TRIANGLE_SIZE = 50;
+    private static final long MAX_TRIANGLES = 0xFFFFFFFFL;
+
+    private StlWriter() {
+    }
+
+    public static void write(Model model, Path path) throws IOException {
+        write(model, path, ObjWriteListener.NONE);
+    }
+
+    /**
+     * Запись с отчетом о прогрессе (в полигонах) и отменой через прерывание потока, как в ObjWriter.
+     */
+    public static void write(Model model, Path path, ObjWriteListener listener) throws IOException {
+        long triangleCount = validate(model);
+        ObjWriter.writeReplacing(path, temp -> {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                writeTriangles(model, triangleCount, new BinaryOutput(channel), listener);
+            }
+        });
+    }
+
+    // Проверяет модель и считает треугольники: их число пишется в заголовок до самих треугольников
+    private static long validate(Model model) {
+        if (model == null) {
+            throw new ObjWriterException("Model cannot be null");
+        }
+        Vector3fList vertices = model.getVerticesInternal();
+        PolygonList polygons = model.getPolygonsInternal();
+        int vertexCount = vertices.size();
+        FloatBuffer xyz = vertices.buffer();
+        int textureVertexCount = ObjWriter.sizeOf(model.getTextureVertices());
+        int normalCount = ObjWriter.sizeOf(model.getNormals());
+        try {
+            for (int i = 0; i < vertexCount; i++) {
+                ObjWriter.validateVertex(xyz.get(i * 3), xyz.get(i * 3 + 1), xyz.get(i * 3 + 2), i);
+            }
+            long triangleCount = 0;
+            for (int i = 0; i < polygons.size(); i++) {
+                ObjWriter.validatePolygon(polygons, i, vertexCount, textureVertexCount, normalCount);
+                triangleCount += polygons.getVertexCount(i) - 2;
+            }
+            if (triangleCount > MAX_TRIANGLES) {
+                throw new ObjWriterException("Too many triangles for STL: " + triangleCount);
+            }
+            return triangleCount;
+        } catch (IndexOutOfBoundsException e) {
+            throw new ObjWriterException("Invalid model data structure", e);
+        }
+    }
+
+    private static void writeTriangles(Model model, long triangleCount, BinaryOutput out, ObjWriteListener listener)
+            throws IOException {
+        out.ensure(HEADER_SIZE);
+        String header = ObjWriter.DEFAULT_COMMENT;
+        out.putAscii(header);
+        for (int i = header.length(); i < HEADER_SIZE; i++) {
+            out.putByte(' ');
+        }
+        out.putInt((int) triangleCount);
+
+        // Индексы уже проверены в validate, координаты читаются из буфера модели
+        FloatBuffer xyz = model.getVerticesInternal().buffer();
+        PolygonList polygons = model.getPolygonsInternal();
+        IntBuffer offsets = polygons.vertexOffsetBuffer();
+        IntBuffer indices = polygons.vertexIndexBuffer();
+        int polygonCount = polygons.size();
+        for (int i = 0; i < polygonCount; i++) {
+            int first = indices.get(offsets.get(i)) * 3;
+            for (int k = offsets.get(i) + 1; k + 1 < offsets.get(i + 1); k++) {
+                writeTriangle(xyz, first, indices.get(k) * 3, indices.get(k + 1) * 3, out);
+            }
+            if ((i + 1) % ObjWriter.PROGRESS_STEP == 0 || i + 1 == polygonCount) {
+                ObjWriter.reportProgress(listener, i + 1, polygonCount);
+            }
+        }
+        out.flushBuffer();
+    }
+
+    // a, b, c — смещения вершин в буфере координат
+    private static void writeTriangle(FloatBuffer xyz, int a, int b, int c, BinaryOutput out) throws IOException {
+        float ax = xyz.get(a), ay = xyz.get(a + 1), az = xyz.get(a + 2);
+        float bx = xyz.get(b), by = xyz.get(b + 1), bz = xyz.get(b + 2);
+        float cx = xyz.get(c), cy = xyz.get(c + 1), cz = xyz.get(c + 2);
+        float ux = bx - ax, uy = by - ay, uz = bz - az;
+        float vx = cx - ax, vy = cy - ay, vz = cz - az;
+        float nx = uy * vz - uz * vy;
+        float ny = uz * vx - ux * vz;
+        float nz = ux * vy - uy * vx;
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        // У вырожденного треугольника нормаль нулевая: читатели STL тогда считают ее сами
+        if (length > 0 && Float.isFinite(length)) {
+            nx /= length;
+            ny /= length;
+            nz /= length;
+        } else {
+            nx = ny = nz = 0;
+        }
+
+        out.ensure(TRIANGLE_SIZE);
+        out.putFloat(nx).putFloat(ny).putFloat(nz);
+        out.putFloat(ax).putFloat(ay).putFloat(az);
+        out.putFloat(bx).putFloat(by).putFloat(bz);
+        out.putFloat(cx).putFloat(cy).putFloat(cz);
+        out.putShort(0);
+    }
+}
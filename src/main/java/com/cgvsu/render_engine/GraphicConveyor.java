@@ -4,9 +4,11 @@ import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
 import com.cgvsu.math.Matrix4x4;
 import com.cgvsu.model.Model;
+import com.cgvsu.model.Vector2fList;
 import javafx.scene.image.Image;
 import javafx.scene.image.PixelWriter;
 
+import java.nio.FloatBuffer;
 import java.util.List;
 
 public class GraphicConveyor {
@@ -60,6 +62,28 @@ public class GraphicConveyor {
         }
     }
 
+    /**
+     * То же, что multiplyMatrix4ByVector3, но для точки из массива координат (x, y, z начиная с offset);
+     * результат записывается в dest[0..2] без создания объектов.
+     */
+    public static void multiplyMatrix4ByPoint(final Matrix4x4 m, final FloatBuffer xyz, final int offset, final float[] dest) {
+        float vx = xyz.get(offset), vy = xyz.get(offset + 1), vz = xyz.get(offset + 2);
+        float x = m.get(0, 0) * vx + m.get(0, 1) * vy + m.get(0, 2) * vz + m.get(0, 3);
+        float y = m.get(1, 0) * vx + m.get(1, 1) * vy + m.get(1, 2) * vz + m.get(1, 3);
+        float z = m.get(2, 0) * vx + m.get(2, 1) * vy + m.get(2, 2) * vz + m.get(2, 3);
+        float w = m.get(3, 0) * vx + m.get(3, 1) * vy + m.get(3, 2) * vz + m.get(3, 3);
+
+        if (Math.abs(w) > 0.0001f) {
+            dest[0] = x / w;
+            dest[1] = y / w;
+            dest[2] = z / w;
+        } else {
+            dest[0] = x;
+            dest[1] = y;
+            dest[2] = 0;
+        }
+    }
+
     public static void rasterizeTriangle(
             final PixelWriter pw, float[] zBuffer, int width, int height,
             Vector2f p1, Vector2f p2, Vector2f p3,
@@ -128,11 +152,11 @@ public class GraphicConveyor {
     }
 
     private static Vector2f getUV(int textureIdx, Model mesh) {
-        List<Vector2f> uvs = mesh.getTextureVertices();
-        if (textureIdx < 0 || uvs.isEmpty() || textureIdx >= uvs.size()) {
+        Vector2fList uvs = mesh.getTextureVerticesInternal();
+        if (textureIdx < 0 || textureIdx >= uvs.size()) {
             return new Vector2f(0, 0);
         }
-        return uvs.get(textureIdx);
+        return new Vector2f(uvs.getX(textureIdx), uvs.getY(textureIdx));
     }
 
     private static int sampleTexture(Image tex, float u, float v) {
@@ -4,9 +4,12 @@ import com.cgvsu.math.Vector2f;
 import com.cgvsu.math.Vector3f;
 import com.cgvsu.math.Matrix4x4;
 import com.cgvsu.model.Model;
-import com.cgvsu.model.Polygon;
+import com.cgvsu.model.PolygonList;
+import com.cgvsu.model.Vector3fList;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 import java.util.List;
 
@@ -44,41 +47,55 @@ public class RenderEngine {
         Matrix4x4 projectionMatrix = camera.getProjectionMatrix();
         Matrix4x4 mvp = projectionMatrix.multiply(viewMatrix).multiply(modelMatrix);
 
-        List<Polygon> polygons = mesh.getPolygons();
+        // Координаты вершин читаются прямо из буфера модели (в куче или вне ее), без объекта на каждую вершину
+        Vector3fList vertices = mesh.getVerticesInternal();
+        FloatBuffer positions = vertices.buffer();
+        int vertexCount = vertices.size();
+        float[] transformed = new float[3];
+
+        // Индексы полигонов тоже читаются из плоских буферов списка (CSR). Удаленные полигоны
+        // до сжатия остаются в списке и пропускаются, поэтому номер полигона — его идентификатор
+        PolygonList polygons = mesh.getPolygonSlots();
+        IntBuffer vertexOffsets = polygons.vertexOffsetBuffer();
+        IntBuffer vertexIndices = polygons.vertexIndexBuffer();
+        IntBuffer textureOffsets = polygons.textureOffsetBuffer();
+        IntBuffer textureIndices = polygons.textureIndexBuffer();
+        IntBuffer normalOffsets = polygons.normalOffsetBuffer();
+        IntBuffer normalIndices = polygons.normalIndexBuffer();
         for (int pIdx = 0; pIdx < polygons.size(); pIdx++) {
-            Polygon poly = polygons.get(pIdx);
-            int[] vIdx = poly.getVertexIndices();
+            int vStart = vertexOffsets.get(pIdx);
+            int count = vertexOffsets.get(pIdx + 1) - vStart;
 
-            // Пропускаем полигоны с менее чем 3 вершин
-            if (vIdx.length < 3) {
+            // Пропускаем удаленные полигоны и полигоны с менее чем 3 вершин
+            if (count < 3 || mesh.isPolygonDeleted(pIdx)) {
                 continue;
             }
 
             // 1. Подготовим экранные координаты для всех вершин полигона
-            float[] sx = new float[vIdx.length];
-            float[] sy = new float[vIdx.length];
-            float[] sz = new float[vIdx.length];
-            float[] vIntensities = new float[vIdx.length];
+            float[] sx = new float[count];
+            float[] sy = new float[count];
+            float[] sz = new float[count];
+            float[] vIntensities = new float[count];
             boolean skipPolygon = false;
 
-            for (int j = 0; j < vIdx.length; j++) {
+            for (int j = 0; j < count; j++) {
+                int vertexIndex = vertexIndices.get(vStart + j);
                 // Проверка индекса вершины
-                if (vIdx[j] < 0 || vIdx[j] >= mesh.getVertices().size()) {
+                if (vertexIndex < 0 || vertexIndex >= vertexCount) {
                     skipPolygon = true;
                     break;
                 }
 
-                Vector3f vertex = mesh.getVertices().get(vIdx[j]);
-                Vector3f transV = GraphicConveyor.multiplyMatrix4ByVector3(mvp, vertex);
+                GraphicConveyor.multiplyMatrix4ByPoint(mvp, positions, vertexIndex * 3, transformed);
 
-                if (transV.z < -1 || transV.z > 1) {
+                if (transformed[2] < -1 || transformed[2] > 1) {
                     skipPolygon = true;
                     break;
                 }
 
-                sx[j] = (transV.x + 1) * width * 0.5f;
-                sy[j] = (1 - transV.y) * height * 0.5f;
-                sz[j] = transV.z;
+                sx[j] = (transformed[0] + 1) * width * 0.5f;
+                sy[j] = (1 - transformed[1]) * height * 0.5f;
+                sz[j] = transformed[2];
             }
 
             if (skipPolygon) continue;
@@ -86,28 +103,29 @@ public class RenderEngine {
             // 2. Рассчет освещения для каждой вершины (если нужно)
             if (useLighting && lights != null) {
                 // Получаем индексы нормалей ДЛЯ ЭТОГО ПОЛИГОНА
-                int[] nIdx = poly.getNormalIndices();
+                int nStart = normalOffsets.get(pIdx);
+                boolean hasNormals = normalOffsets.get(pIdx + 1) - nStart == count;
 
-                for (int j = 0; j < vIdx.length; j++) {
-                    Vector3f vertex = mesh.getVertices().get(vIdx[j]);
-                    Vector3f worldPos = GraphicConveyor.multiplyMatrix4ByVector3(modelMatrix, vertex);
+                for (int j = 0; j < count; j++) {
+                    GraphicConveyor.multiplyMatrix4ByPoint(modelMatrix, positions, vertexIndices.get(vStart + j) * 3, transformed);
+                    Vector3f worldPos = new Vector3f(transformed[0], transformed[1], transformed[2]);
 
                     Vector3f normal;
 
                     // ПРОВЕРКА: есть ли нормали у этой вершины в файле?
-                    if (nIdx != null && nIdx.length == vIdx.length && nIdx[j] != -1) {
+                    if (hasNormals && normalIndices.get(nStart + j) != -1) {
                         // Нормаль загружена из файла
-                        int normalIdx = nIdx[j];
+                        int normalIdx = normalIndices.get(nStart + j);
                         if (normalIdx >= 0 && normalIdx < mesh.getNormals().size()) {
                             // БЕРЕМ НОРМАЛЬ ИЗ ФАЙЛА
                             normal = mesh.getNormals().get(normalIdx);
                         } else {
                             // Если индекс нормали некорректен, используем нормаль по умолчанию
-                            normal = calculatePolygonNormal(poly, mesh.getVertices());
+                            normal = calculatePolygonNormal(vertexIndices, vStart, vertices);
                         }
                     } else {
                         // Если в полигоне нет нормалей, вычисляем нормаль полигона
-                        normal = calculatePolygonNormal(poly, mesh.getVertices());
+                        normal = calculatePolygonNormal(vertexIndices, vStart, vertices);
                     }
 
                     // Преобразуем нормаль в мировое пространство
@@ -116,12 +134,12 @@ public class RenderEngine {
                 }
             } else {
                 // Если освещение отключено, используем полную яркость
-                Arrays.fill(vIntensities, 0, vIdx.length, 1.0f);
+                Arrays.fill(vIntensities, 0, count, 1.0f);
             }
 
             // 3. Триангуляция веером ТОЛЬКО для растеризации (заливки)
             // Это нужно потому что методы растеризации (rasterizeTriangle) обычно работают только с треугольниками
-            for (int i = 1; i < vIdx.length - 1; i++) {
+            for (int i = 1; i < count - 1; i++) {
                 // Индексы для текущего треугольника
                 int idx0 = 0;          // Центральная вершина
                 int idx1 = i;          // Текущая вершина
@@ -130,7 +148,7 @@ public class RenderEngine {
                 // Подготовка данных для треугольника
                 Vector2f[] screenCoords = new Vector2f[3];
                 float[] depths = new float[3];
-                int[] vertexIndices = new int[3];
+                int[] triangleIndices = new int[3];
                 float[] intensities = new float[3];
 
                 screenCoords[0] = new Vector2f(sx[idx0], sy[idx0]);
@@ -141,9 +159,9 @@ public class RenderEngine {
                 depths[1] = sz[idx1];
                 depths[2] = sz[idx2];
 
-                vertexIndices[0] = vIdx[idx0];
-                vertexIndices[1] = vIdx[idx1];
-                vertexIndices[2] = vIdx[idx2];
+                triangleIndices[0] = vertexIndices.get(vStart + idx0);
+                triangleIndices[1] = vertexIndices.get(vStart + idx1);
+                triangleIndices[2] = vertexIndices.get(vStart + idx2);
 
                 intensities[0] = vIntensities[idx0];
                 intensities[1] = vIntensities[idx1];
@@ -152,12 +170,12 @@ public class RenderEngine {
                 // Получаем текстурные координаты (если есть)
                 int[] texIndices = null;
                 if (useTexture) {
-                    int[] allTexIndices = poly.getTextureVertexIndices();
-                    if (allTexIndices != null && allTexIndices.length == vIdx.length) {
+                    int tStart = textureOffsets.get(pIdx);
+                    if (textureOffsets.get(pIdx + 1) - tStart == count) {
                         texIndices = new int[]{
-                                allTexIndices[idx0],
-                                allTexIndices[idx1],
-                                allTexIndices[idx2]
+                                textureIndices.get(tStart + idx0),
+                                textureIndices.get(tStart + idx1),
+                                textureIndices.get(tStart + idx2)
                         };
                     }
                 }
@@ -169,7 +187,7 @@ public class RenderEngine {
                             gc.getPixelWriter(), zBuffer, width, height,
                             screenCoords[0], screenCoords[1], screenCoords[2],
                             depths[0], depths[1], depths[2],
-                            vertexIndices, texIndices, mesh, intensities,
+                            triangleIndices, texIndices, mesh, intensities,
                             useTexture ? texture : null, useLighting
                     );
                 }
@@ -188,24 +206,27 @@ public class RenderEngine {
                 }
 
                 // Рисуем ВСЕ грани полигона (N-угольника)
-                for (int i = 0; i < vIdx.length; i++) {
-                    int next = (i + 1) % vIdx.length;
+                for (int i = 0; i < count; i++) {
+                    int next = (i + 1) % count;
                     gc.strokeLine(sx[i], sy[i], sx[next], sy[next]);
                 }
             }
+        }
 
-            // 7. Отображение выбранной вершины (ЭТУ ЧАСТЬ Я ВЕРНУЛ)
-            if (selectedVertexIdx != -1) {
-                for (int j = 0; j < vIdx.length; j++) {
-                    if (vIdx[j] == selectedVertexIdx) {
-                        int px = (int) sx[j];
-                        int py = (int) sy[j];
-                        if (px >= 0 && px < width && py >= 0 && py < height) {
-                            if (sz[j] <= zBuffer[py * width + px] + 0.001f) {
-                                gc.setFill(javafx.scene.paint.Color.BLUE);
-                                gc.fillOval(sx[j] - 4, sy[j] - 4, 8, 8);
-                            }
-                        }
+        // 7. Отображение выбранной вершины: рисуется один раз после всех полигонов. Что вершина
+        // принадлежит хотя бы одному полигону, видно по смежности, без просмотра индексов каждого полигона
+        if (selectedVertexIdx >= 0 && selectedVertexIdx < vertexCount
+                && mesh.getVertexFaces().valence(selectedVertexIdx) > 0) {
+            GraphicConveyor.multiplyMatrix4ByPoint(mvp, positions, selectedVertexIdx * 3, transformed);
+            if (transformed[2] >= -1 && transformed[2] <= 1) {
+                float x = (transformed[0] + 1) * width * 0.5f;
+                float y = (1 - transformed[1]) * height * 0.5f;
+                int px = (int) x;
+                int py = (int) y;
+                if (px >= 0 && px < width && py >= 0 && py < height) {
+                    if (transformed[2] <= zBuffer[py * width + px] + 0.001f) {
+                        gc.setFill(javafx.scene.paint.Color.BLUE);
+                        gc.fillOval(x - 4, y - 4, 8, 8);
                     }
                 }
             }
@@ -213,16 +234,12 @@ public class RenderEngine {
     }
 
     // Метод для вычисления нормали полигона (используется, если в файле нет нормалей)
-    private static Vector3f calculatePolygonNormal(Polygon poly, List<Vector3f> vertices) {
-        int[] vIdx = poly.getVertexIndices();
-        if (vIdx.length < 3) {
-            return new Vector3f(0, 0, 1); // Нормаль по умолчанию
-        }
-
+    // Полигон начинается с позиции start в массиве индексов и содержит не меньше трех вершин
+    private static Vector3f calculatePolygonNormal(IntBuffer vertexIndices, int start, Vector3fList vertices) {
         // Берем первые три вершины полигона
-        Vector3f v0 = vertices.get(vIdx[0]);
-        Vector3f v1 = vertices.get(vIdx[1]);
-        Vector3f v2 = vertices.get(vIdx[2]);
+        Vector3f v0 = vertices.get(vertexIndices.get(start));
+        Vector3f v1 = vertices.get(vertexIndices.get(start + 1));
+        Vector3f v2 = vertices.get(vertexIndices.get(start + 2));
 
         // Вычисляем нормаль через векторное произведение
         Vector3f edge1 = Vector3f.subtract(v1, v0);
@@ -1,16 +1,20 @@
 package com.cgvsu.render_engine;
 
+import com.cgvsu.model.EditJournal;
 import com.cgvsu.model.Model;
 import com.cgvsu.model.ModelProcessor;
 import javafx.scene.image.Image;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class Scene {
     private List<Model> models = new ArrayList<>();
     private List<Model> originalModels = new ArrayList<>();
     private List<Image> textures = new ArrayList<>(); // Перенесли список текстур сюда
+    // Журнал отмены правок для каждой модели (см. EditJournal)
+    private List<EditJournal> journals = new ArrayList<>();
+    // Модели, которые еще догружаются в фоне (см. setModelLoading)
+    private List<Model> loadingModels = new ArrayList<>();
 
     private int activeModelIndex = -1;
 
@@ -53,16 +57,51 @@ public class Scene {
 
     public void addModel(Model model) {
         models.add(model);
-        originalModels.add(model.copy()); // Создаем независимый клон для восстановления
+        // Снимок для восстановления делит массивы с моделью (копирование при записи):
+        // память под него выделяется только при первом изменении модели
+        originalModels.add(model.copy());
         textures.add(null);
+        journals.add(new EditJournal(model));
         if (activeModelIndex == -1) activeModelIndex = 0;
     }
 
+    // Пересоздает оригинал модели, например после фоновой загрузки; возвращает новый снимок
+    public Model refreshOriginal(Model model) {
+        int index = models.indexOf(model);
+        if (index == -1) return null;
+        Model original = model.copy();
+        originalModels.set(index, original);
+        journals.get(index).clear();
+        return original;
+    }
+
+    // Пока модель догружается, следующие порции ссылаются на ее вершины по номерам из файла,
+    // поэтому правки геометрии через сцену отклоняются (см. isActiveModelEditable)
+    public void setModelLoading(Model model, boolean loading) {
+        loadingModels.remove(model);
+        if (loading) loadingModels.add(model);
+    }
+
+    public boolean isActiveModelEditable() {
+        Model activeModel = getActiveModel();
+        return activeModel != null && !loadingModels.contains(activeModel);
+    }
+
+    // Заменяет модель (например, восстановленной из оригинала); история правок начинается заново
+    public void replaceModel(int index, Model model) {
+        if (index >= 0 && index < models.size()) {
+            models.set(index, model);
+            journals.set(index, new EditJournal(model));
+        }
+    }
+
     public void removeModel(int index) {
         if (index >= 0 && index < models.size()) {
+            loadingModels.remove(models.get(index));
             models.remove(index);
             originalModels.remove(index);
             textures.remove(index); // Синхронно удаляем текстуру
+            journals.remove(index);
 
             if (models.isEmpty()) {
                 activeModelIndex = -1;
@@ -93,6 +132,11 @@ public class Scene {
         }
     }
 
+    public EditJournal getActiveJournal() {
+        if (activeModelIndex < 0 || activeModelIndex >= journals.size()) return null;
+        return journals.get(activeModelIndex);
+    }
+
     public void setActiveModelIndex(int index) {
         if (index >= -1 && index < models.size()) {
             this.activeModelIndex = index;
@@ -103,36 +147,31 @@ public class Scene {
 
 
 
-    public void deletePolygonsInActiveModel(List<Integer> indices) {
-        Model activeModel = getActiveModel();
-        if (activeModel == null || indices.isEmpty()) return;
-
-        // Сортируем по убыванию, чтобы индексы не "уплыли" в процессе удаления из ArrayList
-        List<Integer> sortedIndices = indices.stream()
-                .distinct()
-                .sorted((a, b) -> b - a)
-                .collect(Collectors.toList());
+    // Удаления идут через журнал активной модели вместе с пересчетом нормалей вокруг удаленного,
+    // поэтому отменяются одним шагом
 
-        for (int idx : sortedIndices) {
-            activeModel.removePolygon(idx);
-        }
+    public void deletePolygonsInActiveModel(List<Integer> indices) {
+        EditJournal journal = getActiveJournal();
+        if (journal == null || !isActiveModelEditable() || indices.isEmpty()) return;
+
+        // Индексы — идентификаторы полигонов. Удаляются одним вызовом: при удалении по одному
+        // модель может сжаться посреди цикла, и остальные идентификаторы указали бы на другие полигоны
+        journal.group(() -> {
+            journal.removePolygons(indices.stream().mapToInt(Integer::intValue).toArray());
+            journal.updateNormals();
+        });
     }
 
     public void deleteVerticesInActiveModel(List<Integer> indices) {
-        Model activeModel = getActiveModel();
-        if (activeModel == null || indices.isEmpty()) return;
-
-        // Здесь сортировка КРИТИЧЕСКИ важна.
-        // Если удалить вершину 0, то вершина 10 станет 9-й.
-        // Если удалять с конца (с 10-й), то индекс 0 останется на месте.
-        List<Integer> sortedIndices = indices.stream()
-                .distinct()
-                .sorted((a, b) -> b - a)
-                .collect(Collectors.toList());
-
-        for (int idx : sortedIndices) {
-            activeModel.removeVertex(idx);
-        }
+        EditJournal journal = getActiveJournal();
+        if (journal == null || !isActiveModelEditable() || indices.isEmpty()) return;
+
+        // Все вершины удаляются за один проход: индексы считаются по модели до удаления,
+        // поэтому сортировать их не нужно
+        journal.group(() -> {
+            journal.removeVertices(indices.stream().mapToInt(Integer::intValue).toArray());
+            journal.updateNormals();
+        });
     }
 
     public Model getActiveModel() {
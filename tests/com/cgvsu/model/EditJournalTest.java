@@ -0,0 +1,140 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Matrix4x4;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EditJournalTest {
+
+    @Test
+    void testUndoAndRedoRestoreEveryStep() {
+        Random random = new Random(21);
+        Model model = ModelTest.randomModel(random, 120, 300);
+        ModelProcessor.computeNormals(model);
+        EditJournal journal = new EditJournal(model);
+
+        // Снимки модели после каждого шага; копия делит массивы и не мешает правкам, но матрицу не переносит
+        List<Model> states = new ArrayList<>();
+        List<Matrix4x4> matrices = new ArrayList<>();
+        states.add(model.copy());
+        matrices.add(model.getModelMatrix());
+        for (int step = 0; step < 60; step++) {
+            int operation = random.nextInt(7);
+            int livePolygons = model.getPolygonSlots().size() - model.getDeletedPolygonCount();
+            if (operation <= 1 && livePolygons > 0) {
+                // Каждый шаг должен дать запись, поэтому выбирается живой полигон
+                int id = model.polygonAtRank(random.nextInt(livePolygons));
+                journal.group(() -> {
+                    journal.removePolygon(id);
+                    journal.updateNormals();
+                });
+            } else if (operation == 6 && livePolygons > 0) {
+                // Несколько полигонов за раз, в том числе больше порога сжатия
+                int[] ids = random.ints(1 + random.nextInt(livePolygons), 0, livePolygons)
+                        .map(model::polygonAtRank).toArray();
+                journal.group(() -> {
+                    journal.removePolygons(ids);
+                    journal.updateNormals();
+                });
+            } else if (operation == 2 && model.getVertices().size() > 0) {
+                journal.removeVertex(random.nextInt(model.getVertices().size()));
+            } else if (operation == 3 && model.getVertices().size() > 0) {
+                int[] indices = random.ints(1 + random.nextInt(5), 0, model.getVertices().size()).toArray();
+                journal.group(() -> {
+                    journal.removeVertices(indices);
+                    journal.updateNormals();
+                });
+            } else if (operation == 4) {
+                Matrix4x4 before = model.getModelMatrix();
+                Matrix4x4 after = Matrix4x4.identity();
+                after.set(0, 3, random.nextFloat());
+                model.setModelMatrix(after);
+                journal.modelMatrixChanged(before);
+            } else {
+                journal.computeNormals();
+            }
+            states.add(model.copy());
+            matrices.add(model.getModelMatrix());
+        }
+
+        for (int step = states.size() - 2; step >= 0; step--) {
+            assertTrue(journal.undo());
+            assertSameModel(states.get(step), model);
+            assertSame(matrices.get(step), model.getModelMatrix());
+        }
+        assertFalse(journal.undo());
+        // Отслеживание нормалей вернулось к состоянию сразу после computeNormals
+        assertTrue(model.dirtyNormals().isEmpty());
+
+        for (int step = 1; step < states.size(); step++) {
+            assertTrue(journal.redo());
+            assertSameModel(states.get(step), model);
+            assertSame(matrices.get(step), model.getModelMatrix());
+        }
+        assertFalse(journal.redo());
+    }
+
+    @Test
+    void testOldestEntriesAreEvictedPastMemoryLimit() {
+        Model model = ModelTest.randomModel(new Random(3), 50, 100);
+        EditJournal journal = new EditJournal(model);
+        for (int i = 0; i < 10; i++) {
+            journal.removePolygon(i);
+        }
+        long perEntry = journal.getMemoryUsage() / 10;
+
+        journal.setMemoryLimit(perEntry * 4);
+        assertTrue(journal.getMemoryUsage() <= perEntry * 4);
+        int undone = 0;
+        while (journal.undo()) {
+            undone++;
+        }
+        assertTrue(undone > 0 && undone < 10);
+        assertTrue(model.isPolygonDeleted(0));
+        assertEquals(0, journal.getMemoryUsage());
+    }
+
+    @Test
+    void testEditOutsideJournalClearsHistory() {
+        Model model = ModelTest.randomModel(new Random(9), 30, 40);
+        EditJournal journal = new EditJournal(model);
+        journal.removeVertex(3);
+        journal.removePolygon(0);
+
+        // Сжатие не меняет живые полигоны и историю не сбрасывает
+        model.compactPolygons();
+        assertTrue(journal.canUndo());
+
+        ModelProcessor.triangulate(model);
+        assertFalse(journal.canUndo());
+        assertFalse(journal.undo());
+    }
+
+    private static void assertSameModel(Model expected, Model actual) {
+        assertSameVectors(expected.getVerticesInternal(), actual.getVerticesInternal());
+        assertSameVectors(expected.getNormalsInternal(), actual.getNormalsInternal());
+        // Сжимается копия, чтобы не менять расположение удаленных полигонов в проверяемой модели
+        PolygonList expectedPolygons = expected.copy().getPolygonsInternal();
+        PolygonList actualPolygons = actual.copy().getPolygonsInternal();
+        assertEquals(expectedPolygons.size(), actualPolygons.size());
+        for (int i = 0; i < expectedPolygons.size(); i++) {
+            assertArrayEquals(expectedPolygons.get(i).getVertexIndices(), actualPolygons.get(i).getVertexIndices());
+            assertArrayEquals(expectedPolygons.get(i).getTextureVertexIndices(), actualPolygons.get(i).getTextureVertexIndices());
+            assertArrayEquals(expectedPolygons.get(i).getNormalIndices(), actualPolygons.get(i).getNormalIndices());
+        }
+    }
+
+    private static void assertSameVectors(Vector3fList expected, Vector3fList actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getX(i), actual.getX(i));
+            assertEquals(expected.getY(i), actual.getY(i));
+            assertEquals(expected.getZ(i), actual.getZ(i));
+        }
+    }
+}
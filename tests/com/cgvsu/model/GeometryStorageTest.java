@@ -0,0 +1,90 @@
+package com.cgvsu.model;
+
+import com.cgvsu.objwriter.FloatFormat;
+import com.cgvsu.objwriter.ObjWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeometryStorageTest {
+
+    @Test
+    void testOffHeapModelProcessesLikeHeapModel() throws IOException {
+        Path directory = Files.createTempDirectory("geometry");
+        for (GeometryStorage storage : new GeometryStorage[]{GeometryStorage.DIRECT, GeometryStorage.mapped(directory)}) {
+            Model heap = randomModel(new Random(3));
+            Model offHeap = heap.copy();
+            offHeap.moveTo(storage);
+            assertSame(storage, offHeap.getStorage());
+            assertFalse(offHeap.getVerticesInternal().hasArray() && offHeap.getVertices().size() > 0);
+            assertThrows(UnsupportedOperationException.class, () -> offHeap.getPolygonsInternal().vertexIndices());
+
+            for (Model model : new Model[]{heap, offHeap}) {
+                ModelProcessor.weldVertices(model, 0.05f);
+                model.removeVertex(3);
+                model.getPolygonsInternal().remove(1);
+                ModelProcessor.triangulate(model);
+                ModelProcessor.computeNormals(model);
+            }
+            assertSame(storage, offHeap.getPolygonsInternal().storage());
+            assertEquals(toObj(heap), toObj(offHeap));
+        }
+    }
+
+    @Test
+    void testForNameMatchesToString() {
+        assertSame(GeometryStorage.HEAP, GeometryStorage.forName(GeometryStorage.HEAP.toString()));
+        assertSame(GeometryStorage.DIRECT, GeometryStorage.forName(GeometryStorage.DIRECT.toString()));
+        Path directory = Path.of("geometry");
+        assertEquals(GeometryStorage.mapped(directory).toString(), GeometryStorage.forName("mapped:geometry").toString());
+        assertTrue(GeometryStorage.forName("mapped").isOffHeap());
+        assertThrows(IllegalArgumentException.class, () -> GeometryStorage.forName("disk"));
+    }
+
+    @Test
+    void testSharedWrappedArraysAreCopiedOnWrite() {
+        int[] offsets = {0, 3, 6};
+        int[] corners = {0, 1, 2, 2, 1, 3};
+        PolygonList list = PolygonList.wrap(2, offsets, corners, offsets, corners, new int[3], new int[0]);
+
+        list.setVertexIndices(0, new int[]{4, 5, 6, 7});
+        list.decrementVertexIndicesGreaterThan(1);
+
+        assertArrayEquals(new int[]{3, 4, 5, 6}, list.get(0).getVertexIndices());
+        assertArrayEquals(new int[]{0, 1, 2}, list.get(0).getTextureVertexIndices());
+        assertArrayEquals(new int[]{2, 1, 3}, list.get(1).getTextureVertexIndices());
+        assertArrayEquals(new int[]{0, 3, 6}, offsets);
+        assertArrayEquals(new int[]{0, 1, 2, 2, 1, 3}, corners);
+    }
+
+    private static Model randomModel(Random random) {
+        Model model = new Model();
+        for (int i = 0; i < 200; i++) {
+            model.getVerticesInternal().add(random.nextInt(10) * 0.5f, random.nextInt(10) * 0.5f, random.nextFloat());
+            model.getTextureVerticesInternal().add(random.nextFloat(), random.nextFloat());
+        }
+        for (int i = 0; i < 300; i++) {
+            int size = 3 + random.nextInt(3);
+            int[] vertices = new int[size];
+            int[] textures = new int[size];
+            for (int j = 0; j < size; j++) {
+                vertices[j] = random.nextInt(200);
+                textures[j] = random.nextInt(200);
+            }
+            model.getPolygonsInternal().add(vertices, random.nextBoolean() ? textures : null, null);
+        }
+        return model;
+    }
+
+    private static String toObj(Model model) throws IOException {
+        StringWriter writer = new StringWriter();
+        ObjWriter.write(model, null, writer, FloatFormat.SHORTEST);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,198 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelProcessorTest {
+
+    @Test
+    void testWeldVerticesMergesDuplicates() {
+        Model model = new Model();
+        // Два треугольника с общим ребром, записанные без общих вершин
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getVertices().add(new Vector3f(1, 0, 0));
+        model.getVertices().add(new Vector3f(0, 1, 0));
+        model.getVertices().add(new Vector3f(1.000001f, 0, 0));
+        model.getVertices().add(new Vector3f(1, 1, 0));
+        model.getVertices().add(new Vector3f(0, 0.999999f, 0));
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2}, new int[0], new int[0]));
+        model.getPolygons().add(new Polygon(new int[]{3, 4, 5}, new int[0], new int[0]));
+
+        assertEquals(2, ModelProcessor.weldVertices(model, 1e-5f));
+
+        assertEquals(4, model.getVertices().size());
+        assertArrayEquals(new int[]{0, 1, 2}, model.getPolygons().get(0).getVertexIndices());
+        assertArrayEquals(new int[]{1, 3, 2}, model.getPolygons().get(1).getVertexIndices());
+        assertEquals(1.0f, model.getVertices().get(1).x);
+    }
+
+    @Test
+    void testWeldVerticesKeepsDistinctPoints() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getVertices().add(new Vector3f(0.01f, 0, 0));
+        model.getVertices().add(new Vector3f(0, 0, -0.01f));
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2}, new int[0], new int[0]));
+
+        assertEquals(0, ModelProcessor.weldVertices(model, 1e-3f));
+        assertEquals(3, model.getVertices().size());
+        assertArrayEquals(new int[]{0, 1, 2}, model.getPolygons().get(0).getVertexIndices());
+    }
+
+    @Test
+    void testWeldVerticesDoesNotDependOnOrder() {
+        // Крайние точки дальше epsilon друг от друга, но связаны средней
+        float[][] orders = {{0, 0.01f, 0.02f}, {0, 0.02f, 0.01f}, {0.02f, 0, 0.01f}};
+        for (float[] xs : orders) {
+            Model model = new Model();
+            for (float x : xs) {
+                model.getVertices().add(new Vector3f(x, 0, 0));
+            }
+            model.getPolygons().add(new Polygon(new int[]{0, 1, 2}, new int[0], new int[0]));
+
+            assertEquals(2, ModelProcessor.weldVertices(model, 0.015f));
+            assertEquals(1, model.getVertices().size());
+            assertEquals(xs[0], model.getVertices().get(0).x);
+            assertArrayEquals(new int[]{0, 0, 0}, model.getPolygons().get(0).getVertexIndices());
+        }
+    }
+
+    @Test
+    void testWeldVerticesMatchesBruteForce() {
+        Random random = new Random(7);
+        Model model = new Model();
+        int unique = 2000;
+        for (int i = 0; i < unique * 3; i++) {
+            int point = random.nextInt(unique);
+            float jitter = (random.nextFloat() - 0.5f) * 1e-4f;
+            model.getVertices().add(new Vector3f(point % 13 + jitter, point / 13 % 13 - jitter, point / 169 + jitter));
+        }
+        for (int i = 0; i + 2 < model.getVertices().size(); i += 3) {
+            model.getPolygons().add(new Polygon(new int[]{i, i + 1, i + 2}, new int[0], new int[0]));
+        }
+        Model expected = model.copy();
+
+        ModelProcessor.weldVertices(model, 1e-3f);
+
+        assertTrue(model.getVertices().size() <= unique);
+        for (int p = 0; p < model.getPolygons().size(); p++) {
+            int[] before = expected.getPolygons().get(p).getVertexIndices();
+            int[] after = model.getPolygons().get(p).getVertexIndices();
+            for (int k = 0; k < before.length; k++) {
+                Vector3f original = expected.getVertices().get(before[k]);
+                Vector3f welded = model.getVertices().get(after[k]);
+                assertTrue(Math.abs(original.x - welded.x) <= 1e-3f);
+                assertTrue(Math.abs(original.y - welded.y) <= 1e-3f);
+                assertTrue(Math.abs(original.z - welded.z) <= 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    void testComputeNormalsMatchesVectorMath() {
+        Random random = new Random(11);
+        Model model = new Model();
+        for (int i = 0; i < 300; i++) {
+            model.getVertices().add(new Vector3f(random.nextFloat(), random.nextFloat(), random.nextFloat()));
+        }
+        for (int i = 0; i < 400; i++) {
+            int size = 3 + random.nextInt(3);
+            int[] indices = new int[size];
+            for (int k = 0; k < size; k++) {
+                indices[k] = random.nextInt(299);
+            }
+            model.getPolygons().add(new Polygon(indices, new int[0], new int[0]));
+        }
+        // Вершина 299 не входит ни в один полигон, ее нормаль остается нулевой
+
+        Vector3f[] expected = new Vector3f[model.getVertices().size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = new Vector3f(0, 0, 0);
+        }
+        for (Polygon polygon : model.getPolygons()) {
+            int[] indices = polygon.getVertexIndices();
+            Vector3f v1 = model.getVertices().get(indices[0]);
+            Vector3f normal = model.getVertices().get(indices[1]).subtract(v1)
+                    .cross(model.getVertices().get(indices[2]).subtract(v1));
+            for (int index : indices) {
+                expected[index].add(normal);
+            }
+        }
+
+        ModelProcessor.computeNormals(model);
+
+        assertEquals(expected.length, model.getNormals().size());
+        for (int i = 0; i < expected.length; i++) {
+            Vector3f normalized = expected[i].normalized();
+            Vector3f actual = model.getNormals().get(i);
+            assertEquals(normalized.x, actual.x);
+            assertEquals(normalized.y, actual.y);
+            assertEquals(normalized.z, actual.z);
+        }
+        assertArrayEquals(model.getPolygons().get(0).getVertexIndices(), model.getPolygons().get(0).getNormalIndices());
+    }
+
+    @Test
+    void testUpdateNormalsMatchesFullRecompute() {
+        Random random = new Random(23);
+        Model incremental = ModelTest.randomModel(random, 150, 300);
+        // Вырожденный полигон и полигон с повтором вершины
+        incremental.getPolygonsInternal().add(new int[]{4, 5}, null, new int[]{7, 7});
+        incremental.getPolygonsInternal().add(new int[]{8, 9, 8, 10}, null, null);
+        ModelProcessor.computeNormals(incremental);
+        Model full = incremental.copy();
+
+        for (int step = 0; step < 60; step++) {
+            int operation = random.nextInt(3);
+            if (operation == 0 && !incremental.getPolygonSlots().isEmpty()) {
+                int id = random.nextInt(incremental.getPolygonSlots().size());
+                incremental.removePolygon(id);
+                full.removePolygon(id);
+            } else if (operation == 1) {
+                int index = random.nextInt(incremental.getVertices().size());
+                incremental.removeVertex(index);
+                full.removeVertex(index);
+            } else {
+                int[] indices = {random.nextInt(150), random.nextInt(150)};
+                incremental.removeVertices(indices);
+                full.removeVertices(indices);
+            }
+            // Удаления отслеживаются, поэтому обновление не сводится к полному пересчету
+            assertNotNull(incremental.dirtyNormals());
+            ModelProcessor.updateNormals(incremental);
+            ModelProcessor.computeNormals(full);
+            assertSameNormals(full, incremental);
+        }
+    }
+
+    @Test
+    void testUpdateNormalsRecomputesAfterUntrackedEdit() {
+        Model model = ModelTest.randomModel(new Random(29), 30, 40);
+        ModelProcessor.computeNormals(model);
+        model.getVerticesInternal().set(0, 5, 5, 5);
+        model.removePolygon(0);
+        Model full = model.copy();
+
+        assertNull(model.dirtyNormals());
+        ModelProcessor.updateNormals(model);
+        ModelProcessor.computeNormals(full);
+        assertSameNormals(full, model);
+    }
+
+    private static void assertSameNormals(Model expected, Model actual) {
+        assertEquals(expected.getNormals().size(), actual.getNormals().size());
+        for (int i = 0; i < expected.getNormals().size(); i++) {
+            assertEquals(expected.getNormalsInternal().getX(i), actual.getNormalsInternal().getX(i));
+            assertEquals(expected.getNormalsInternal().getY(i), actual.getNormalsInternal().getY(i));
+            assertEquals(expected.getNormalsInternal().getZ(i), actual.getNormalsInternal().getZ(i));
+        }
+        assertEquals(expected.getPolygons().size(), actual.getPolygons().size());
+        for (int i = 0; i < expected.getPolygons().size(); i++) {
+            assertArrayEquals(expected.getPolygons().get(i).getNormalIndices(), actual.getPolygons().get(i).getNormalIndices());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.cgvsu.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelTest {
+
+    @Test
+    void testRemoveVerticesMatchesOneByOneRemoval() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            Model batch = randomModel(random, 100, 150);
+            Model single = batch.copy();
+            int[] indices = new int[random.nextInt(30)];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = random.nextInt(110) - 5;
+            }
+
+            int removed = batch.removeVertices(indices);
+            int[] descending = Arrays.stream(indices).distinct().boxed()
+                    .sorted((a, b) -> b - a).mapToInt(Integer::intValue).toArray();
+            for (int index : descending) {
+                single.removeVertex(index);
+            }
+
+            assertEquals(100 - single.getVertices().size(), removed);
+            assertEquals(single.getVertices().size(), batch.getVertices().size());
+            for (int i = 0; i < single.getVertices().size(); i++) {
+                assertEquals(single.getVerticesInternal().getX(i), batch.getVerticesInternal().getX(i));
+                assertEquals(single.getVerticesInternal().getY(i), batch.getVerticesInternal().getY(i));
+                assertEquals(single.getVerticesInternal().getZ(i), batch.getVerticesInternal().getZ(i));
+            }
+            assertEquals(single.getPolygons().size(), batch.getPolygons().size());
+            for (int i = 0; i < single.getPolygons().size(); i++) {
+                assertArrayEquals(single.getPolygons().get(i).getVertexIndices(), batch.getPolygons().get(i).getVertexIndices());
+                assertArrayEquals(single.getPolygons().get(i).getTextureVertexIndices(),
+                        batch.getPolygons().get(i).getTextureVertexIndices());
+            }
+        }
+    }
+
+    @Test
+    void testRemoveVerticesIgnoresInvalidIndices() {
+        Model model = randomModel(new Random(2), 10, 5);
+        assertEquals(0, model.removeVertices(new int[]{-1, 10, 42}));
+        assertEquals(10, model.getVertices().size());
+        assertEquals(5, model.getPolygons().size());
+
+        assertEquals(10, model.removeVertices(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 9}));
+        assertTrue(model.getVertices().isEmpty());
+        assertTrue(model.getPolygons().isEmpty());
+    }
+
+    @Test
+    void testRemovePolygonKeepsIdsUntilCompaction() {
+        Model model = randomModel(new Random(4), 20, 12);
+        int[] expected = model.getPolygons().get(5).getVertexIndices();
+
+        model.removePolygon(1);
+        model.removePolygon(3);
+        model.removePolygon(3);
+        model.removePolygon(12);
+
+        assertEquals(2, model.getDeletedPolygonCount());
+        assertEquals(12, model.getPolygonSlots().size());
+        assertTrue(model.isPolygonDeleted(3));
+        assertArrayEquals(expected, model.getPolygonSlots().get(5).getVertexIndices());
+        int generation = model.getPolygonIdGeneration();
+        assertEquals(5, model.mapPolygonId(5, generation));
+        assertEquals(-1, model.mapPolygonId(3, generation));
+
+        assertEquals(10, model.getPolygons().size());
+        assertEquals(0, model.getDeletedPolygonCount());
+        assertEquals(3, model.mapPolygonId(5, generation));
+        assertEquals(-1, model.mapPolygonId(1, generation));
+        assertArrayEquals(expected, model.getPolygons().get(3).getVertexIndices());
+    }
+
+    @Test
+    void testTombstonesAreCompactedPastThreshold() {
+        Model model = randomModel(new Random(6), 20, 8);
+        model.removePolygon(0);
+        model.removePolygon(1);
+        assertEquals(8, model.getPolygonSlots().size());
+
+        model.removePolygon(2);
+        assertEquals(5, model.getPolygonSlots().size());
+        assertEquals(0, model.getDeletedPolygonCount());
+    }
+
+    @Test
+    void testRemovePolygonsCompactsOnceAfterBatch() {
+        Model model = randomModel(new Random(8), 20, 8);
+        Model expected = model.copy();
+        int generation = model.getPolygonIdGeneration();
+
+        assertEquals(4, model.removePolygons(new int[]{6, 1, 3, 1, 4, 42}));
+
+        assertEquals(generation + 1, model.getPolygonIdGeneration());
+        int[] kept = {0, 2, 5, 7};
+        assertEquals(kept.length, model.getPolygons().size());
+        for (int i = 0; i < kept.length; i++) {
+            assertArrayEquals(expected.getPolygons().get(kept[i]).getVertexIndices(),
+                    model.getPolygons().get(i).getVertexIndices());
+        }
+    }
+
+    @Test
+    void testDeletedPolygonsMatchRemovedOnesEverywhere() {
+        Random random = new Random(8);
+        Model tombstoned = randomModel(random, 50, 100);
+        Model removed = tombstoned.copy();
+        for (int id = 97; id >= 0; id -= 7) {
+            tombstoned.removePolygon(id);
+            removed.getPolygonsInternal().remove(id);
+        }
+        Model copy = tombstoned.copy();
+
+        ModelProcessor.computeNormals(tombstoned);
+        ModelProcessor.computeNormals(removed);
+        assertTrue(tombstoned.getDeletedPolygonCount() > 0);
+        assertEquals(removed.getNormals().size(), tombstoned.getNormals().size());
+        for (int i = 0; i < removed.getNormals().size(); i++) {
+            assertEquals(removed.getNormalsInternal().getX(i), tombstoned.getNormalsInternal().getX(i));
+            assertEquals(removed.getNormalsInternal().getY(i), tombstoned.getNormalsInternal().getY(i));
+            assertEquals(removed.getNormalsInternal().getZ(i), tombstoned.getNormalsInternal().getZ(i));
+        }
+
+        copy.removeVertex(10);
+        removed.removeVertex(10);
+        assertEquals(removed.getPolygons().size(), copy.getPolygons().size());
+        for (int i = 0; i < removed.getPolygons().size(); i++) {
+            assertArrayEquals(removed.getPolygons().get(i).getVertexIndices(), copy.getPolygons().get(i).getVertexIndices());
+        }
+    }
+
+    static Model randomModel(Random random, int vertexCount, int polygonCount) {
+        Model model = new Model();
+        for (int i = 0; i < vertexCount; i++) {
+            model.getVerticesInternal().add(random.nextFloat(), random.nextFloat(), random.nextFloat());
+        }
+        for (int i = 0; i < polygonCount; i++) {
+            int size = 3 + random.nextInt(3);
+            int[] vertices = new int[size];
+            int[] textures = new int[size];
+            for (int j = 0; j < size; j++) {
+                vertices[j] = random.nextInt(vertexCount);
+                textures[j] = random.nextInt(50);
+            }
+            model.getPolygonsInternal().add(vertices, random.nextBoolean() ? textures : null, null);
+        }
+        return model;
+    }
+}
@@ -0,0 +1,137 @@
+package com.cgvsu.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PolygonListTest {
+
+    @Test
+    void testEditsMatchArrayListOfPolygons() {
+        Random random = new Random(5);
+        PolygonList list = new PolygonList();
+        List<Polygon> expected = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            int operation = random.nextInt(6);
+            if (operation <= 1 || expected.isEmpty()) {
+                Polygon polygon = randomPolygon(random);
+                list.add(polygon);
+                expected.add(polygon);
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size() + 1);
+                Polygon polygon = randomPolygon(random);
+                list.add(index, polygon);
+                expected.add(index, polygon);
+            } else if (operation == 3) {
+                int index = random.nextInt(expected.size());
+                Polygon polygon = randomPolygon(random);
+                assertArrayEquals(expected.get(index).getVertexIndices(), list.set(index, polygon).getVertexIndices());
+                expected.set(index, polygon);
+            } else if (operation == 4) {
+                int index = random.nextInt(expected.size());
+                list.remove(index);
+                expected.remove(index);
+            } else {
+                int vertex = random.nextInt(20);
+                list.removeIf(p -> p.containsVertexIndex(vertex));
+                expected.removeIf(p -> p.containsVertexIndex(vertex));
+            }
+        }
+
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i).getVertexIndices(), list.get(i).getVertexIndices());
+            assertArrayEquals(expected.get(i).getTextureVertexIndices(), list.get(i).getTextureVertexIndices());
+            assertArrayEquals(expected.get(i).getNormalIndices(), list.get(i).getNormalIndices());
+        }
+    }
+
+    @Test
+    void testViewWritesBackAndCopyIsIndependent() {
+        PolygonList list = new PolygonList();
+        list.add(new int[]{0, 1, 2}, new int[0], new int[0]);
+        list.add(new int[]{2, 3, 4, 5}, new int[]{0, 1, 2, 3}, null);
+        PolygonList copy = list.copy();
+
+        Polygon view = list.get(0);
+        view.setVertexIndices(new int[]{7, 8, 9, 10});
+        view.setNormalIndices(new int[]{1, 1, 1, 1});
+        view.getVertexIndices()[0] = 100;
+
+        assertArrayEquals(new int[]{7, 8, 9, 10}, list.get(0).getVertexIndices());
+        assertArrayEquals(new int[]{1, 1, 1, 1}, list.get(0).getNormalIndices());
+        assertArrayEquals(new int[]{2, 3, 4, 5}, list.get(1).getVertexIndices());
+        assertArrayEquals(new int[]{0, 1, 2, 3}, list.get(1).getTextureVertexIndices());
+        assertArrayEquals(new int[]{0, 1, 2}, copy.get(0).getVertexIndices());
+        assertEquals(0, copy.get(0).getNormalIndices().length);
+
+        list.addAll(list);
+        assertEquals(4, list.size());
+        assertEquals(16, list.cornerCount());
+        assertArrayEquals(new int[]{2, 3, 4, 5}, list.get(3).getVertexIndices());
+
+        list.decrementVertexIndicesGreaterThan(4);
+        assertArrayEquals(new int[]{2, 3, 4, 4}, list.get(1).getVertexIndices());
+    }
+
+    @Test
+    void testModelCopyIsUnaffectedByEditsOfEitherSide() {
+        Model original = new Model();
+        for (int i = 0; i < 6; i++) {
+            original.getVerticesInternal().add(i, i * i, 0);
+        }
+        original.getPolygonsInternal().add(new int[]{0, 1, 2, 3}, null, null);
+        original.getPolygonsInternal().add(new int[]{2, 3, 4, 5}, new int[]{0, 1, 2, 3}, null);
+        Model working = original.copy();
+        Model restored = original.copy();
+
+        ModelProcessor.triangulate(working);
+        working.removeVertex(1);
+        ModelProcessor.computeNormals(working);
+        restored.getVerticesInternal().set(0, 9, 9, 9);
+
+        assertEquals(2, original.getPolygons().size());
+        assertArrayEquals(new int[]{2, 3, 4, 5}, original.getPolygons().get(1).getVertexIndices());
+        assertArrayEquals(new int[]{0, 1, 2, 3}, original.getPolygons().get(1).getTextureVertexIndices());
+        assertEquals(6, original.getVertices().size());
+        assertEquals(0, original.getVerticesInternal().getX(0));
+        assertEquals(0, original.getNormals().size());
+        assertEquals(9, restored.getVerticesInternal().getX(0));
+        assertEquals(2, restored.getPolygons().size());
+        assertEquals(5, working.getVertices().size());
+        assertTrue(ModelProcessor.isTriangulated(working));
+    }
+
+    @Test
+    void testTriangulateKeepsAttributesPerCorner() {
+        Model model = new Model();
+        model.getPolygonsInternal().add(new int[]{0, 1, 2, 3}, new int[]{4, 5, 6, 7}, new int[0]);
+        model.getPolygonsInternal().add(new int[]{3, 2, 4}, new int[0], new int[]{1, 2, 3});
+
+        ModelProcessor.triangulate(model);
+
+        assertEquals(3, model.getPolygons().size());
+        assertArrayEquals(new int[]{0, 2, 3}, model.getPolygons().get(1).getVertexIndices());
+        assertArrayEquals(new int[]{4, 6, 7}, model.getPolygons().get(1).getTextureVertexIndices());
+        assertEquals(0, model.getPolygons().get(1).getNormalIndices().length);
+        assertArrayEquals(new int[]{1, 2, 3}, model.getPolygons().get(2).getNormalIndices());
+        assertTrue(ModelProcessor.isTriangulated(model));
+    }
+
+    private static Polygon randomPolygon(Random random) {
+        int size = 3 + random.nextInt(4);
+        int[] vertices = new int[size];
+        int[] textures = random.nextBoolean() ? new int[size] : new int[0];
+        int[] normals = random.nextBoolean() ? new int[size] : new int[0];
+        for (int i = 0; i < size; i++) {
+            vertices[i] = random.nextInt(20);
+            if (textures.length > 0) textures[i] = random.nextInt(50);
+            if (normals.length > 0) normals[i] = random.nextInt(50);
+        }
+        return new Polygon(vertices, textures, normals);
+    }
+}
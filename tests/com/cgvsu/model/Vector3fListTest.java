@@ -0,0 +1,78 @@
+package com.cgvsu.model;
+
+import com.cgvsu.math.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Vector3fListTest {
+
+    @Test
+    void testListOperationsKeepPackedCoordinates() {
+        Vector3fList list = new Vector3fList();
+        for (int i = 0; i < 20; i++) {
+            list.add(i, i + 0.5f, -i);
+        }
+        list.add(0, new Vector3f(7, 8, 9));
+        list.remove(5);
+        list.set(1, 1, 2, 3);
+
+        assertEquals(20, list.size());
+        assertEquals(7, list.getX(0));
+        assertEquals(8, list.getY(0));
+        assertEquals(9, list.getZ(0));
+        assertEquals(3, list.getZ(1));
+        assertEquals(5, list.getX(5));
+        float[] xyz = list.array();
+        assertEquals(19.5f, xyz[19 * 3 + 1]);
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(20));
+    }
+
+    @Test
+    void testGetReturnsCopyAndCopyIsIndependent() {
+        Vector3fList list = new Vector3fList();
+        list.addAll(List.of(new Vector3f(1, 2, 3), new Vector3f(4, 5, 6)));
+
+        list.get(0).x = 100;
+        assertEquals(1, list.getX(0));
+
+        Vector3fList copy = list.copy();
+        copy.set(1, new Vector3f(0, 0, 0));
+        assertEquals(4, list.getX(1));
+        assertEquals(0, copy.getX(1));
+
+        list.addAll(list);
+        assertEquals(4, list.size());
+        assertEquals(6, list.getZ(3));
+    }
+
+    @Test
+    void testCopiesShareCoordinatesUntilWritten() {
+        Vector3fList list = new Vector3fList();
+        for (int i = 0; i < 10; i++) {
+            list.add(i, i, i);
+        }
+        Vector3fList first = list.copy();
+        Vector3fList second = first.copy();
+
+        list.set(0, -1, -1, -1);
+        first.add(10, 10, 10);
+        first.remove(1);
+        second.truncate(5);
+        second.add(5, 50, 5);
+        list.clear();
+        list.add(7, 7, 7);
+
+        assertEquals(1, list.size());
+        assertEquals(7, list.getX(0));
+        assertEquals(10, first.size());
+        assertEquals(0, first.getX(0));
+        assertEquals(2, first.getX(1));
+        assertEquals(10, first.getX(9));
+        assertEquals(6, second.size());
+        assertEquals(4, second.getX(4));
+        assertEquals(50, second.getY(5));
+    }
+}
@@ -0,0 +1,68 @@
+package com.cgvsu.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VertexFaceIndexTest {
+
+    @Test
+    void testIndexMatchesScanAfterEdits() {
+        Random random = new Random(17);
+        Model model = ModelTest.randomModel(random, 200, 600);
+        assertMatchesScan(model);
+
+        VertexFaceIndex index = model.getVertexFaces();
+        for (int step = 0; step < 100; step++) {
+            if (random.nextBoolean() && !model.getPolygonSlots().isEmpty()) {
+                model.removePolygon(random.nextInt(model.getPolygonSlots().size()));
+            } else {
+                model.removeVertex(random.nextInt(model.getVertices().size()));
+            }
+            if (step % 25 == 0) {
+                assertMatchesScan(model);
+            }
+        }
+        // Удаления обновляют смежность на месте, без повторного построения
+        assertSame(index, model.getVertexFaces());
+        assertMatchesScan(model);
+
+        ModelProcessor.triangulate(model);
+        assertMatchesScan(model);
+    }
+
+    @Test
+    void testRepeatedVertexIsListedOnce() {
+        Model model = new Model();
+        for (int i = 0; i < 4; i++) {
+            model.getVerticesInternal().add(i, 0, 0);
+        }
+        model.getPolygonsInternal().add(new int[]{0, 1, 1, 2}, null, null);
+        model.getPolygonsInternal().add(new int[]{2, 1, 3}, null, null);
+
+        VertexFaceIndex index = model.getVertexFaces();
+        assertArrayEquals(new int[]{0, 1}, index.facesOf(1));
+        assertArrayEquals(new int[]{1}, index.facesOf(3));
+
+        // Удалена половина полигонов: список сразу сжимается, и полигон 1 получает номер 0
+        model.removePolygon(0);
+        assertArrayEquals(new int[]{0}, index.facesOf(1));
+        assertEquals(0, index.valence(0));
+    }
+
+    private static void assertMatchesScan(Model model) {
+        VertexFaceIndex index = model.getVertexFaces();
+        PolygonList polygons = model.getPolygonSlots();
+        assertEquals(model.getVertices().size(), index.vertexCount());
+        for (int v = 0; v < index.vertexCount(); v++) {
+            int vertex = v;
+            int[] expected = IntStream.range(0, polygons.size())
+                    .filter(p -> !model.isPolygonDeleted(p) && polygons.containsVertexIndex(p, vertex))
+                    .toArray();
+            assertArrayEquals(expected, index.facesOf(v));
+        }
+    }
+}
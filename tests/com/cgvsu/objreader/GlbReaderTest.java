@@ -0,0 +1,141 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlbReaderTest {
+
+    private static Path writeGlb(String json, ByteBuffer bin) throws IOException {
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        int jsonLength = (jsonBytes.length + 3) & ~3;
+        int binLength = (bin.limit() + 3) & ~3;
+        ByteBuffer glb = ByteBuffer.allocate(12 + 8 + jsonLength + 8 + binLength).order(ByteOrder.LITTLE_ENDIAN);
+        glb.putInt(0x46546C67).putInt(2).putInt(glb.capacity());
+        glb.putInt(jsonLength).putInt(0x4E4F534A).put(jsonBytes);
+        while (glb.position() % 4 != 0) {
+            glb.put((byte) ' ');
+        }
+        glb.putInt(binLength).putInt(0x004E4942).put(bin.rewind());
+
+        Path file = Files.createTempFile("reader", ".glb");
+        Files.write(file, glb.array());
+        return file;
+    }
+
+    @Test
+    void testReadIndexedTriangles() throws IOException {
+        // Квадрат: 4 позиции, 4 текстурные координаты и 6 индексов unsigned short
+        ByteBuffer bin = ByteBuffer.allocate(48 + 32 + 12).order(ByteOrder.LITTLE_ENDIAN);
+        float[] positions = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0};
+        for (float value : positions) {
+            bin.putFloat(value);
+        }
+        float[] uvs = {0, 1, 1, 1, 1, 0, 0, 0.25f};
+        for (float value : uvs) {
+            bin.putFloat(value);
+        }
+        for (int index : new int[]{0, 1, 2, 0, 2, 3}) {
+            bin.putShort((short) index);
+        }
+        String json = "{\"asset\":{\"version\":\"2.0\"},"
+                + "\"buffers\":[{\"byteLength\":92}],"
+                + "\"bufferViews\":[{\"buffer\":0,\"byteOffset\":0,\"byteLength\":48},"
+                + "{\"buffer\":0,\"byteOffset\":48,\"byteLength\":32},"
+                + "{\"buffer\":0,\"byteOffset\":80,\"byteLength\":12}],"
+                + "\"accessors\":[{\"bufferView\":0,\"componentType\":5126,\"count\":4,\"type\":\"VEC3\"},"
+                + "{\"bufferView\":1,\"componentType\":5126,\"count\":4,\"type\":\"VEC2\"},"
+                + "{\"bufferView\":2,\"componentType\":5123,\"count\":6,\"type\":\"SCALAR\"}],"
+                + "\"meshes\":[{\"name\":\"quad \\\"1\\\"\",\"primitives\":[{\"attributes\":{\"POSITION\":0,\"TEXCOORD_0\":1},\"indices\":2}]}]}";
+
+        Path file = writeGlb(json, bin);
+        try {
+            Model model = GlbReader.read(file);
+            assertEquals(4, model.getVertices().size());
+            assertEquals(4, model.getTextureVertices().size());
+            assertTrue(model.getNormals().isEmpty());
+            assertEquals(2, model.getPolygons().size());
+            Polygon second = model.getPolygons().get(1);
+            assertArrayEquals(new int[]{0, 2, 3}, second.getVertexIndices());
+            assertArrayEquals(new int[]{0, 2, 3}, second.getTextureVertexIndices());
+            assertEquals(1f, model.getVertices().get(2).getY());
+            // v переворачивается под соглашение OBJ
+            assertEquals(0.75f, model.getTextureVertices().get(3).getY());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testReadStripWithStride() throws IOException {
+        // Позиции и нормали вперемешку (byteStride 24), без индексов
+        ByteBuffer bin = ByteBuffer.allocate(4 * 24).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 4; i++) {
+            bin.putFloat(i % 2).putFloat(i / 2).putFloat(0);
+            bin.putFloat(0).putFloat(0).putFloat(1);
+        }
+        String json = "{\"buffers\":[{\"byteLength\":96}],"
+                + "\"bufferViews\":[{\"buffer\":0,\"byteLength\":96,\"byteStride\":24}],"
+                + "\"accessors\":[{\"bufferView\":0,\"componentType\":5126,\"count\":4,\"type\":\"VEC3\"},"
+                + "{\"bufferView\":0,\"byteOffset\":12,\"componentType\":5126,\"count\":4,\"type\":\"VEC3\"}],"
+                + "\"meshes\":[{\"primitives\":[{\"attributes\":{\"POSITION\":0,\"NORMAL\":1},\"mode\":5}]}]}";
+
+        Path file = writeGlb(json, bin);
+        try {
+            Model model = GlbReader.read(file);
+            assertEquals(4, model.getNormals().size());
+            assertEquals(1f, model.getNormals().get(3).getZ());
+            assertEquals(1f, model.getVertices().get(3).getX());
+            assertEquals(2, model.getPolygons().size());
+            assertArrayEquals(new int[]{0, 1, 2}, model.getPolygons().get(0).getVertexIndices());
+            assertArrayEquals(new int[]{1, 3, 2}, model.getPolygons().get(1).getVertexIndices());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testRejectsAccessorOutsideBuffer() throws IOException {
+        ByteBuffer bin = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        String json = "{\"bufferViews\":[{\"buffer\":0,\"byteLength\":12}],"
+                + "\"accessors\":[{\"bufferView\":0,\"componentType\":5126,\"count\":2,\"type\":\"VEC3\"}],"
+                + "\"meshes\":[{\"primitives\":[{\"attributes\":{\"POSITION\":0}}]}]}";
+        Path file = writeGlb(json, bin);
+        try {
+            assertThrows(BinaryModelException.class, () -> GlbReader.read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testRejectsInvalidAccessorCounts() throws IOException {
+        ByteBuffer bin = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        String[] accessors = {
+                "{\"bufferView\":0,\"componentType\":5126,\"count\":-1,\"type\":\"VEC3\"}",
+                "{\"bufferView\":0,\"componentType\":5126,\"count\":1000000000,\"type\":\"VEC3\"}",
+                // Без bufferView значения нулевые, но гигабайты нулей из маленького файла не выделяются
+                "{\"componentType\":5126,\"count\":1000000000,\"type\":\"VEC3\"}"
+        };
+        for (String accessor : accessors) {
+            String json = "{\"bufferViews\":[{\"buffer\":0,\"byteLength\":12}],"
+                    + "\"accessors\":[" + accessor + "],"
+                    + "\"meshes\":[{\"primitives\":[{\"attributes\":{\"POSITION\":0}}]}]}";
+            Path file = writeGlb(json, bin);
+            try {
+                assertThrows(BinaryModelException.class, () -> GlbReader.read(file));
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.GeometryStorage;
+import com.cgvsu.model.Model;
+import com.cgvsu.objwriter.ObjWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelCacheTest {
+
+    private static final String CONTENT = "v 0 0 0\nv 1 0 0\nv 0 1 0\nv 0 0 1\nvt 0.5 0.25\nvn 0 0 1\n"
+            + "f 1/1/1 2/1/1 3/1/1\nf 1 3 4\nf 1//1 2//1 4//1 3//1\n";
+
+    @Test
+    void testStoreAndReload() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        Path source = directory.resolve("model.obj");
+        Files.writeString(source, CONTENT);
+        ModelCache cache = new ModelCache(directory.resolve("entries"));
+
+        assertNull(cache.readCached(source));
+        Model parsed = cache.load(source);
+        Model cached = cache.readCached(source);
+
+        assertNotNull(cached);
+        assertEquals(parsed.getVertices().size(), cached.getVertices().size());
+        assertEquals(1, cached.getTextureVertices().size());
+        assertEquals(0.25f, cached.getTextureVertices().get(0).y);
+        assertEquals(3, cached.getPolygons().size());
+        assertArrayEquals(new int[]{0, 0, 0}, cached.getPolygons().get(0).getTextureVertexIndices());
+        assertEquals(0, cached.getPolygons().get(1).getNormalIndices().length);
+        assertArrayEquals(new int[]{0, 1, 3, 2}, cached.getPolygons().get(2).getVertexIndices());
+        assertArrayEquals(new int[]{0, 0, 0, 0}, cached.getPolygons().get(2).getNormalIndices());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        Path[] sources = new Path[3];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = directory.resolve("model" + i + ".obj");
+            Files.writeString(sources[i], CONTENT);
+        }
+        Path entries = directory.resolve("entries");
+        new ModelCache(entries).load(sources[0]);
+        long entrySize = Files.size(new ModelCache(entries).entryPath(sources[0]));
+        // Место на две записи с небольшим запасом под выросшую версию файла
+        ModelCache cache = new ModelCache(entries, entrySize * 2 + 64);
+
+        cache.load(sources[1]);
+        Files.setLastModifiedTime(cache.entryPath(sources[0]), FileTime.fromMillis(1000));
+        Files.setLastModifiedTime(cache.entryPath(sources[1]), FileTime.fromMillis(2000));
+        // Чтение обновляет время использования: теперь самая старая запись — вторая
+        assertNotNull(cache.readCached(sources[0]));
+        cache.load(sources[2]);
+
+        assertTrue(Files.exists(cache.entryPath(sources[0])));
+        assertFalse(Files.exists(cache.entryPath(sources[1])));
+        assertTrue(Files.exists(cache.entryPath(sources[2])));
+
+        // Новая версия файла замещает прежнюю запись, а не добавляет еще одну
+        Files.writeString(sources[2], CONTENT + "v 5 5 5\n");
+        cache.load(sources[2]);
+        try (var files = Files.list(entries)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void testReadsIntoOffHeapStorage() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        Path source = directory.resolve("model.obj");
+        Files.writeString(source, CONTENT);
+        ModelCache cache = new ModelCache(directory.resolve("entries"));
+        Model parsed = cache.load(source);
+
+        for (GeometryStorage storage : new GeometryStorage[]{GeometryStorage.DIRECT, GeometryStorage.forName("mapped:" + directory)}) {
+            Model cached = cache.readCached(cache.keyOf(source), storage);
+            assertNotNull(cached);
+            assertSame(storage, cached.getStorage());
+            assertSame(storage, cached.getPolygonsInternal().storage());
+            assertEquals(ObjWriter.modelToString(parsed), ObjWriter.modelToString(cached));
+        }
+    }
+
+    @Test
+    void testStaleEntryIsIgnored() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        Path source = directory.resolve("model.obj");
+        Files.writeString(source, CONTENT);
+        ModelCache cache = new ModelCache(directory.resolve("entries"));
+        cache.load(source);
+
+        Files.writeString(source, CONTENT + "v 5 5 5\n");
+        assertNull(cache.readCached(source));
+        assertEquals(5, cache.load(source).getVertices().size());
+    }
+
+    @Test
+    void testCorruptEntryFallsBackToParsing() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        Path source = directory.resolve("model.obj");
+        Files.writeString(source, CONTENT);
+        ModelCache cache = new ModelCache(directory.resolve("entries"));
+        cache.load(source);
+
+        Path entry = cache.entryPath(source);
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), channel.size() - 3);
+        }
+        assertNull(cache.readCached(source));
+        assertEquals(4, cache.load(source).getVertices().size());
+        assertNotNull(cache.readCached(source));
+    }
+}
@@ -0,0 +1,54 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.model.Model;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelImporterTest {
+
+    @Test
+    void testImportFolder() throws Exception {
+        Path directory = Files.createTempDirectory("import");
+        for (int i = 0; i < 20; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int j = 0; j <= i; j++) {
+                content.append("v ").append(j).append(" 0 0\n");
+            }
+            Files.writeString(directory.resolve("part" + i + ".obj"), content);
+        }
+        Files.writeString(directory.resolve("broken.obj"), "v 1 2\n");
+        Files.writeString(directory.resolve("notes.txt"), "v 1 2 3\n");
+
+        List<Path> files = ModelImporter.listModelFiles(directory);
+        assertEquals(21, files.size());
+
+        Map<Path, Model> loaded = new ConcurrentHashMap<>();
+        Map<Path, Exception> failed = new ConcurrentHashMap<>();
+        ModelImporter importer = ModelImporter.start(files, null, new ModelImporter.Listener() {
+            @Override
+            public void onLoaded(Path file, Model model) {
+                loaded.put(file, model);
+            }
+
+            @Override
+            public void onFailed(Path file, Exception error) {
+                failed.put(file, error);
+            }
+        });
+        importer.getCompletion().get();
+
+        assertEquals(20, loaded.size());
+        assertEquals(21, importer.getFinishedCount());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i + 1, loaded.get(directory.resolve("part" + i + ".obj")).getVertices().size());
+        }
+        assertTrue(failed.get(directory.resolve("broken.obj")) instanceof ObjReaderException);
+    }
+}
@@ -1,11 +1,21 @@
 package com.cgvsu.objreader;
 
 import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 class ObjReaderTest {
 
@@ -63,4 +73,239 @@ class ObjReaderTest {
             Assertions.assertEquals(expectedError, exception.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static final String SAMPLE_OBJ = """
+            # comment
+            v 0 0 0
+            v 1.5 0 0
+            v 1 1 -2e-3
+
+            vt 0 0
+            vt 1 0
+            vt 1 1
+            vn 0 0 1
+            f 1/1/1 2/2/1 3/3/1
+            f 1//1 2//1 3//1
+            """;
+
+    private static void assertSameModel(Model expected, Model actual) {
+        Assertions.assertEquals(expected.getVertices().size(), actual.getVertices().size());
+        for (int i = 0; i < expected.getVertices().size(); i++) {
+            Assertions.assertTrue(expected.getVertices().get(i).equals(actual.getVertices().get(i)));
+        }
+        Assertions.assertEquals(expected.getTextureVertices().size(), actual.getTextureVertices().size());
+        Assertions.assertEquals(expected.getNormals().size(), actual.getNormals().size());
+        Assertions.assertEquals(expected.getPolygons().size(), actual.getPolygons().size());
+        for (int i = 0; i < expected.getPolygons().size(); i++) {
+            Assertions.assertArrayEquals(expected.getPolygons().get(i).getVertexIndices(), actual.getPolygons().get(i).getVertexIndices());
+            Assertions.assertArrayEquals(expected.getPolygons().get(i).getTextureVertexIndices(), actual.getPolygons().get(i).getTextureVertexIndices());
+            Assertions.assertArrayEquals(expected.getPolygons().get(i).getNormalIndices(), actual.getPolygons().get(i).getNormalIndices());
+        }
+    }
+
+    @Test
+    public void testReadInputStreamMatchesString() throws IOException {
+        Model expected = ObjReader.read(SAMPLE_OBJ);
+        Model actual = ObjReader.read(new ByteArrayInputStream(SAMPLE_OBJ.getBytes(StandardCharsets.UTF_8)));
+        assertSameModel(expected, actual);
+        Assertions.assertEquals(3, actual.getVertices().size());
+        Assertions.assertEquals(2, actual.getPolygons().size());
+    }
+
+    @Test
+    public void testReadPositionsOnly() throws IOException {
+        Model model = ObjReader.read(new ByteArrayInputStream(SAMPLE_OBJ.getBytes(StandardCharsets.UTF_8)), ObjAttributes.POSITIONS);
+        Assertions.assertEquals(3, model.getVertices().size());
+        Assertions.assertEquals(0, model.getTextureVertices().size());
+        Assertions.assertEquals(0, model.getNormals().size());
+        Assertions.assertEquals(2, model.getPolygons().size());
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertArrayEquals(new int[]{0, 1, 2}, model.getPolygons().get(i).getVertexIndices());
+            Assertions.assertEquals(0, model.getPolygons().get(i).getTextureVertexIndices().length);
+            Assertions.assertEquals(0, model.getPolygons().get(i).getNormalIndices().length);
+        }
+    }
+
+    @Test
+    public void testReadNormalsWithoutTextures() throws IOException {
+        Model model = ObjReader.read(new ByteArrayInputStream(SAMPLE_OBJ.getBytes(StandardCharsets.UTF_8)), ObjAttributes.POSITIONS_NORMALS);
+        Assertions.assertEquals(0, model.getTextureVertices().size());
+        Assertions.assertEquals(1, model.getNormals().size());
+        Assertions.assertArrayEquals(new int[]{0, 0, 0}, model.getPolygons().get(0).getNormalIndices());
+        Assertions.assertEquals(0, model.getPolygons().get(0).getTextureVertexIndices().length);
+
+        // Пропущенные строки не разбираются, но нумерация строк в ошибках сохраняется
+        String content = "vt x y\nvn 1\nf 1/a 2/b 3/c\nv 1 2\n";
+        ObjReaderException exception = Assertions.assertThrows(ObjReaderException.class,
+                () -> ObjReader.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), ObjAttributes.POSITIONS));
+        Assertions.assertEquals("Error parsing OBJ file on line: 4. Too few vertex arguments.", exception.getMessage());
+    }
+
+    @Test
+    public void testReadInputStreamLineNumber() {
+        String content = "v 1 2 3\n   \n\nv 1 x 3\n";
+        ObjReaderException exception = Assertions.assertThrows(ObjReaderException.class,
+                () -> ObjReader.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))));
+        Assertions.assertEquals("Error parsing OBJ file on line: 3. Failed to parse float value.", exception.getMessage());
+    }
+
+    @Test
+    public void testReadFaceWordVariants() {
+        Model model = ObjReader.read("f 1 2 3\nf 1/2 2/3 3/4\nf 1//5 2//6 3//7\nf 1/2/3 2/3/4 3/4/5\nf 1/ 2/ 3/\n");
+        Assertions.assertArrayEquals(new int[]{0, 1, 2}, model.getPolygons().get(0).getVertexIndices());
+        Assertions.assertEquals(0, model.getPolygons().get(0).getTextureVertexIndices().length);
+        Assertions.assertArrayEquals(new int[]{1, 2, 3}, model.getPolygons().get(1).getTextureVertexIndices());
+        Assertions.assertEquals(0, model.getPolygons().get(2).getTextureVertexIndices().length);
+        Assertions.assertArrayEquals(new int[]{4, 5, 6}, model.getPolygons().get(2).getNormalIndices());
+        Assertions.assertArrayEquals(new int[]{2, 3, 4}, model.getPolygons().get(3).getNormalIndices());
+        Assertions.assertEquals(0, model.getPolygons().get(4).getNormalIndices().length);
+    }
+
+    @Test
+    public void testReadFaceErrors() {
+        ObjReaderException tooFew = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.read("v 0 0 0\nf 1 2\n"));
+        Assertions.assertEquals("Error parsing OBJ file on line: 2. Polygon must have at least 3 vertices.", tooFew.getMessage());
+
+        ObjReaderException size = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.read("f 1/1/1/1 2 3\n"));
+        Assertions.assertEquals("Error parsing OBJ file on line: 1. Invalid element size.", size.getMessage());
+
+        ObjReaderException notInt = Assertions.assertThrows(ObjReaderException.class, () -> ObjReader.read("f 1 a 3\n"));
+        Assertions.assertEquals("Error parsing OBJ file on line: 1. Failed to parse int value.", notInt.getMessage());
+    }
+
+    @Test
+    public void testReadFloatFormats() {
+        Model model = ObjReader.read("v -0.000001 1e3 0.1234567890123456789\nv +.5 5. 3.4028235E38\n");
+        Assertions.assertEquals(Float.parseFloat("-0.000001"), model.getVertices().get(0).x);
+        Assertions.assertEquals(1000.0f, model.getVertices().get(0).y);
+        Assertions.assertEquals(Float.parseFloat("0.1234567890123456789"), model.getVertices().get(0).z);
+        Assertions.assertEquals(0.5f, model.getVertices().get(1).x);
+        Assertions.assertEquals(5.0f, model.getVertices().get(1).y);
+        Assertions.assertEquals(Float.MAX_VALUE, model.getVertices().get(1).z);
+    }
+
+    @Test
+    public void testReadFloatNearHalfwayMatchesParseFloat() {
+        // double-частное попадает в середину между двумя float: повторное округление дало бы 6.116147
+        Model model = ObjReader.read("v 6.11614727973938 0 0\n");
+        Assertions.assertEquals(Float.parseFloat("6.11614727973938"), model.getVertices().get(0).x);
+        Assertions.assertEquals(6.1161475f, model.getVertices().get(0).x);
+    }
+
+    @Test
+    public void testReadParallelMatchesSequential() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append("v ").append(i).append(" ").append(i * 0.5f).append(" -1.25\r\n");
+            content.append("vt 0.").append(i).append(" 1\n");
+            if (i % 7 == 0) {
+                content.append("   \n# comment\n");
+            }
+            if (i >= 2) {
+                content.append("f ").append(i - 1).append("/1 ").append(i).append("/2 ").append(i + 1).append("/3\n");
+            }
+        }
+        Path file = Files.createTempFile("parallel", ".obj");
+        try {
+            Files.writeString(file, content);
+            Model expected = ObjReader.read(file);
+            Model actual = ParallelObjLoader.read(file, 1024);
+            assertSameModel(expected, actual);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReadParallelLineNumber() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            content.append(i % 5 == 0 ? "  \n" : "v 1 2 3\n");
+        }
+        content.append("v 1 2\n");
+        Path file = Files.createTempFile("parallel", ".obj");
+        try {
+            Files.writeString(file, content);
+            ObjReaderException exception = Assertions.assertThrows(ObjReaderException.class,
+                    () -> ParallelObjLoader.read(file, 1024));
+            Assertions.assertEquals("Error parsing OBJ file on line: 2401. Too few vertex arguments.", exception.getMessage());
+            Assertions.assertEquals(2401, exception.getLineInd());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReadProgressiveMatchesRead() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            content.append("v ").append(i).append(" 0.5 -1\n");
+            content.append("vn 0 ").append(i % 2).append(" 1\n");
+            if (i >= 2) {
+                content.append("f ").append(i - 1).append("//1 ").append(i).append("//2 ").append(i + 1).append("//3\n");
+            }
+        }
+        Path file = Files.createTempFile("progressive", ".obj");
+        try {
+            Files.writeString(file, content);
+            Model expected = ObjReader.read(file);
+            long size = Files.size(file);
+            Model actual = new Model();
+            long[] lastBytesRead = {0};
+            int[] batches = {0};
+            ObjReader.readProgressive(file, 1000, (batch, bytesRead, totalBytes) -> {
+                Assertions.assertTrue(bytesRead >= lastBytesRead[0]);
+                Assertions.assertEquals(size, totalBytes);
+                lastBytesRead[0] = bytesRead;
+                batches[0]++;
+                actual.getVertices().addAll(batch.getVertices());
+                actual.getTextureVertices().addAll(batch.getTextureVertices());
+                actual.getNormals().addAll(batch.getNormals());
+                actual.getPolygons().addAll(batch.getPolygons());
+            });
+            Assertions.assertTrue(batches[0] > 1);
+            Assertions.assertEquals(size, lastBytesRead[0]);
+            assertSameModel(expected, actual);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReadCompressed() throws IOException {
+        Path gz = Files.createTempFile("compressed", ".obj.gz");
+        Path zip = Files.createTempFile("compressed", ".zip");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz))) {
+                out.write(SAMPLE_OBJ.getBytes(StandardCharsets.UTF_8));
+            }
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+                out.putNextEntry(new ZipEntry("readme.txt"));
+                out.write("not a model".getBytes(StandardCharsets.UTF_8));
+                out.putNextEntry(new ZipEntry("models/first.obj"));
+                out.write("v 1 2 3\n".getBytes(StandardCharsets.UTF_8));
+                out.putNextEntry(new ZipEntry("models/second.obj"));
+                out.write(SAMPLE_OBJ.getBytes(StandardCharsets.UTF_8));
+            }
+
+            Model expected = ObjReader.read(SAMPLE_OBJ);
+            assertSameModel(expected, ObjReader.read(gz));
+            assertSameModel(expected, ObjReader.readParallel(gz));
+            Assertions.assertEquals(Arrays.asList("models/first.obj", "models/second.obj"), ObjReader.listObjEntries(zip));
+            Assertions.assertEquals(1, ObjReader.read(zip).getVertices().size());
+            assertSameModel(expected, ObjReader.read(zip, "models/second.obj", ObjAttributes.ALL));
+
+            Model progressive = new Model();
+            ObjReader.readProgressive(gz, null, 1, (batch, bytesRead, totalBytes) -> {
+                progressive.getVertices().addAll(batch.getVertices());
+                progressive.getTextureVertices().addAll(batch.getTextureVertices());
+                progressive.getNormals().addAll(batch.getNormals());
+                progressive.getPolygons().addAll(batch.getPolygons());
+            });
+            assertSameModel(expected, progressive);
+        } finally {
+            Files.delete(gz);
+            Files.delete(zip);
+        }
+    }
+}
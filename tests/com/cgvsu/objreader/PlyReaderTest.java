@@ -0,0 +1,127 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objwriter.PlyWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlyReaderTest {
+
+    @Test
+    void testReadWrittenModel() throws IOException {
+        Model source = new Model();
+        source.getVertices().add(new Vector3f(0, 0, 0));
+        source.getVertices().add(new Vector3f(1, 0, 0));
+        source.getVertices().add(new Vector3f(1, 1, 0));
+        source.getVertices().add(new Vector3f(0, 1, 0));
+        source.getTextureVertices().add(new Vector2f(0.25f, 0.75f));
+        source.getNormals().add(new Vector3f(0, 0, 1));
+        source.getPolygons().add(new Polygon(new int[]{0, 1, 2, 3}, new int[]{0, 0, 0, 0}, new int[]{0, 0, 0, 0}));
+
+        Path file = Files.createTempFile("reader", ".ply");
+        try {
+            PlyWriter.write(source, file);
+            Model model = PlyReader.read(file);
+            assertEquals(4, model.getVertices().size());
+            assertEquals(4, model.getNormals().size());
+            assertEquals(4, model.getTextureVertices().size());
+            assertEquals(1, model.getPolygons().size());
+            Polygon polygon = model.getPolygons().get(0);
+            assertArrayEquals(new int[]{0, 1, 2, 3}, polygon.getVertexIndices());
+            assertArrayEquals(new int[]{0, 1, 2, 3}, polygon.getNormalIndices());
+            assertEquals(1f, model.getVertices().get(2).getY());
+            assertEquals(1f, model.getNormals().get(3).getZ());
+            assertEquals(0.75f, model.getTextureVertices().get(1).getY());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testReadBigEndianWithExtraElements() throws IOException {
+        String header = "ply\nformat binary_big_endian 1.0\n"
+                + "element vertex 3\nproperty double x\nproperty double y\nproperty double z\nproperty uchar red\n"
+                + "element face 1\nproperty uchar flags\nproperty list uchar uint vertex_index\n"
+                + "element edge 1\nproperty int vertex1\nproperty int vertex2\n"
+                + "end_header\n";
+        ByteBuffer body = ByteBuffer.allocate(3 * 25 + 1 + 1 + 12 + 8).order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < 3; i++) {
+            body.putDouble(i).putDouble(2 * i).putDouble(-i).put((byte) 255);
+        }
+        body.put((byte) 7).put((byte) 3).putInt(2).putInt(1).putInt(0);
+        body.putInt(0).putInt(1);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(header.getBytes(StandardCharsets.US_ASCII));
+        content.write(body.array());
+
+        Path file = Files.createTempFile("reader", ".ply");
+        try {
+            Files.write(file, content.toByteArray());
+            Model model = PlyReader.read(file);
+            assertEquals(3, model.getVertices().size());
+            assertEquals(4f, model.getVertices().get(2).getY());
+            assertEquals(-2f, model.getVertices().get(2).getZ());
+            assertTrue(model.getNormals().isEmpty());
+            assertArrayEquals(new int[]{2, 1, 0}, model.getPolygons().get(0).getVertexIndices());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testRejectsInvalidIndex() throws IOException {
+        String header = "ply\nformat binary_little_endian 1.0\n"
+                + "element vertex 3\nproperty float x\nproperty float y\nproperty float z\n"
+                + "element face 1\nproperty list uchar int vertex_indices\n"
+                + "end_header\n";
+        ByteBuffer body = ByteBuffer.allocate(3 * 12 + 1 + 12).order(ByteOrder.LITTLE_ENDIAN);
+        body.position(3 * 12);
+        body.put((byte) 3).putInt(0).putInt(1).putInt(5);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(header.getBytes(StandardCharsets.US_ASCII));
+        content.write(body.array());
+
+        Path file = Files.createTempFile("reader", ".ply");
+        try {
+            Files.write(file, content.toByteArray());
+            assertThrows(BinaryModelException.class, () -> PlyReader.read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testRejectsFaceCountBeyondData() throws IOException {
+        // Заголовок обещает два миллиарда полигонов, а данных всего на один
+        String header = "ply\nformat binary_little_endian 1.0\n"
+                + "element vertex 3\nproperty float x\nproperty float y\nproperty float z\n"
+                + "element face 2000000000\nproperty list uchar int vertex_indices\n"
+                + "end_header\n";
+        ByteBuffer body = ByteBuffer.allocate(3 * 12 + 1 + 12).order(ByteOrder.LITTLE_ENDIAN);
+        body.position(3 * 12);
+        body.put((byte) 3).putInt(0).putInt(1).putInt(2);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(header.getBytes(StandardCharsets.US_ASCII));
+        content.write(body.array());
+
+        Path file = Files.createTempFile("reader", ".ply");
+        try {
+            Files.write(file, content.toByteArray());
+            assertThrows(BinaryModelException.class, () -> PlyReader.read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cgvsu.objreader;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objwriter.StlWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StlReaderTest {
+
+    private static Model createQuad() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getVertices().add(new Vector3f(1, 0, 0));
+        model.getVertices().add(new Vector3f(1, 1, -0.0f));
+        model.getVertices().add(new Vector3f(0, 1, 0));
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2, 3}, new int[0], new int[0]));
+        return model;
+    }
+
+    @Test
+    void testReadSeparateCorners() throws IOException {
+        Path file = Files.createTempFile("reader", ".stl");
+        try {
+            StlWriter.write(createQuad(), file);
+            Model model = StlReader.read(file);
+            assertEquals(6, model.getVertices().size());
+            assertEquals(2, model.getPolygons().size());
+            assertArrayEquals(new int[]{3, 4, 5}, model.getPolygons().get(1).getVertexIndices());
+            assertEquals(1f, model.getVertices().get(4).getX());
+            assertEquals(1f, model.getVertices().get(4).getY());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testReadMergesDuplicates() throws IOException {
+        Path file = Files.createTempFile("reader", ".stl");
+        try {
+            StlWriter.write(createQuad(), file);
+            Model model = StlReader.read(file, true);
+            assertEquals(4, model.getVertices().size());
+            assertArrayEquals(new int[]{0, 1, 2}, model.getPolygons().get(0).getVertexIndices());
+            assertArrayEquals(new int[]{0, 2, 3}, model.getPolygons().get(1).getVertexIndices());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testRejectsAsciiStl() throws IOException {
+        Path file = Files.createTempFile("reader", ".stl");
+        try {
+            Files.writeString(file, "solid test\n" + " ".repeat(100) + "\nendsolid test\n");
+            assertThrows(BinaryModelException.class, () -> StlReader.read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import com.cgvsu.objreader.ObjReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObjWriterTest {
+
+    private static Model createModel() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getVertices().add(new Vector3f(1.5f, -2, 0.125f));
+        model.getVertices().add(new Vector3f(0, 1, 0));
+        model.getTextureVertices().add(new Vector2f(0.25f, 1));
+        model.getNormals().add(new Vector3f(0, 0, 1));
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2}, new int[]{0, 0, 0}, new int[]{0, 0, 0}));
+        model.getPolygons().add(new Polygon(new int[]{2, 1, 0}, new int[0], new int[]{0, 0, 0}));
+        model.getPolygons().add(new Polygon(new int[]{0, 2, 1}, new int[0], new int[0]));
+        return model;
+    }
+
+    @Test
+    void testModelToString() {
+        String expected = "# test\n"
+                + "v 0 0 0\nv 1.5 -2 0.125\nv 0 1 0\n\n"
+                + "vt 0.25 1\n\n"
+                + "vn 0 0 1\n\n"
+                + "f 1/1/1 2/1/1 3/1/1\nf 3//1 2//1 1//1\nf 1 3 2\n";
+        assertEquals(expected, ObjWriter.modelToString(createModel(), "test"));
+    }
+
+    @Test
+    void testWriteFileMatchesModelToString() throws IOException {
+        Model model = createModel();
+        Path file = Files.createTempFile("writer", ".obj");
+        try {
+            ObjWriter.write(model, file.toString());
+            assertArrayEquals(ObjWriter.modelToString(model).getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testInvalidModelKeepsExistingFile() throws IOException {
+        Model model = createModel();
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 7}, new int[0], new int[0]));
+        Path file = Files.createTempFile("writer", ".obj");
+        try {
+            Files.writeString(file, "old content");
+            assertThrows(ObjWriterException.class, () -> ObjWriter.write(model, file.toString()));
+            assertEquals("old content", Files.readString(file));
+            try (var files = Files.list(file.getParent())) {
+                assertEquals(0, files.filter(p -> p.getFileName().toString().startsWith(file.getFileName().toString())
+                        && p.toString().endsWith(".tmp")).count());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testWriteKeepsFilePermissions() throws IOException {
+        Path dir = Files.createTempDirectory("writer");
+        if (Files.getFileAttributeView(dir, PosixFileAttributeView.class) == null) {
+            Files.delete(dir);
+            return;
+        }
+        Path reference = dir.resolve("reference.obj");
+        Path created = dir.resolve("created.obj");
+        Path existing = dir.resolve("existing.obj");
+        try {
+            // Новый файл получает те же права, что и созданный обычным способом
+            Files.createFile(reference);
+            ObjWriter.write(createModel(), created.toString());
+            assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(created));
+
+            // Перезаписанный файл сохраняет свои права
+            Files.writeString(existing, "old content");
+            Files.setPosixFilePermissions(existing, PosixFilePermissions.fromString("rwxr-x---"));
+            ObjWriter.write(createModel(), existing.toString());
+            assertEquals(PosixFilePermissions.fromString("rwxr-x---"), Files.getPosixFilePermissions(existing));
+        } finally {
+            Files.deleteIfExists(reference);
+            Files.deleteIfExists(created);
+            Files.deleteIfExists(existing);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void testWriteReportsProgress() throws IOException {
+        Model model = createModel();
+        Path file = Files.createTempFile("writer", ".obj");
+        try {
+            long[] last = {-1, -1};
+            ObjWriter.write(model, file, FloatFormat.FIXED_6, (written, total) -> {
+                assertTrue(written > last[0]);
+                last[0] = written;
+                last[1] = total;
+            });
+            assertEquals(8, last[0]);
+            assertEquals(8, last[1]);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testInterruptedWriteKeepsExistingFile() throws IOException {
+        Model model = createModel();
+        Path file = Files.createTempFile("writer", ".obj");
+        try {
+            Files.writeString(file, "old content");
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(InterruptedIOException.class, () -> ObjWriter.write(model, file, FloatFormat.FIXED_6, ObjWriteListener.NONE));
+            } finally {
+                Thread.interrupted();
+            }
+            assertEquals("old content", Files.readString(file));
+            try (var files = Files.list(file.getParent())) {
+                assertEquals(0, files.filter(p -> p.getFileName().toString().startsWith(file.getFileName().toString())
+                        && p.toString().endsWith(".tmp")).count());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testFormatFloatCompact() {
+        assertEquals("0", ObjWriter.formatFloatCompact(0));
+        assertEquals("-0", ObjWriter.formatFloatCompact(-0.0f));
+        assertEquals("-0", ObjWriter.formatFloatCompact(-1e-9f));
+        assertEquals("1.5", ObjWriter.formatFloatCompact(1.5f));
+        assertEquals("0.333333", ObjWriter.formatFloatCompact(1 / 3f));
+        assertEquals("0.007813", ObjWriter.formatFloatCompact(0.0078125f));
+        assertEquals("123456.703125", ObjWriter.formatFloatCompact(123456.7f));
+        assertEquals("100000002004087730000", ObjWriter.formatFloatCompact(1e20f));
+        assertThrows(ObjWriterException.class, () -> ObjWriter.formatFloatCompact(Float.NaN));
+    }
+
+    @Test
+    void testShortestFormatRoundTrips() throws IOException {
+        Model model = new Model();
+        float[] values = {0.1f, 1 / 3f, -2.5e-7f, 123456.7f, 1e20f, Float.MIN_VALUE, -0.0f, 16777216f};
+        for (float value : values) {
+            model.getVertices().add(new Vector3f(value, -value, value * 7));
+        }
+        StringWriter writer = new StringWriter();
+        ObjWriter.write(model, null, writer, FloatFormat.SHORTEST);
+        assertTrue(writer.toString().startsWith("v 0.1 -0.1 0.7\nv 0.33333334 -0.33333334 2.3333335\n"));
+
+        Model read = ObjReader.read(writer.toString());
+        for (int i = 0; i < values.length; i++) {
+            Vector3f expected = model.getVertices().get(i);
+            Vector3f actual = read.getVertices().get(i);
+            assertEquals(Float.floatToIntBits(expected.x), Float.floatToIntBits(actual.x));
+            assertEquals(Float.floatToIntBits(expected.y), Float.floatToIntBits(actual.y));
+            assertEquals(Float.floatToIntBits(expected.z), Float.floatToIntBits(actual.z));
+        }
+    }
+
+    @Test
+    void testParallelExportMatchesSequential() throws IOException {
+        Model model = new Model();
+        for (int i = 0; i < 1000; i++) {
+            model.getVertices().add(new Vector3f(i * 0.25f, -i, i / 7f));
+            if (i % 3 == 0) {
+                model.getNormals().add(new Vector3f(0, i % 2, 1));
+            }
+        }
+        for (int i = 0; i + 2 < 1000; i++) {
+            model.getPolygons().add(new Polygon(new int[]{i, i + 1, i + 2}, new int[0], new int[]{0, 1, 2}));
+        }
+        String expected = ObjWriter.modelToString(model, "parallel");
+
+        for (int chunkSize : new int[]{1, 7, 100, 5000}) {
+            StringWriter writer = new StringWriter();
+            ParallelObjExporter.write(model, "parallel", writer, FloatFormat.FIXED_6, chunkSize);
+            assertEquals(expected, writer.toString());
+        }
+
+        // Первая по порядку ошибка та же, что и при последовательной записи
+        model.getPolygons().get(500).setNormalIndices(new int[]{0, 1, 999});
+        model.getPolygons().get(900).setNormalIndices(new int[]{0, 1, 999});
+        ObjWriterException sequential = assertThrows(ObjWriterException.class, () -> ObjWriter.modelToString(model));
+        ObjWriterException parallel = assertThrows(ObjWriterException.class,
+                () -> ParallelObjExporter.write(model, null, new StringWriter(), FloatFormat.FIXED_6, 10));
+        assertEquals(sequential.getMessage(), parallel.getMessage());
+    }
+}
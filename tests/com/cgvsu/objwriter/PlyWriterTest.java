@@ -0,0 +1,102 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.math.Vector2f;
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlyWriterTest {
+
+    private static final String END_HEADER = "end_header\n";
+
+    private static int bodyStart(byte[] data) {
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        return text.indexOf(END_HEADER) + END_HEADER.length();
+    }
+
+    @Test
+    void testPositionsOnly() throws IOException {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getVertices().add(new Vector3f(1, 0, 0));
+        model.getVertices().add(new Vector3f(1, 1, 0));
+        model.getVertices().add(new Vector3f(0, 1, 0));
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2, 3}, new int[0], new int[0]));
+
+        Path file = Files.createTempFile("writer", ".ply");
+        try {
+            PlyWriter.write(model, file);
+            byte[] bytes = Files.readAllBytes(file);
+            String header = new String(bytes, 0, bodyStart(bytes), StandardCharsets.US_ASCII);
+            assertTrue(header.startsWith("ply\nformat binary_little_endian 1.0\n"));
+            assertTrue(header.contains("element vertex 4\n"));
+            assertTrue(header.contains("element face 1\n"));
+            assertTrue(header.contains("property list uchar int vertex_indices\n"));
+            assertFalse(header.contains("property float nx"));
+
+            ByteBuffer body = ByteBuffer.wrap(bytes, bodyStart(bytes), bytes.length - bodyStart(bytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(4 * 12 + 1 + 4 * 4, body.remaining());
+            body.position(body.position() + 2 * 12);
+            assertEquals(1f, body.getFloat());
+            assertEquals(1f, body.getFloat());
+            body.position(body.position() + 4 + 12);
+            assertEquals(4, body.get());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i, body.getInt());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testCornerAttributesSplitVertices() throws IOException {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getVertices().add(new Vector3f(1, 0, 0));
+        model.getVertices().add(new Vector3f(0, 1, 0));
+        model.getVertices().add(new Vector3f(1, 1, 0));
+        model.getTextureVertices().add(new Vector2f(0, 0));
+        model.getTextureVertices().add(new Vector2f(0.5f, 0.5f));
+        model.getNormals().add(new Vector3f(0, 0, 1));
+        // Вершина 1 встречается с двумя разными текстурными координатами
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2}, new int[]{0, 0, 0}, new int[]{0, 0, 0}));
+        model.getPolygons().add(new Polygon(new int[]{1, 3, 2}, new int[]{1, 1, 0}, new int[]{0, 0, 0}));
+
+        Path file = Files.createTempFile("writer", ".ply");
+        try {
+            PlyWriter.write(model, file);
+            byte[] bytes = Files.readAllBytes(file);
+            String header = new String(bytes, 0, bodyStart(bytes), StandardCharsets.US_ASCII);
+            assertTrue(header.contains("element vertex 5\n"));
+            assertTrue(header.contains("property float nx\n"));
+            assertTrue(header.contains("property float s\n"));
+
+            int vertexSize = 8 * 4;
+            ByteBuffer body = ByteBuffer.wrap(bytes, bodyStart(bytes), bytes.length - bodyStart(bytes))
+                    .order(ByteOrder.LITTLE_ENDIAN).slice().order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(5 * vertexSize + 2 * (1 + 3 * 4), body.remaining());
+            // Копия вершины 1 дописана в конец со своей текстурной координатой
+            assertEquals(1f, body.getFloat(4 * vertexSize));
+            assertEquals(0.5f, body.getFloat(4 * vertexSize + 6 * 4));
+
+            body.position(5 * vertexSize + 1 + 3 * 4 + 1);
+            assertEquals(4, body.getInt());
+            assertEquals(3, body.getInt());
+            assertEquals(2, body.getInt());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
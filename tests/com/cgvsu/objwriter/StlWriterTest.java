@@ -0,0 +1,62 @@
+package com.cgvsu.objwriter;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StlWriterTest {
+
+    private static Model createQuad() {
+        Model model = new Model();
+        model.getVertices().add(new Vector3f(0, 0, 0));
+        model.getVertices().add(new Vector3f(1, 0, 0));
+        model.getVertices().add(new Vector3f(1, 1, 0));
+        model.getVertices().add(new Vector3f(0, 1, 0));
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2, 3}, new int[0], new int[0]));
+        return model;
+    }
+
+    @Test
+    void testQuadIsWrittenAsTwoTriangles() throws IOException {
+        Path file = Files.createTempFile("writer", ".stl");
+        try {
+            StlWriter.write(createQuad(), file);
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(80 + 4 + 2 * 50, data.limit());
+            assertEquals(2, data.getInt(80));
+
+            // Второй треугольник веера: 0, 2, 3 с нормалью +Z
+            int second = 84 + 50;
+            assertEquals(1f, data.getFloat(second + 8));
+            float[] expected = {0, 0, 0, 1, 1, 0, 0, 1, 0};
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], data.getFloat(second + 12 + 4 * i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testInvalidModelKeepsExistingFile() throws IOException {
+        Model model = createQuad();
+        model.getVertices().set(2, new Vector3f(Float.NaN, 0, 0));
+        Path file = Files.createTempFile("writer", ".stl");
+        try {
+            Files.writeString(file, "old content");
+            assertThrows(ObjWriterException.class, () -> StlWriter.write(model, file));
+            assertEquals("old content", Files.readString(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.cgvsu.render_engine;
+
+import com.cgvsu.math.Vector3f;
+import com.cgvsu.model.Model;
+import com.cgvsu.model.Polygon;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SceneTest {
+
+    @Test
+    void testDeletePolygonsPastCompactionThreshold() {
+        Model model = new Model();
+        for (int i = 0; i < 10; i++) {
+            model.getVertices().add(new Vector3f(i, i % 2, 0));
+        }
+        for (int i = 0; i < 8; i++) {
+            model.getPolygons().add(new Polygon(new int[]{i, i + 1, i + 2}, new int[0], new int[0]));
+        }
+        Scene scene = new Scene();
+        scene.addModel(model);
+
+        // Половина полигонов — больше порога сжатия; сжатие посреди удаления не должно сдвигать остальные идентификаторы
+        scene.deletePolygonsInActiveModel(List.of(0, 1, 2, 3));
+
+        assertEquals(4, model.getPolygons().size());
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(new int[]{i + 4, i + 5, i + 6}, model.getPolygons().get(i).getVertexIndices());
+        }
+
+        assertTrue(scene.getActiveJournal().undo());
+        assertEquals(8, model.getPolygons().size());
+        for (int i = 0; i < 8; i++) {
+            assertArrayEquals(new int[]{i, i + 1, i + 2}, model.getPolygons().get(i).getVertexIndices());
+        }
+    }
+
+    @Test
+    void testLoadingModelCannotBeEdited() {
+        Model model = new Model();
+        for (int i = 0; i < 4; i++) {
+            model.getVertices().add(new Vector3f(i, i % 2, 0));
+        }
+        model.getPolygons().add(new Polygon(new int[]{0, 1, 2}, new int[0], new int[0]));
+        model.getPolygons().add(new Polygon(new int[]{1, 2, 3}, new int[0], new int[0]));
+        Scene scene = new Scene();
+        scene.addModel(model);
+
+        scene.setModelLoading(model, true);
+        assertFalse(scene.isActiveModelEditable());
+        scene.deletePolygonsInActiveModel(List.of(0));
+        scene.deleteVerticesInActiveModel(List.of(3));
+        assertEquals(4, model.getVertices().size());
+        assertEquals(2, model.getPolygons().size());
+        assertFalse(scene.getActiveJournal().canUndo());
+
+        scene.setModelLoading(model, false);
+        assertTrue(scene.isActiveModelEditable());
+        scene.deleteVerticesInActiveModel(List.of(3));
+        assertEquals(3, model.getVertices().size());
+        assertEquals(1, model.getPolygons().size());
+    }
+}